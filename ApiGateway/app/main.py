@@ -1,5 +1,6 @@
 from fastapi import FastAPI, Request, HTTPException
-from fastapi.responses import JSONResponse
+from fastapi.responses import JSONResponse, StreamingResponse
+from starlette.background import BackgroundTask
 import httpx
 from jose import jwt, JWTError
 import os
@@ -128,6 +129,10 @@ async def proxy_requests(path: str, request: Request):
     if service_name not in SYSTEM_SERVICES:
         raise HTTPException(status_code=404, detail=f"Service '{service_name}' not found.")
         
+    # internal/ endpoints are service-to-service only (authenticated by X-Internal-Token), never public
+    if sub_path.lstrip("/").split("/", 1)[0] == "internal":
+        raise HTTPException(status_code=404, detail="Not found.")
+
     base_url = SYSTEM_SERVICES[service_name]
     
     headers = dict(request.headers)
@@ -167,14 +172,29 @@ async def proxy_requests(path: str, request: Request):
     target_url = f"{base_url}/{sub_path}"
     
     try:
-        response = await client.request(
-            method=request.method,
-            url=target_url,
-            headers=headers,
-            json=json_data,
-            params=request.query_params
+        response = await client.send(
+            client.build_request(
+                method=request.method,
+                url=target_url,
+                headers=headers,
+                json=json_data,
+                params=request.query_params
+            ),
+            stream=True
         )
 
+        # NDJSON streams (e.g. /payment/history/stream) are relayed chunk by chunk as they arrive;
+        # the upstream response is closed once the client has been sent everything.
+        if response.headers.get("content-type", "").startswith("application/x-ndjson"):
+            return StreamingResponse(
+                response.aiter_raw(),
+                status_code=response.status_code,
+                media_type="application/x-ndjson",
+                background=BackgroundTask(response.aclose)
+            )
+
+        await response.aread()
+
         response_content = None
 
         try:
@@ -39,6 +39,11 @@ public class Customer implements UserDetails {
     @Column(nullable = false)
     private String roles = "ROLE_USER"; 
 
+    // Balance writes in customer-management-service are versioned; this service creates the table.
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return List.of(new SimpleGrantedAuthority(roles));
@@ -4,6 +4,7 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.authority.AuthorityUtils; // Dùng để tạo role mặc định
@@ -13,17 +14,39 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.util.StringUtils;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 
 @Component
 public class GatewayAuthFilter extends OncePerRequestFilter {
 
     public static final String CUSTOMER_ID_HEADER = "X-Customer-Id";
 
+    public static final String INTERNAL_TOKEN_HEADER = "X-Internal-Token";
+
+    // Shared secret of the service-to-service /internal/** routes. Blank keeps them closed.
+    @Value("${customer.internal.service-token:}")
+    private String internalServiceToken;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
 
+        // Internal routes never take a customer identity; only the service token authenticates them.
+        if (request.getRequestURI().startsWith(request.getContextPath() + "/internal/")) {
+            if (isInternalServiceToken(request.getHeader(INTERNAL_TOKEN_HEADER))) {
+                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                    "internal-service",
+                    null,
+                    AuthorityUtils.createAuthorityList("ROLE_INTERNAL")
+                );
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            }
+            filterChain.doFilter(request, response);
+            return;
+        }
+
         try {
             String customerIdHeader = request.getHeader(CUSTOMER_ID_HEADER);
             if (StringUtils.hasText(customerIdHeader)) {
@@ -45,4 +68,11 @@ public class GatewayAuthFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    private boolean isInternalServiceToken(String token) {
+        if (!StringUtils.hasText(internalServiceToken) || token == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(internalServiceToken.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+    }
 }
\ No newline at end of file
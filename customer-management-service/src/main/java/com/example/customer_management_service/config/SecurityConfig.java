@@ -26,6 +26,8 @@ public class SecurityConfig {
 
             // 2. Cấu hình ủy quyền (Authorization)
             .authorizeHttpRequests(auth -> auth
+                // Service-to-service endpoints with no customer context; callers must send X-Internal-Token
+                .requestMatchers("/internal/**").hasRole("INTERNAL")
                 // Cho phép tất cả các request đều phải được xác thực
                 .anyRequest().authenticated() 
             )
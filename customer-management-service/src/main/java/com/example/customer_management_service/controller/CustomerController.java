@@ -1,15 +1,22 @@
 package com.example.customer_management_service.controller;
 
+import com.example.customer_management_service.dto.CustomerBatch;
+import com.example.customer_management_service.dto.CustomerBatchRequest;
+import com.example.customer_management_service.dto.CustomerContact;
 import com.example.customer_management_service.dto.DebitRequest;
 import com.example.customer_management_service.dto.GenericResponse;
+import com.example.customer_management_service.dto.StatementPage;
+import com.example.customer_management_service.service.BalanceLedgerService;
 import com.example.customer_management_service.service.CustomerService;
 import com.example.customer_management_service.model.Customer; // Import Customer model
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import java.util.Optional; 
 
@@ -19,6 +26,9 @@ public class CustomerController {
     @Autowired
     private CustomerService customerService;
 
+    @Autowired
+    private BalanceLedgerService balanceLedgerService;
+
     @GetMapping("/info")
     public ResponseEntity<GenericResponse<Customer>> getCustomerInfo(Authentication authentication) {
         try {
@@ -38,7 +48,37 @@ public class CustomerController {
             return ResponseEntity.status(500).body(GenericResponse.failure("Invalid customer ID format in authentication context."));
         }
     }
+
+    // Lightweight projection for service-to-service callers that only need contact details;
+    // it never loads password or roles.
+    @GetMapping("/contact")
+    public ResponseEntity<GenericResponse<CustomerContact>> getCustomerContact(Authentication authentication) {
+        try {
+            Long customerId = Long.parseLong(authentication.getPrincipal().toString());
+
+            return customerService.getCustomerContact(customerId)
+                .map(contact -> ResponseEntity.ok(GenericResponse.success("Customer contact retrieved successfully.", contact)))
+                .orElseGet(() -> ResponseEntity.status(404).body(GenericResponse.failure("Customer not found.")));
+
+        } catch (NumberFormatException e) {
+            return ResponseEntity.status(500).body(GenericResponse.failure("Invalid customer ID format in authentication context."));
+        }
+    }
     
+    // Bulk lookup for internal batch callers (reconciliation, mail fan-out, reports): contact details
+    // and balances for many customers in one round trip and one query. Not routed by the gateway.
+    @PostMapping("/internal/customers:batchGet")
+    public ResponseEntity<GenericResponse<CustomerBatch>> batchGetCustomers(@RequestBody CustomerBatchRequest request) {
+        try {
+            CustomerBatch batch = customerService.getCustomers(request.getCustomerIds());
+            return ResponseEntity.ok(GenericResponse.success("Customers retrieved successfully.", batch));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(GenericResponse.failure(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(GenericResponse.failure("Internal server error: " + e.getMessage()));
+        }
+    }
+
     @GetMapping("/balance")
     public ResponseEntity<GenericResponse<Integer>> getAvailableBalance(Authentication authentication) {
         
@@ -61,6 +101,28 @@ public class CustomerController {
         }
     }
     
+    // Ledger entries (debits and credits with their descriptions), newest first.
+    @GetMapping("/balance/statement")
+    public ResponseEntity<GenericResponse<StatementPage>> getBalanceStatement(
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "20") int size,
+            Authentication authentication) {
+
+        if (size < 1 || size > 100) {
+            return ResponseEntity.badRequest().body(GenericResponse.failure("Invalid request: size must be between 1 and 100."));
+        }
+
+        try {
+            Long customerId = Long.parseLong(authentication.getPrincipal().toString());
+            StatementPage page = balanceLedgerService.getStatement(customerId, cursor, size);
+            return ResponseEntity.ok(GenericResponse.success("Balance statement retrieved successfully.", page));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.status(500).body(GenericResponse.failure("Invalid customer ID format in authentication context."));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(GenericResponse.failure("Internal server error: " + e.getMessage()));
+        }
+    }
+    
     @PostMapping("/balance/debit")
     public ResponseEntity<GenericResponse<Integer>> debitCustomerBalance(@RequestBody DebitRequest request, Authentication authentication) {
 
@@ -70,7 +132,7 @@ public class CustomerController {
 
         try {
             Long customerId = Long.parseLong(authentication.getPrincipal().toString());
-            Integer newBalance = customerService.debitCustomerBalance(customerId, request.getAmount());
+            Integer newBalance = customerService.debitCustomerBalance(customerId, request.getAmount(), request.getDescription(), request.getReference());
 
             if (newBalance != null) {
                 return ResponseEntity.ok(GenericResponse.success("Debit successful.", newBalance));
@@ -79,6 +141,8 @@ public class CustomerController {
             }
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(400).body(GenericResponse.failure(e.getMessage()));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(409).body(GenericResponse.failure("Balance is being updated concurrently, please retry."));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(GenericResponse.failure("Internal server error: " + e.getMessage()));
         }
@@ -93,13 +157,15 @@ public class CustomerController {
 
         try {
             Long customerId = Long.parseLong(authentication.getPrincipal().toString());
-            Integer newBalance = customerService.creditCustomerBalance(customerId, request.getAmount());
+            Integer newBalance = customerService.creditCustomerBalance(customerId, request.getAmount(), request.getDescription(), request.getReference());
 
             if (newBalance != null) {
                 return ResponseEntity.ok(GenericResponse.success("Credit successful.", newBalance));
             } else {
                 return ResponseEntity.status(404).body(GenericResponse.failure("Customer not found."));
             }
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(409).body(GenericResponse.failure("Balance is being updated concurrently, please retry."));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(GenericResponse.failure("Internal server error: " + e.getMessage()));
         }
@@ -0,0 +1,118 @@
+package com.example.customer_management_service.controller;
+
+import com.example.customer_management_service.dto.GenericResponse;
+import com.example.customer_management_service.dto.ReservationRequest;
+import com.example.customer_management_service.model.FundReservation;
+import com.example.customer_management_service.service.ReservationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+// Fund holds used by payment-processor-service: hold at initiate, capture at confirm, release when
+// the payment is abandoned. Unclaimed holds are credited back by the expiry sweeper.
+@RestController
+public class ReservationController {
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @PostMapping("/reservations")
+    public ResponseEntity<GenericResponse<FundReservation>> holdFunds(@RequestBody ReservationRequest request, Authentication authentication) {
+
+        if (request.getReference() == null || request.getReference().isBlank() || request.getAmount() == null || request.getAmount() <= 0) {
+            return ResponseEntity.badRequest().body(GenericResponse.failure("Invalid request: reference and positive amount are required."));
+        }
+
+        try {
+            Long customerId = Long.parseLong(authentication.getPrincipal().toString());
+            FundReservation reservation = reservationService.hold(customerId, request.getReference(), request.getAmount(), request.getTtlSeconds());
+
+            if (reservation != null) {
+                return ResponseEntity.ok(GenericResponse.success("Funds held successfully.", reservation));
+            } else {
+                return ResponseEntity.status(404).body(GenericResponse.failure("Customer not found."));
+            }
+        } catch (NumberFormatException e) {
+            return ResponseEntity.status(500).body(GenericResponse.failure("Invalid customer ID format in authentication context."));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(GenericResponse.failure(e.getMessage()));
+        } catch (OptimisticLockingFailureException | DataIntegrityViolationException e) {
+            return ResponseEntity.status(409).body(GenericResponse.failure("Reservation " + request.getReference() + " is being updated concurrently, please retry."));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(GenericResponse.failure("Internal server error: " + e.getMessage()));
+        }
+    }
+
+    @PostMapping("/reservations/capture")
+    public ResponseEntity<GenericResponse<FundReservation>> captureFunds(@RequestBody ReservationRequest request, Authentication authentication) {
+
+        if (request.getReference() == null || request.getReference().isBlank()) {
+            return ResponseEntity.badRequest().body(GenericResponse.failure("Invalid request: reference is required."));
+        }
+
+        try {
+            Long customerId = Long.parseLong(authentication.getPrincipal().toString());
+            FundReservation reservation = reservationService.capture(customerId, request.getReference(), request.getAmount(), request.getCaptureKey());
+
+            if (reservation != null) {
+                return ResponseEntity.ok(GenericResponse.success("Funds captured successfully.", reservation));
+            } else {
+                return ResponseEntity.status(404).body(GenericResponse.failure("No active reservation for " + request.getReference() + "."));
+            }
+        } catch (NumberFormatException e) {
+            return ResponseEntity.status(500).body(GenericResponse.failure("Invalid customer ID format in authentication context."));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(GenericResponse.failure(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(GenericResponse.failure("Internal server error: " + e.getMessage()));
+        }
+    }
+
+    // 404 means nothing was charged under the reference.
+    @GetMapping("/reservations/charges")
+    public ResponseEntity<GenericResponse<Integer>> getCharge(@RequestParam String reference, Authentication authentication) {
+        try {
+            Long customerId = Long.parseLong(authentication.getPrincipal().toString());
+
+            return reservationService.findCharge(customerId, reference)
+                .map(amount -> ResponseEntity.ok(GenericResponse.success("Charge " + reference + " found.", amount)))
+                .orElseGet(() -> ResponseEntity.status(404).body(GenericResponse.failure("No charge for " + reference + ".")));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.status(500).body(GenericResponse.failure("Invalid customer ID format in authentication context."));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(GenericResponse.failure("Internal server error: " + e.getMessage()));
+        }
+    }
+
+    @PostMapping("/reservations/release")
+    public ResponseEntity<GenericResponse<FundReservation>> releaseFunds(@RequestBody ReservationRequest request, Authentication authentication) {
+
+        if (request.getReference() == null || request.getReference().isBlank()) {
+            return ResponseEntity.badRequest().body(GenericResponse.failure("Invalid request: reference is required."));
+        }
+
+        try {
+            Long customerId = Long.parseLong(authentication.getPrincipal().toString());
+            FundReservation reservation = reservationService.release(customerId, request.getReference());
+
+            if (reservation != null) {
+                return ResponseEntity.ok(GenericResponse.success("Funds released successfully.", reservation));
+            } else {
+                return ResponseEntity.status(404).body(GenericResponse.failure("No active reservation for " + request.getReference() + "."));
+            }
+        } catch (NumberFormatException e) {
+            return ResponseEntity.status(500).body(GenericResponse.failure("Invalid customer ID format in authentication context."));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(409).body(GenericResponse.failure("Reservation " + request.getReference() + " is being updated concurrently, please retry."));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(GenericResponse.failure("Internal server error: " + e.getMessage()));
+        }
+    }
+}
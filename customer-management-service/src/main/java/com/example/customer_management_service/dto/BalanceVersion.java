@@ -0,0 +1,7 @@
+package com.example.customer_management_service.dto;
+
+// Native-query projection of customers.available_balance together with the row version.
+public interface BalanceVersion {
+    Integer getAvailableBalance();
+    Long getVersion();
+}
@@ -0,0 +1,15 @@
+package com.example.customer_management_service.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerBatch {
+    private List<CustomerSummary> customers;
+    private List<Long> notFound;
+}
@@ -0,0 +1,10 @@
+package com.example.customer_management_service.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CustomerBatchRequest {
+    private List<Long> customerIds;
+}
@@ -0,0 +1,15 @@
+package com.example.customer_management_service.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerContact {
+    private Long customerId;
+    private String fullName;
+    private String email;
+    private String phoneNumber;
+}
@@ -0,0 +1,10 @@
+package com.example.customer_management_service.dto;
+
+// Native-query projection for bulk lookups: contact details plus the current balance.
+public interface CustomerSummary {
+    Long getCustomerId();
+    String getFullName();
+    String getEmail();
+    String getPhoneNumber();
+    Integer getAvailableBalance();
+}
@@ -6,4 +6,5 @@ import lombok.Data;
 public class DebitRequest {
     private Integer amount;
     private String description;
+    private String reference;
 }
\ No newline at end of file
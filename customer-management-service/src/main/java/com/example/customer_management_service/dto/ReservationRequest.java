@@ -0,0 +1,11 @@
+package com.example.customer_management_service.dto;
+
+import lombok.Data;
+
+@Data
+public class ReservationRequest {
+    private String reference;
+    private Integer amount;
+    private Long ttlSeconds;
+    private String captureKey;
+}
@@ -0,0 +1,16 @@
+package com.example.customer_management_service.dto;
+
+import com.example.customer_management_service.model.BalanceLedgerEntry;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatementPage {
+    private List<BalanceLedgerEntry> items;
+    private Long nextCursor;
+}
@@ -0,0 +1,49 @@
+package com.example.customer_management_service.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// One row per balance change; rows are only ever inserted. amount is signed (debits are negative),
+// so a balance is a snapshot plus the sum of the entries after it.
+@Entity
+@Table(
+    name = "balance_ledger_entries",
+    indexes = {
+        @Index(name = "idx_balance_ledger_customer_entry", columnList = "customerId, entryId"),
+        @Index(name = "idx_balance_ledger_customer_created", columnList = "customerId, createdAt")
+    }
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceLedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long entryId;
+
+    @Column(nullable = false)
+    private Long customerId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private LedgerEntryType entryType;
+
+    @Column(nullable = false)
+    private Integer amount;
+
+    @Column(length = 255)
+    private String description;
+
+    // Caller-supplied key (e.g. a payment saga) that makes the change apply at most once; unique per
+    // customer and entry type (partial unique index in schema.sql).
+    @Column(length = 128)
+    private String reference;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
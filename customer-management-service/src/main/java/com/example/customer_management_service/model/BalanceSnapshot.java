@@ -0,0 +1,32 @@
+package com.example.customer_management_service.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Balance of a customer including every ledger entry up to lastEntryId.
+@Entity
+@Table(name = "balance_snapshots")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceSnapshot {
+
+    @Id
+    private Long customerId;
+
+    @Column(nullable = false)
+    private Integer balance;
+
+    @Column(nullable = false)
+    private Long lastEntryId;
+
+    @Column(nullable = false)
+    private LocalDateTime takenAt;
+
+    // OID of the customers table the snapshot was taken against; see BalanceSnapshotRepository.
+    private Long customersEpoch;
+}
@@ -1,5 +1,6 @@
 package com.example.customer_management_service.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
 
@@ -31,4 +32,10 @@ public class Customer {
     private Integer availableBalance = 0; 
 
     private String roles = "ROLE_USER"; 
+
+    // Optimistic concurrency for balance updates (customer.balance.mode=optimistic). Column-mode
+    // UPDATEs bump it as well, so both kinds of writers see each other's changes.
+    @Version
+    @JsonIgnore
+    private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.example.customer_management_service.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Funds set aside for a pending payment. The amount leaves the balance when the hold is placed;
+// capture keeps it, release and expiry credit it back. At most one HELD reservation exists per
+// customer and reference (partial unique index in schema.sql).
+@Entity
+@Table(
+    name = "fund_reservations",
+    indexes = @Index(name = "idx_fund_reservations_status_expires", columnList = "status, expiresAt")
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FundReservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long reservationId;
+
+    @Column(nullable = false)
+    private Long customerId;
+
+    @Column(nullable = false, length = 128)
+    private String reference;
+
+    @Column(nullable = false)
+    private Integer amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ReservationStatus status;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    private LocalDateTime settledAt;
+
+    // Idempotency key of the capture (the payment's charge reference), so a retried capture finds
+    // the reservation it already captured instead of falling through to a second debit.
+    @Column(length = 128)
+    private String captureKey;
+}
@@ -0,0 +1,6 @@
+package com.example.customer_management_service.model;
+
+public enum LedgerEntryType {
+    DEBIT,
+    CREDIT
+}
@@ -0,0 +1,8 @@
+package com.example.customer_management_service.model;
+
+public enum ReservationStatus {
+    HELD,
+    CAPTURED,
+    RELEASED,
+    EXPIRED
+}
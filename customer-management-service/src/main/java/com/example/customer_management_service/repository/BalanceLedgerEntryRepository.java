@@ -0,0 +1,38 @@
+package com.example.customer_management_service.repository;
+
+import com.example.customer_management_service.model.BalanceLedgerEntry;
+import com.example.customer_management_service.model.LedgerEntryType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BalanceLedgerEntryRepository extends JpaRepository<BalanceLedgerEntry, Long> {
+
+    List<BalanceLedgerEntry> findByCustomerIdOrderByEntryIdDesc(Long customerId, Pageable pageable);
+
+    Optional<BalanceLedgerEntry> findByCustomerIdAndEntryTypeAndReference(Long customerId, LedgerEntryType entryType, String reference);
+
+    List<BalanceLedgerEntry> findByCustomerIdAndEntryIdLessThanOrderByEntryIdDesc(Long customerId, Long entryId, Pageable pageable);
+
+    // Snapshot plus the entries after it. Without a snapshot the ledger has not taken over for this
+    // customer yet, so customers.available_balance is still the balance. A snapshot taken against an
+    // earlier customers table (see BalanceSnapshotRepository) counts as no snapshot.
+    @Query(value = "SELECT CASE WHEN s.customer_id IS NULL THEN c.available_balance " +
+                   "ELSE s.balance + CAST(COALESCE((SELECT SUM(e.amount) FROM balance_ledger_entries e " +
+                   "WHERE e.customer_id = s.customer_id AND e.entry_id > s.last_entry_id), 0) AS integer) END " +
+                   "FROM customers c LEFT JOIN balance_snapshots s ON s.customer_id = c.customer_id " +
+                   "AND s.customers_epoch = CAST(CAST(to_regclass('customers') AS oid) AS bigint) " +
+                   "WHERE c.customer_id = :customerId", nativeQuery = true)
+    Optional<Integer> findLedgerBalance(@Param("customerId") Long customerId);
+
+    // Serialises debits of one customer for the rest of the transaction without locking the
+    // customers row, so credits and reads never wait on it.
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(:customerId)", nativeQuery = true)
+    Integer lockCustomerLedger(@Param("customerId") Long customerId);
+}
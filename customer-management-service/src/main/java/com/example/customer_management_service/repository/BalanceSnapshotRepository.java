@@ -0,0 +1,47 @@
+package com.example.customer_management_service.repository;
+
+import com.example.customer_management_service.model.BalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, Long> {
+
+    // Snapshots belong to one incarnation of the customers table, identified by its OID: auth-service
+    // drops and reseeds that table on start, and the reseeded balance replaces everything before it.
+
+    // First ledger write for a customer: the column already includes every earlier entry, so the
+    // opening snapshot is the column value as of the newest existing entry. A snapshot left from an
+    // earlier customers table is reopened the same way.
+    @Modifying
+    @Query(value = "INSERT INTO balance_snapshots (customer_id, balance, last_entry_id, taken_at, customers_epoch) " +
+                   "SELECT c.customer_id, c.available_balance, " +
+                   "COALESCE((SELECT MAX(e.entry_id) FROM balance_ledger_entries e WHERE e.customer_id = c.customer_id), 0), :now, " +
+                   "CAST(CAST(to_regclass('customers') AS oid) AS bigint) " +
+                   "FROM customers c WHERE c.customer_id = :customerId " +
+                   "ON CONFLICT (customer_id) DO UPDATE SET balance = EXCLUDED.balance, last_entry_id = EXCLUDED.last_entry_id, " +
+                   "taken_at = EXCLUDED.taken_at, customers_epoch = EXCLUDED.customers_epoch " +
+                   "WHERE balance_snapshots.customers_epoch IS DISTINCT FROM EXCLUDED.customers_epoch", nativeQuery = true)
+    int openSnapshot(@Param("customerId") Long customerId, @Param("now") LocalDateTime now);
+
+    // Folds settled entries into their snapshots. Identity values are handed out before commit, so
+    // only a customer's entries up to its newest one created before :settledBefore are folded; anything
+    // after it is left for the next run in case a lower id is still in flight. The cutoff only looks at
+    // the customer's unfolded entries (idx_balance_ledger_customer_created), not the whole ledger.
+    @Modifying
+    @Query(value = "UPDATE balance_snapshots s SET balance = s.balance + d.delta, last_entry_id = d.max_entry_id, taken_at = :now " +
+                   "FROM (SELECT e.customer_id, CAST(SUM(e.amount) AS integer) AS delta, MAX(e.entry_id) AS max_entry_id " +
+                   "      FROM balance_ledger_entries e JOIN balance_snapshots s2 ON s2.customer_id = e.customer_id " +
+                   "      WHERE e.entry_id > s2.last_entry_id " +
+                   "      AND s2.customers_epoch = CAST(CAST(to_regclass('customers') AS oid) AS bigint) " +
+                   "      AND e.entry_id <= (SELECT MAX(c.entry_id) FROM balance_ledger_entries c " +
+                   "                         WHERE c.customer_id = e.customer_id AND c.entry_id > s2.last_entry_id AND c.created_at < :settledBefore) " +
+                   "      GROUP BY e.customer_id) d " +
+                   "WHERE s.customer_id = d.customer_id", nativeQuery = true)
+    int advanceSnapshots(@Param("settledBefore") LocalDateTime settledBefore, @Param("now") LocalDateTime now);
+}
@@ -1,12 +1,61 @@
 package com.example.customer_management_service.repository;
 
+import com.example.customer_management_service.dto.BalanceVersion;
+import com.example.customer_management_service.dto.CustomerContact;
+import com.example.customer_management_service.dto.CustomerSummary;
 import com.example.customer_management_service.model.Customer;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
     Optional<Customer> findByCustomerId(Long customerId);
+
+    @Query("SELECT new com.example.customer_management_service.dto.CustomerContact(c.customerId, c.fullName, c.email, c.phoneNumber) " +
+           "FROM Customer c WHERE c.customerId = :customerId")
+    Optional<CustomerContact> findContactByCustomerId(@Param("customerId") Long customerId);
+
+    @Query(value = "SELECT available_balance AS \"availableBalance\", version AS \"version\" " +
+                   "FROM customers WHERE customer_id = :customerId", nativeQuery = true)
+    Optional<BalanceVersion> findBalanceVersion(@Param("customerId") Long customerId);
+
+    // OID of the customers table; it changes whenever auth-service drops and recreates the table.
+    @Query(value = "SELECT CAST(CAST(to_regclass('customers') AS oid) AS bigint)", nativeQuery = true)
+    Optional<Long> findTableEpoch();
+
+    // Bulk lookups bind the ids as one array parameter, so every batch size shares a single statement.
+    @Query(value = "SELECT customer_id AS \"customerId\", full_name AS \"fullName\", email AS \"email\", " +
+                   "phone_number AS \"phoneNumber\", available_balance AS \"availableBalance\" " +
+                   "FROM customers WHERE customer_id = ANY(:customerIds) ORDER BY customer_id", nativeQuery = true)
+    List<CustomerSummary> findSummaries(@Param("customerIds") Long[] customerIds);
+
+    // Ledger mode: same balance rule as BalanceLedgerEntryRepository.findLedgerBalance.
+    @Query(value = "SELECT c.customer_id AS \"customerId\", c.full_name AS \"fullName\", c.email AS \"email\", " +
+                   "c.phone_number AS \"phoneNumber\", " +
+                   "CASE WHEN s.customer_id IS NULL THEN c.available_balance " +
+                   "ELSE s.balance + CAST(COALESCE((SELECT SUM(e.amount) FROM balance_ledger_entries e " +
+                   "WHERE e.customer_id = s.customer_id AND e.entry_id > s.last_entry_id), 0) AS integer) END AS \"availableBalance\" " +
+                   "FROM customers c LEFT JOIN balance_snapshots s ON s.customer_id = c.customer_id " +
+                   "AND s.customers_epoch = CAST(CAST(to_regclass('customers') AS oid) AS bigint) " +
+                   "WHERE c.customer_id = ANY(:customerIds) ORDER BY c.customer_id", nativeQuery = true)
+    List<CustomerSummary> findLedgerSummaries(@Param("customerIds") Long[] customerIds);
+
+    // Single-statement balance changes: the check and the write happen under the row lock taken by
+    // the UPDATE itself. RETURNING yields a result set, so these run as queries rather than @Modifying.
+    // An empty result means the customer does not exist or (for debits) the balance is too low.
+    // The new version comes back with the balance so the write can go through to the balance cache.
+    @Query(value = "UPDATE customers SET available_balance = available_balance - :amount, version = version + 1 " +
+                   "WHERE customer_id = :customerId AND available_balance >= :amount " +
+                   "RETURNING available_balance AS \"availableBalance\", version AS \"version\"", nativeQuery = true)
+    Optional<BalanceVersion> debitBalance(@Param("customerId") Long customerId, @Param("amount") Integer amount);
+
+    @Query(value = "UPDATE customers SET available_balance = available_balance + :amount, version = version + 1 " +
+                   "WHERE customer_id = :customerId " +
+                   "RETURNING available_balance AS \"availableBalance\", version AS \"version\"", nativeQuery = true)
+    Optional<BalanceVersion> creditBalance(@Param("customerId") Long customerId, @Param("amount") Integer amount);
 }
\ No newline at end of file
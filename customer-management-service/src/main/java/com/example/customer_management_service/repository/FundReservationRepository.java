@@ -0,0 +1,39 @@
+package com.example.customer_management_service.repository;
+
+import com.example.customer_management_service.model.FundReservation;
+import com.example.customer_management_service.model.ReservationStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FundReservationRepository extends JpaRepository<FundReservation, Long> {
+
+    Optional<FundReservation> findByCustomerIdAndReferenceAndStatus(Long customerId, String reference, ReservationStatus status);
+
+    Optional<FundReservation> findByCustomerIdAndCaptureKey(Long customerId, String captureKey);
+
+    // Conditional state change; only one of several concurrent captures/releases/expiries wins.
+    @Modifying
+    @Query("UPDATE FundReservation r SET r.status = :to, r.settledAt = :now " +
+           "WHERE r.reservationId = :reservationId AND r.status = com.example.customer_management_service.model.ReservationStatus.HELD")
+    int settleHeld(@Param("reservationId") Long reservationId, @Param("to") ReservationStatus to, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE FundReservation r SET r.status = com.example.customer_management_service.model.ReservationStatus.CAPTURED, " +
+           "r.settledAt = :now, r.captureKey = :captureKey " +
+           "WHERE r.reservationId = :reservationId AND r.status = com.example.customer_management_service.model.ReservationStatus.HELD")
+    int captureHeld(@Param("reservationId") Long reservationId, @Param("captureKey") String captureKey, @Param("now") LocalDateTime now);
+
+    @Query("SELECT r.reservationId FROM FundReservation r " +
+           "WHERE r.status = com.example.customer_management_service.model.ReservationStatus.HELD AND r.expiresAt < :now " +
+           "ORDER BY r.expiresAt")
+    List<Long> findExpiredHeldIds(@Param("now") LocalDateTime now, Pageable pageable);
+}
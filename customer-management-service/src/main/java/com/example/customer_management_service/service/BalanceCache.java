@@ -0,0 +1,121 @@
+package com.example.customer_management_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+// Redis read cache of customer balances, versioned by customers.version. Every entry carries the
+// row version it was read or written at, and a write only lands if its version is newer than the
+// cached one, so a slow read-through can never overwrite the value a later debit wrote through.
+// Redis problems are logged and treated as misses; the database stays the source of truth.
+//
+// Versions restart at 0 when auth-service reseeds the customers table, so keys also carry the
+// table's epoch (CustomersTableEpoch): entries from before a reseed are never read again and
+// cannot block newer writes. They expire with their TTL.
+//
+// customer.balance.cache.requests{result=hit|miss}: every hit is one balance query the database
+// did not serve.
+@Component
+public class BalanceCache {
+
+    private static final String KEY_PREFIX = "customer:balance:";
+
+    private static final DefaultRedisScript<Long> SET_IF_NEWER_SCRIPT = new DefaultRedisScript<>(
+        "local current = redis.call('hget', KEYS[1], 'v') " +
+        "if current and tonumber(current) >= tonumber(ARGV[1]) then return 0 end " +
+        "redis.call('hset', KEYS[1], 'v', ARGV[1], 'b', ARGV[2]) " +
+        "redis.call('pexpire', KEYS[1], ARGV[3]) " +
+        "return 1",
+        Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final CustomersTableEpoch customersTableEpoch;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter errors;
+
+    @Value("${customer.balance.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${customer.balance.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    public BalanceCache(StringRedisTemplate redisTemplate, CustomersTableEpoch customersTableEpoch, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.customersTableEpoch = customersTableEpoch;
+        this.hits = Counter.builder("customer.balance.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("customer.balance.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.errors = Counter.builder("customer.balance.cache.errors").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Integer get(Long customerId) {
+        try {
+            Object balance = redisTemplate.opsForHash().get(key(customerId), "b");
+            if (balance != null) {
+                hits.increment();
+                return Integer.valueOf(balance.toString());
+            }
+        } catch (RuntimeException e) {
+            errors.increment();
+            System.err.println("WARNING: Balance cache read failed for customer " + customerId + ": " + e.getMessage());
+        }
+        misses.increment();
+        return null;
+    }
+
+    // Inside a transaction the value is published only once it has committed; a rollback drops
+    // the entry instead, since its version number will be reused by the next committed write.
+    public void put(Long customerId, Integer balance, Long version) {
+        if (!enabled || balance == null || version == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            setIfNewer(customerId, balance, version);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    setIfNewer(customerId, balance, version);
+                } else {
+                    evict(customerId);
+                }
+            }
+        });
+    }
+
+    public void evict(Long customerId) {
+        try {
+            redisTemplate.delete(key(customerId));
+        } catch (RuntimeException e) {
+            errors.increment();
+            System.err.println("WARNING: Balance cache evict failed for customer " + customerId + ": " + e.getMessage());
+        }
+    }
+
+    private void setIfNewer(Long customerId, Integer balance, Long version) {
+        try {
+            redisTemplate.execute(SET_IF_NEWER_SCRIPT, List.of(key(customerId)),
+                String.valueOf(version), String.valueOf(balance), String.valueOf(ttlSeconds * 1000));
+        } catch (RuntimeException e) {
+            errors.increment();
+            System.err.println("WARNING: Balance cache write failed for customer " + customerId + ": " + e.getMessage());
+        }
+    }
+
+    private String key(Long customerId) {
+        return KEY_PREFIX + customersTableEpoch.current() + ":" + customerId;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.customer_management_service.service;
+
+import com.example.customer_management_service.dto.StatementPage;
+import com.example.customer_management_service.model.BalanceLedgerEntry;
+import com.example.customer_management_service.model.LedgerEntryType;
+import com.example.customer_management_service.repository.BalanceLedgerEntryRepository;
+import com.example.customer_management_service.repository.BalanceSnapshotRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+
+// Append-only record of every balance change. In the default "column" mode entries are written
+// next to the customers.available_balance update as an audit trail. In "ledger" mode the entries
+// are the balance: writes are inserts only, the balance is the latest snapshot plus the entries
+// after it, and snapshots are advanced in the background. The switch is one-way (column to
+// ledger), since ledger mode stops updating the column.
+@Service
+public class BalanceLedgerService {
+
+    private static final int MAX_DESCRIPTION_LENGTH = 255;
+
+    @Autowired
+    private BalanceLedgerEntryRepository ledgerEntryRepository;
+
+    @Autowired
+    private BalanceSnapshotRepository snapshotRepository;
+
+    @Value("${customer.balance.mode:column}")
+    private String balanceMode;
+
+    @Value("${customer.ledger.snapshot-settle-seconds:30}")
+    private long snapshotSettleSeconds;
+
+    public boolean isLedgerMode() {
+        return "ledger".equalsIgnoreCase(balanceMode);
+    }
+
+    @Transactional
+    public BalanceLedgerEntry append(Long customerId, LedgerEntryType entryType, Integer amount, String description) {
+        return append(customerId, entryType, amount, description, null);
+    }
+
+    // A duplicate reference fails the insert (and with it the surrounding balance change).
+    @Transactional
+    public BalanceLedgerEntry append(Long customerId, LedgerEntryType entryType, Integer amount, String description, String reference) {
+        BalanceLedgerEntry entry = new BalanceLedgerEntry();
+        entry.setCustomerId(customerId);
+        entry.setEntryType(entryType);
+        entry.setAmount(entryType == LedgerEntryType.DEBIT ? -amount : amount);
+        entry.setDescription(description != null && description.length() > MAX_DESCRIPTION_LENGTH ?
+            description.substring(0, MAX_DESCRIPTION_LENGTH) : description);
+        entry.setReference(reference);
+        entry.setCreatedAt(now());
+        return ledgerEntryRepository.save(entry);
+    }
+
+    public Integer getBalance(Long customerId) {
+        return ledgerEntryRepository.findLedgerBalance(customerId).orElse(null);
+    }
+
+    public Optional<BalanceLedgerEntry> findByReference(Long customerId, LedgerEntryType entryType, String reference) {
+        return ledgerEntryRepository.findByCustomerIdAndEntryTypeAndReference(customerId, entryType, reference);
+    }
+
+    // Ledger mode. Debits of one customer are serialised on an advisory lock so the balance check
+    // and the insert cannot interleave; the customers row itself is never locked.
+    @Transactional
+    public Integer debit(Long customerId, Integer amount, String description, String reference) {
+        ledgerEntryRepository.lockCustomerLedger(customerId);
+        snapshotRepository.openSnapshot(customerId, now());
+
+        Optional<Integer> currentBalance = ledgerEntryRepository.findLedgerBalance(customerId);
+        if (currentBalance.isEmpty()) {
+            return null;
+        }
+        if (currentBalance.get() < amount) {
+            throw new IllegalArgumentException("Insufficient balance to perform the debit. Required " + amount + ", available " + currentBalance.get() + ".");
+        }
+
+        append(customerId, LedgerEntryType.DEBIT, amount, description, reference);
+        return currentBalance.get() - amount;
+    }
+
+    // Ledger mode. A credit can never overdraw, so it is a plain insert without the lock.
+    @Transactional
+    public Integer credit(Long customerId, Integer amount, String description, String reference) {
+        snapshotRepository.openSnapshot(customerId, now());
+
+        Optional<Integer> currentBalance = ledgerEntryRepository.findLedgerBalance(customerId);
+        if (currentBalance.isEmpty()) {
+            return null;
+        }
+
+        append(customerId, LedgerEntryType.CREDIT, amount, description, reference);
+        return currentBalance.get() + amount;
+    }
+
+    // Keyset pagination, newest first: cursor is the entryId of the last item of the previous page.
+    @Transactional(readOnly = true)
+    public StatementPage getStatement(Long customerId, Long cursor, int size) {
+        PageRequest limit = PageRequest.ofSize(size);
+        List<BalanceLedgerEntry> entries = cursor == null ?
+            ledgerEntryRepository.findByCustomerIdOrderByEntryIdDesc(customerId, limit) :
+            ledgerEntryRepository.findByCustomerIdAndEntryIdLessThanOrderByEntryIdDesc(customerId, cursor, limit);
+
+        Long nextCursor = entries.size() == size ? entries.get(entries.size() - 1).getEntryId() : null;
+        return new StatementPage(entries, nextCursor);
+    }
+
+    @Scheduled(fixedDelayString = "${customer.ledger.snapshot-interval-ms:60000}")
+    @Transactional
+    public void advanceSnapshots() {
+        if (!isLedgerMode()) {
+            return;
+        }
+        LocalDateTime now = now();
+        int advanced = snapshotRepository.advanceSnapshots(now.minusSeconds(snapshotSettleSeconds), now);
+        if (advanced > 0) {
+            System.out.println("[LEDGER] Advanced " + advanced + " balance snapshot(s).");
+        }
+    }
+
+    private LocalDateTime now() {
+        return LocalDateTime.now(ZoneId.of("Asia/Ho_Chi_Minh"));
+    }
+}
@@ -0,0 +1,293 @@
+package com.example.customer_management_service.service;
+
+import com.example.customer_management_service.model.LedgerEntryType;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Group commit for balance changes (customer.balance.mode=combined). Callers enqueue a mutation and
+// wait on its future; a single flusher thread collects whatever arrives within window-ms (up to
+// max-batch-size), locks the affected customers once, applies the mutations per customer in
+// arrival order in memory, and writes the final balances and ledger entries as JDBC batches in one
+// transaction. Each caller gets its own outcome, including an insufficient-funds rejection that
+// does not affect the other mutations of the batch.
+//
+// A caller waits at most apply-timeout-ms. Each mutation is claimed exactly once, either by the
+// flusher before its transaction starts or by a caller giving up, so a timed-out caller knows its
+// mutation was not applied. If the flusher already took it, the caller waits one more timeout and
+// then reports the outcome as unknown. A dead flusher thread is restarted; on shutdown whatever is
+// still queued is failed rather than left waiting.
+@Component
+public class BalanceWriteCombiner {
+
+    private static final String LOCK_SQL =
+        "SELECT customer_id, available_balance, version FROM customers WHERE customer_id IN (:customerIds) ORDER BY customer_id FOR UPDATE";
+
+    private static final String UPDATE_SQL =
+        "UPDATE customers SET available_balance = ?, version = version + 1 WHERE customer_id = ?";
+
+    private static final String LEDGER_SQL =
+        "INSERT INTO balance_ledger_entries (customer_id, entry_type, amount, description, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    private static final int MAX_DESCRIPTION_LENGTH = 255;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private BalanceCache balanceCache;
+
+    @Value("${customer.balance.mode:column}")
+    private String balanceMode;
+
+    @Value("${customer.balance.combiner.window-ms:2}")
+    private long windowMs;
+
+    @Value("${customer.balance.combiner.max-batch-size:256}")
+    private int maxBatchSize;
+
+    @Value("${customer.balance.combiner.apply-timeout-ms:5000}")
+    private long applyTimeoutMs;
+
+    // found=false: no such customer. applied=false: debit rejected, balance is what was available.
+    public record Outcome(boolean found, boolean applied, Integer balance) {}
+
+    private record Mutation(Long customerId, LedgerEntryType entryType, Integer amount, String description,
+                            CompletableFuture<Outcome> result, AtomicBoolean claimed) {}
+
+    private final BlockingQueue<Mutation> queue = new LinkedBlockingQueue<>();
+
+    private volatile boolean running;
+
+    private volatile Thread flusher;
+
+    private DistributionSummary batchSizes;
+
+    private Timer flushTimer;
+
+    @PostConstruct
+    public void start() {
+        if (!"combined".equalsIgnoreCase(balanceMode)) {
+            return;
+        }
+        batchSizes = DistributionSummary.builder("customer.balance.combiner.batch.size").register(meterRegistry);
+        flushTimer = Timer.builder("customer.balance.combiner.flush").register(meterRegistry);
+
+        running = true;
+        startFlusher();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        Thread current = flusher;
+        if (current != null) {
+            current.interrupt();
+            current.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        failQueued(new IllegalStateException("Balance write combiner stopped before the mutation was applied."));
+    }
+
+    // Blocks until the batch containing this mutation has committed (or failed), or apply-timeout-ms.
+    public Outcome apply(Long customerId, LedgerEntryType entryType, Integer amount, String description) {
+        if (!running) {
+            throw new IllegalStateException("Balance write combiner is not running.");
+        }
+        Mutation mutation = new Mutation(customerId, entryType, amount, description, new CompletableFuture<>(), new AtomicBoolean());
+        queue.add(mutation);
+        try {
+            return await(mutation.result());
+        } catch (TimeoutException e) {
+            if (mutation.claimed().compareAndSet(false, true)) {
+                throw new IllegalStateException("Balance write was not applied within " + applyTimeoutMs + " ms.", e);
+            }
+        }
+        try {
+            return await(mutation.result());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Balance write is still being committed; its outcome is not known yet.", e);
+        }
+    }
+
+    private Outcome await(CompletableFuture<Outcome> result) throws TimeoutException {
+        try {
+            return result.get(applyTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the balance write.", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtimeException ? runtimeException : new CompletionException(e.getCause());
+        }
+    }
+
+    private void startFlusher() {
+        flusher = Thread.ofPlatform().name("balance-write-combiner").daemon().start(this::runFlusher);
+    }
+
+    private void runFlusher() {
+        try {
+            flushLoop();
+        } catch (Throwable e) {
+            System.err.println("CRITICAL ERROR: Balance write combiner flusher died: " + e);
+        } finally {
+            if (running) {
+                System.err.println("WARNING: Restarting balance write combiner flusher.");
+                startFlusher();
+            } else {
+                failQueued(new IllegalStateException("Balance write combiner stopped before the mutation was applied."));
+            }
+        }
+    }
+
+    private void failQueued(RuntimeException cause) {
+        List<Mutation> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        pending.forEach(mutation -> mutation.result().completeExceptionally(cause));
+    }
+
+    private void flushLoop() {
+        List<Mutation> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Mutation first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMs);
+                while (batch.size() < maxBatchSize) {
+                    Mutation next = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Shutting down: flush what was collected, then drain the rest without waiting.
+                queue.drainTo(batch);
+            }
+
+            if (!batch.isEmpty()) {
+                try {
+                    flush(batch);
+                } finally {
+                    // No-op for mutations that got their outcome; fails the rest if flush() blew up.
+                    IllegalStateException unapplied = new IllegalStateException("Balance write batch was aborted.");
+                    batch.forEach(mutation -> mutation.result().completeExceptionally(unapplied));
+                }
+                batch = new ArrayList<>(maxBatchSize);
+            }
+        }
+    }
+
+    private void flush(List<Mutation> batch) {
+        // Mutations whose callers already gave up are dropped; the rest can no longer be abandoned.
+        batch.removeIf(mutation -> !mutation.claimed().compareAndSet(false, true));
+        if (batch.isEmpty()) {
+            return;
+        }
+        batchSizes.record(batch.size());
+        Map<Mutation, Outcome> outcomes;
+        try {
+            outcomes = flushTimer.recordCallable(() -> transactionTemplate.execute(status -> applyBatch(batch)));
+        } catch (Exception e) {
+            System.err.println("CRITICAL ERROR: Balance write batch of " + batch.size() + " mutation(s) failed: " + e.getMessage());
+            batch.forEach(mutation -> mutation.result().completeExceptionally(e));
+            return;
+        }
+        // Callers are released only after the commit, so nobody observes an uncommitted balance.
+        outcomes.forEach((mutation, outcome) -> mutation.result().complete(outcome));
+    }
+
+    private Map<Mutation, Outcome> applyBatch(List<Mutation> batch) {
+        Map<Long, Integer> balances = new HashMap<>();
+        Map<Long, Long> versions = new HashMap<>();
+        namedParameterJdbcTemplate.query(LOCK_SQL,
+            new MapSqlParameterSource("customerIds", batch.stream().map(Mutation::customerId).distinct().toList()),
+            resultSet -> {
+                balances.put(resultSet.getLong("customer_id"), resultSet.getInt("available_balance"));
+                versions.put(resultSet.getLong("customer_id"), resultSet.getLong("version"));
+            });
+
+        Map<Mutation, Outcome> outcomes = new LinkedHashMap<>();
+        Map<Long, Integer> changedBalances = new LinkedHashMap<>();
+        List<Object[]> ledgerRows = new ArrayList<>();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now(ZoneId.of("Asia/Ho_Chi_Minh")));
+
+        for (Mutation mutation : batch) {
+            Integer balance = balances.get(mutation.customerId());
+            if (balance == null) {
+                outcomes.put(mutation, new Outcome(false, false, null));
+                continue;
+            }
+
+            boolean debit = mutation.entryType() == LedgerEntryType.DEBIT;
+            if (debit && balance < mutation.amount()) {
+                outcomes.put(mutation, new Outcome(true, false, balance));
+                continue;
+            }
+
+            int newBalance = debit ? balance - mutation.amount() : balance + mutation.amount();
+            balances.put(mutation.customerId(), newBalance);
+            changedBalances.put(mutation.customerId(), newBalance);
+            ledgerRows.add(new Object[] {
+                mutation.customerId(),
+                mutation.entryType().name(),
+                debit ? -mutation.amount() : mutation.amount(),
+                truncate(mutation.description()),
+                now
+            });
+            outcomes.put(mutation, new Outcome(true, true, newBalance));
+        }
+
+        if (!changedBalances.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, changedBalances.entrySet().stream()
+                .map(entry -> new Object[] { entry.getValue(), entry.getKey() })
+                .toList());
+            jdbcTemplate.batchUpdate(LEDGER_SQL, ledgerRows);
+            // Each changed row is written once per batch, so its version goes up by exactly one.
+            changedBalances.forEach((customerId, balance) -> balanceCache.put(customerId, balance, versions.get(customerId) + 1));
+        }
+        return outcomes;
+    }
+
+    private String truncate(String description) {
+        return description != null && description.length() > MAX_DESCRIPTION_LENGTH ?
+            description.substring(0, MAX_DESCRIPTION_LENGTH) : description;
+    }
+}
@@ -1,15 +1,27 @@
 package com.example.customer_management_service.service;
 
+import com.example.customer_management_service.dto.BalanceVersion;
+import com.example.customer_management_service.dto.CustomerBatch;
+import com.example.customer_management_service.dto.CustomerContact;
+import com.example.customer_management_service.dto.CustomerSummary;
 import com.example.customer_management_service.model.Customer;
+import com.example.customer_management_service.model.LedgerEntryType;
 import com.example.customer_management_service.repository.CustomerRepository;
 
-import org.springframework.transaction.annotation.Isolation;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
 public class CustomerService {
@@ -17,53 +29,246 @@ public class CustomerService {
     @Autowired
     private CustomerRepository customerRepository;
 
+    @Autowired
+    private BalanceLedgerService balanceLedgerService;
+
+    @Autowired
+    private OptimisticBalanceRetry optimisticBalanceRetry;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private BalanceWriteCombiner balanceWriteCombiner;
+
+    @Autowired
+    private BalanceCache balanceCache;
+
+    @Value("${customer.balance.mode:column}")
+    private String balanceMode;
+
+    @Value("${customer.internal.batch-get.max-ids:200}")
+    private int batchGetMaxIds;
+
     public Optional<Customer> getCustomerById(Long customerId) {
-        return customerRepository.findByCustomerId(customerId);
+        Optional<Customer> customerOpt = customerRepository.findByCustomerId(customerId);
+        if (balanceLedgerService.isLedgerMode()) {
+            customerOpt.ifPresent(customer -> customer.setAvailableBalance(balanceLedgerService.getBalance(customerId)));
+        }
+        return customerOpt;
+    }
+
+    public Optional<CustomerContact> getCustomerContact(Long customerId) {
+        return customerRepository.findContactByCustomerId(customerId);
+    }
+
+    // One query for the whole batch. Duplicate ids are collapsed; ids without a customer are
+    // reported in notFound instead of failing the batch.
+    public CustomerBatch getCustomers(List<Long> customerIds) {
+        if (customerIds == null || customerIds.isEmpty()) {
+            throw new IllegalArgumentException("Invalid request: customerIds is required.");
+        }
+        if (customerIds.contains(null)) {
+            throw new IllegalArgumentException("Invalid request: customerIds must not contain null.");
+        }
+
+        Long[] distinctIds = customerIds.stream().distinct().toArray(Long[]::new);
+        if (distinctIds.length > batchGetMaxIds) {
+            throw new IllegalArgumentException("Invalid request: at most " + batchGetMaxIds + " customerIds per call.");
+        }
+
+        List<CustomerSummary> customers = balanceLedgerService.isLedgerMode() ?
+                customerRepository.findLedgerSummaries(distinctIds) :
+                customerRepository.findSummaries(distinctIds);
+
+        Set<Long> foundIds = customers.stream().map(CustomerSummary::getCustomerId).collect(Collectors.toSet());
+        List<Long> notFound = Arrays.stream(distinctIds)
+                .filter(id -> !foundIds.contains(id))
+                .toList();
+        return new CustomerBatch(customers, notFound);
     }
 
     public Integer getAvailableBalance(Long customerId) {
-        return customerRepository.findByCustomerId(customerId)
-                .map(Customer::getAvailableBalance)
+        if (balanceLedgerService.isLedgerMode()) {
+            return balanceLedgerService.getBalance(customerId);
+        }
+        if (balanceCache.isEnabled()) {
+            Integer cachedBalance = balanceCache.get(customerId);
+            if (cachedBalance != null) {
+                return cachedBalance;
+            }
+        }
+        return customerRepository.findBalanceVersion(customerId)
+                .map(row -> {
+                    balanceCache.put(customerId, row.getAvailableBalance(), row.getVersion());
+                    return row.getAvailableBalance();
+                })
                 .orElse(null);
     }
 
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
-    public Integer debitCustomerBalance(Long customerId, Integer amount) {
+    public Integer debitCustomerBalance(Long customerId, Integer amount, String description) {
+        return debitCustomerBalance(customerId, amount, description, null);
+    }
+
+    // With a reference the debit is applied at most once: a repeat of an applied reference is not
+    // debited again and returns the current balance instead.
+    public Integer debitCustomerBalance(Long customerId, Integer amount, String description, String reference) {
+        return applyOnce(customerId, LedgerEntryType.DEBIT, amount, reference, () -> debit(customerId, amount, description, reference));
+    }
+
+    public Integer creditCustomerBalance(Long customerId, Integer amount, String description) {
+        return creditCustomerBalance(customerId, amount, description, null);
+    }
+
+    public Integer creditCustomerBalance(Long customerId, Integer amount, String description, String reference) {
+        return applyOnce(customerId, LedgerEntryType.CREDIT, amount, reference, () -> credit(customerId, amount, description, reference));
+    }
+
+    // Amount of the change recorded under a reference, if there is one.
+    public Optional<Integer> findBalanceChange(Long customerId, LedgerEntryType entryType, String reference) {
+        return balanceLedgerService.findByReference(customerId, entryType, reference)
+                .map(entry -> Math.abs(entry.getAmount()));
+    }
+
+    // The reference is written on the ledger entry, which commits together with the balance change
+    // in every mode, and a partial unique index rejects a second entry for it. A concurrent duplicate
+    // therefore rolls back and is answered like any other repeat.
+    private Integer applyOnce(Long customerId, LedgerEntryType entryType, Integer amount, String reference, Supplier<Integer> change) {
+        if (reference == null) {
+            return change.get();
+        }
+        Optional<Integer> applied = findBalanceChange(customerId, entryType, reference);
+        if (applied.isPresent()) {
+            return replay(customerId, entryType, amount, reference, applied.get());
+        }
+        try {
+            return change.get();
+        } catch (DataIntegrityViolationException e) {
+            return findBalanceChange(customerId, entryType, reference)
+                    .map(appliedAmount -> replay(customerId, entryType, amount, reference, appliedAmount))
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    private Integer replay(Long customerId, LedgerEntryType entryType, Integer amount, String reference, Integer appliedAmount) {
+        if (!appliedAmount.equals(amount)) {
+            throw new IllegalArgumentException("Reference " + reference + " was already used for a " + entryType.name().toLowerCase() + " of " + appliedAmount + ".");
+        }
+        System.out.println("[INFO] " + entryType + " " + reference + " for Customer ID " + customerId + " was already applied. Not applying it again.");
+        return getAvailableBalance(customerId);
+    }
+
+    // Column and optimistic writes each run in their own transaction so the optimistic path can be
+    // retried from scratch; ledger writes are transactional inside BalanceLedgerService and combined
+    // writes commit on the BalanceWriteCombiner thread.
+    private Integer debit(Long customerId, Integer amount, String description, String reference) {
+        if (balanceLedgerService.isLedgerMode()) {
+            return balanceLedgerService.debit(customerId, amount, description, reference);
+        }
+        if (isOptimisticMode()) {
+            return optimisticBalanceRetry.execute("debit", () -> debitWithVersionCheck(customerId, amount, description, reference));
+        }
+        if (canCombine(reference)) {
+            BalanceWriteCombiner.Outcome outcome = balanceWriteCombiner.apply(customerId, LedgerEntryType.DEBIT, amount, description);
+            if (!outcome.found()) {
+                return null;
+            }
+            if (!outcome.applied()) {
+                throw new IllegalArgumentException("Insufficient balance to perform the debit. Required " + amount + ", available " + outcome.balance() + ".");
+            }
+            return outcome.balance();
+        }
+
+        Optional<BalanceVersion> newBalance = transactionTemplate.execute(status -> {
+            Optional<BalanceVersion> updated = customerRepository.debitBalance(customerId, amount);
+            updated.ifPresent(row -> {
+                balanceLedgerService.append(customerId, LedgerEntryType.DEBIT, amount, description, reference);
+                balanceCache.put(customerId, row.getAvailableBalance(), row.getVersion());
+            });
+            return updated;
+        });
+        if (newBalance.isPresent()) {
+            return newBalance.get().getAvailableBalance();
+        }
+
+        // No row updated: tell a missing customer apart from an insufficient balance. This reads the
+        // table rather than the cache, which may not have seen a concurrent write yet.
+        Integer currentBalance = customerRepository.findBalanceVersion(customerId)
+                .map(BalanceVersion::getAvailableBalance)
+                .orElse(null);
+        if (currentBalance == null) {
+            return null;
+        }
+        throw new IllegalArgumentException("Insufficient balance to perform the debit. Required " + amount + ", available " + currentBalance + ".");
+    }
+
+    private Integer credit(Long customerId, Integer amount, String description, String reference) {
+        if (balanceLedgerService.isLedgerMode()) {
+            return balanceLedgerService.credit(customerId, amount, description, reference);
+        }
+        if (isOptimisticMode()) {
+            return optimisticBalanceRetry.execute("credit", () -> creditWithVersionCheck(customerId, amount, description, reference));
+        }
+        if (canCombine(reference)) {
+            BalanceWriteCombiner.Outcome outcome = balanceWriteCombiner.apply(customerId, LedgerEntryType.CREDIT, amount, description);
+            return outcome.found() ? outcome.balance() : null;
+        }
+
+        return transactionTemplate.execute(status -> {
+            Optional<BalanceVersion> updated = customerRepository.creditBalance(customerId, amount);
+            updated.ifPresent(row -> {
+                balanceLedgerService.append(customerId, LedgerEntryType.CREDIT, amount, description, reference);
+                balanceCache.put(customerId, row.getAvailableBalance(), row.getVersion());
+            });
+            return updated.map(BalanceVersion::getAvailableBalance).orElse(null);
+        });
+    }
+
+    // One optimistic attempt: read, check and write back; the flush fails if another writer bumped
+    // the version in between.
+    private Integer debitWithVersionCheck(Long customerId, Integer amount, String description, String reference) {
         Optional<Customer> customerOpt = customerRepository.findByCustomerId(customerId);
-        
         if (customerOpt.isEmpty()) {
             return null;
         }
 
         Customer customer = customerOpt.get();
         Integer currentBalance = customer.getAvailableBalance();
-        
         if (currentBalance < amount) {
             throw new IllegalArgumentException("Insufficient balance to perform the debit. Required " + amount + ", available " + currentBalance + ".");
         }
-        
-        Integer newBalance = currentBalance - amount;
-        customer.setAvailableBalance(newBalance);
-        customerRepository.save(customer);
 
-        return newBalance;
+        customer.setAvailableBalance(currentBalance - amount);
+        Customer saved = customerRepository.saveAndFlush(customer);
+        balanceLedgerService.append(customerId, LedgerEntryType.DEBIT, amount, description, reference);
+        balanceCache.put(customerId, saved.getAvailableBalance(), saved.getVersion());
+        return saved.getAvailableBalance();
     }
 
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
-    public Integer creditCustomerBalance(Long customerId, Integer amount) {
+    private Integer creditWithVersionCheck(Long customerId, Integer amount, String description, String reference) {
         Optional<Customer> customerOpt = customerRepository.findByCustomerId(customerId);
-        
         if (customerOpt.isEmpty()) {
             return null;
         }
 
         Customer customer = customerOpt.get();
-        Integer currentBalance = customer.getAvailableBalance();
-        
-        Integer newBalance = currentBalance + amount;
-        customer.setAvailableBalance(newBalance);
-        customerRepository.save(customer);
+        customer.setAvailableBalance(customer.getAvailableBalance() + amount);
+        Customer saved = customerRepository.saveAndFlush(customer);
+        balanceLedgerService.append(customerId, LedgerEntryType.CREDIT, amount, description, reference);
+        balanceCache.put(customerId, saved.getAvailableBalance(), saved.getVersion());
+        return saved.getAvailableBalance();
+    }
+
+    private boolean isOptimisticMode() {
+        return "optimistic".equalsIgnoreCase(balanceMode);
+    }
 
-        return newBalance;
+    // The combiner commits in its own transaction, so callers that are already inside one (fund
+    // holds and releases) take the direct column path to keep their writes atomic. Referenced writes
+    // go direct as well: a duplicate reference must fail only its own change, not a whole batch.
+    private boolean canCombine(String reference) {
+        return "combined".equalsIgnoreCase(balanceMode)
+                && reference == null
+                && !TransactionSynchronizationManager.isActualTransactionActive();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,40 @@
+package com.example.customer_management_service.service;
+
+import com.example.customer_management_service.repository.CustomerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Identifies the current incarnation of the customers table. auth-service owns that table and drops,
+// recreates and reseeds it on start (ddl-auto=create), which resets balances and row versions to
+// their seed values. The table's OID changes every time, so anything keyed on it (the balance
+// cache) cannot mix state from before and after a reseed. Re-read every
+// customer.epoch.refresh-interval-ms; 0 while the table does not exist yet.
+@Component
+public class CustomersTableEpoch {
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    private volatile long current;
+
+    public long current() {
+        if (current == 0) {
+            refresh();
+        }
+        return current;
+    }
+
+    @Scheduled(fixedDelayString = "${customer.epoch.refresh-interval-ms:5000}")
+    public void refresh() {
+        try {
+            long epoch = customerRepository.findTableEpoch().orElse(0L);
+            if (current != 0 && epoch != current) {
+                System.out.println("[EPOCH] customers table was recreated (epoch " + current + " -> " + epoch + ").");
+            }
+            current = epoch;
+        } catch (RuntimeException e) {
+            System.err.println("WARNING: Could not read the customers table epoch: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.customer_management_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+// Runs an optimistic balance update in a fresh transaction and retries it on a version conflict,
+// sleeping a random ("full jitter") share of an exponentially growing backoff so that writers that
+// collided do not collide again in lockstep. Gives up after max-attempts and rethrows the conflict.
+//
+// Counters per operation: customer.balance.optimistic.conflicts, .retries and .exhausted.
+@Component
+public class OptimisticBalanceRetry {
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${customer.balance.optimistic.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${customer.balance.optimistic.base-backoff-ms:5}")
+    private long baseBackoffMs;
+
+    @Value("${customer.balance.optimistic.max-backoff-ms:200}")
+    private long maxBackoffMs;
+
+    public <T> T execute(String operation, Supplier<T> attempt) {
+        // A conflict marks the surrounding transaction rollback-only, so a nested call cannot
+        // retry on its own; it runs once and the outermost execute retries the whole unit.
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return attempt.get();
+        }
+
+        for (int attemptNumber = 1; ; attemptNumber++) {
+            try {
+                return transactionTemplate.execute(status -> attempt.get());
+            } catch (OptimisticLockingFailureException e) {
+                counter("customer.balance.optimistic.conflicts", operation).increment();
+                if (attemptNumber >= maxAttempts) {
+                    counter("customer.balance.optimistic.exhausted", operation).increment();
+                    System.err.println("WARNING: Balance " + operation + " still conflicting after " + attemptNumber + " attempts.");
+                    throw e;
+                }
+                counter("customer.balance.optimistic.retries", operation).increment();
+                backoff(attemptNumber);
+            }
+        }
+    }
+
+    private void backoff(int attemptNumber) {
+        long ceiling = Math.min(maxBackoffMs, baseBackoffMs << Math.min(attemptNumber - 1, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying balance update.", e);
+        }
+    }
+
+    private Counter counter(String name, String operation) {
+        return meterRegistry.counter(name, "operation", operation);
+    }
+}
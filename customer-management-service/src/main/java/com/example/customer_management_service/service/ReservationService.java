@@ -0,0 +1,177 @@
+package com.example.customer_management_service.service;
+
+import com.example.customer_management_service.model.FundReservation;
+import com.example.customer_management_service.model.LedgerEntryType;
+import com.example.customer_management_service.model.ReservationStatus;
+import com.example.customer_management_service.repository.FundReservationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+
+// Authorize/capture for payments. A hold debits the balance through the configured balance mode,
+// so every mode (column, optimistic, ledger) honours reserved funds without extra bookkeeping;
+// capture only flips the status, and release/expiry credit the amount back. Hold, release and
+// expiry run through OptimisticBalanceRetry so the balance write and the status change commit
+// together and are retried together.
+@Service
+public class ReservationService {
+
+    @Autowired
+    private FundReservationRepository reservationRepository;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private OptimisticBalanceRetry optimisticBalanceRetry;
+
+    @Value("${customer.reservation.default-ttl-seconds:600}")
+    private long defaultTtlSeconds;
+
+    @Value("${customer.reservation.max-ttl-seconds:3600}")
+    private long maxTtlSeconds;
+
+    @Value("${customer.reservation.sweep-batch-size:100}")
+    private int sweepBatchSize;
+
+    // Holding the same reference again (e.g. an OTP resend) extends the existing hold instead of
+    // reserving the amount twice. Returns null if the customer does not exist.
+    public FundReservation hold(Long customerId, String reference, Integer amount, Long ttlSeconds) {
+        long ttl = ttlSeconds == null ? defaultTtlSeconds : Math.min(Math.max(ttlSeconds, 1), maxTtlSeconds);
+
+        return optimisticBalanceRetry.execute("hold", () -> {
+            LocalDateTime now = now();
+            Optional<FundReservation> existing = reservationRepository.findByCustomerIdAndReferenceAndStatus(customerId, reference, ReservationStatus.HELD);
+            if (existing.isPresent()) {
+                FundReservation reservation = existing.get();
+                if (!reservation.getAmount().equals(amount)) {
+                    throw new IllegalArgumentException("Reservation " + reference + " is already held for a different amount (" + reservation.getAmount() + ").");
+                }
+                reservation.setExpiresAt(now.plusSeconds(ttl));
+                return reservationRepository.save(reservation);
+            }
+
+            Integer newBalance = customerService.debitCustomerBalance(customerId, amount, "Hold for " + reference);
+            if (newBalance == null) {
+                return null;
+            }
+
+            FundReservation reservation = new FundReservation();
+            reservation.setCustomerId(customerId);
+            reservation.setReference(reference);
+            reservation.setAmount(amount);
+            reservation.setStatus(ReservationStatus.HELD);
+            reservation.setCreatedAt(now);
+            reservation.setExpiresAt(now.plusSeconds(ttl));
+            return reservationRepository.save(reservation);
+        });
+    }
+
+    // Returns null only if no HELD row exists for the reference, so the caller can fall back to a
+    // debit without charging on top of a hold. A hold past its expiry that the sweeper has not
+    // settled yet still has the money off the balance, so it is captured like a live one; if the
+    // sweeper wins the race instead, captureHeld matches nothing and the amount is already back.
+    // A capture repeated with the same captureKey returns the reservation it captured the first time.
+    @Transactional
+    public FundReservation capture(Long customerId, String reference, Integer amount, String captureKey) {
+        if (captureKey != null) {
+            Optional<FundReservation> captured = reservationRepository.findByCustomerIdAndCaptureKey(customerId, captureKey);
+            if (captured.isPresent()) {
+                return captured.get();
+            }
+        }
+
+        LocalDateTime now = now();
+        Optional<FundReservation> held = reservationRepository.findByCustomerIdAndReferenceAndStatus(customerId, reference, ReservationStatus.HELD);
+        if (held.isEmpty()) {
+            return null;
+        }
+
+        FundReservation reservation = held.get();
+        if (amount != null && !reservation.getAmount().equals(amount)) {
+            throw new IllegalArgumentException("Capture amount " + amount + " does not match the held amount " + reservation.getAmount() + " for " + reference + ".");
+        }
+        if (reservationRepository.captureHeld(reservation.getReservationId(), captureKey, now) == 0) {
+            return null;
+        }
+
+        reservation.setStatus(ReservationStatus.CAPTURED);
+        reservation.setSettledAt(now);
+        reservation.setCaptureKey(captureKey);
+        return reservation;
+    }
+
+    // Amount charged under a payment's charge reference, either by capturing a hold or by a direct
+    // debit. Lets a caller whose capture or debit call failed in flight find out whether it applied.
+    public Optional<Integer> findCharge(Long customerId, String chargeReference) {
+        return reservationRepository.findByCustomerIdAndCaptureKey(customerId, chargeReference)
+            .map(FundReservation::getAmount)
+            .or(() -> customerService.findBalanceChange(customerId, LedgerEntryType.DEBIT, chargeReference));
+    }
+
+    public FundReservation release(Long customerId, String reference) {
+        return optimisticBalanceRetry.execute("release", () -> reservationRepository
+            .findByCustomerIdAndReferenceAndStatus(customerId, reference, ReservationStatus.HELD)
+            .map(reservation -> settleAndRefund(reservation, ReservationStatus.RELEASED, "Release of hold for "))
+            .orElse(null));
+    }
+
+    // Expired holds are returned in batches; each one is settled in its own transaction so one
+    // failure does not hold back the rest of the batch.
+    @Scheduled(fixedDelayString = "${customer.reservation.sweep-interval-ms:30000}")
+    public void expireHolds() {
+        int expired = 0;
+        List<Long> batch;
+        do {
+            batch = reservationRepository.findExpiredHeldIds(now(), PageRequest.ofSize(sweepBatchSize));
+            int expiredInBatch = 0;
+            for (Long reservationId : batch) {
+                try {
+                    FundReservation reservation = optimisticBalanceRetry.execute("expire", () -> reservationRepository.findById(reservationId)
+                        .filter(candidate -> candidate.getStatus() == ReservationStatus.HELD)
+                        .map(candidate -> settleAndRefund(candidate, ReservationStatus.EXPIRED, "Expired hold for "))
+                        .orElse(null));
+                    if (reservation != null) {
+                        expiredInBatch++;
+                    }
+                } catch (Exception e) {
+                    System.err.println("WARNING: Failed to expire reservation " + reservationId + ": " + e.getMessage());
+                }
+            }
+            expired += expiredInBatch;
+            if (expiredInBatch == 0) {
+                break;
+            }
+        } while (batch.size() == sweepBatchSize);
+
+        if (expired > 0) {
+            System.out.println("[RESERVATIONS] Expired " + expired + " hold(s) and credited the funds back.");
+        }
+    }
+
+    // Runs inside the caller's transaction: whoever flips the status from HELD also credits the
+    // amount back, and a failed credit rolls the status change back with it.
+    private FundReservation settleAndRefund(FundReservation reservation, ReservationStatus outcome, String descriptionPrefix) {
+        LocalDateTime now = now();
+        if (reservationRepository.settleHeld(reservation.getReservationId(), outcome, now) == 0) {
+            return null;
+        }
+        customerService.creditCustomerBalance(reservation.getCustomerId(), reservation.getAmount(), descriptionPrefix + reservation.getReference());
+
+        reservation.setStatus(outcome);
+        reservation.setSettledAt(now);
+        return reservation;
+    }
+
+    private LocalDateTime now() {
+        return LocalDateTime.now(ZoneId.of("Asia/Ho_Chi_Minh"));
+    }
+}
@@ -0,0 +1,55 @@
+-- customers is created and seeded by auth-service; this service only owns the ledger tables.
+CREATE TABLE IF NOT EXISTS balance_ledger_entries (
+    entry_id BIGSERIAL PRIMARY KEY,
+    customer_id BIGINT NOT NULL,
+    entry_type VARCHAR(16) NOT NULL,
+    amount INTEGER NOT NULL,
+    description VARCHAR(255),
+    created_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_balance_ledger_customer_entry ON balance_ledger_entries (customer_id, entry_id);
+
+-- Settle cutoff of BalanceSnapshotRepository.advanceSnapshots.
+CREATE INDEX IF NOT EXISTS idx_balance_ledger_customer_created ON balance_ledger_entries (customer_id, created_at);
+
+CREATE TABLE IF NOT EXISTS balance_snapshots (
+    customer_id BIGINT PRIMARY KEY,
+    balance INTEGER NOT NULL,
+    last_entry_id BIGINT NOT NULL,
+    taken_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS fund_reservations (
+    reservation_id BIGSERIAL PRIMARY KEY,
+    customer_id BIGINT NOT NULL,
+    reference VARCHAR(128) NOT NULL,
+    amount INTEGER NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    expires_at TIMESTAMP(6) NOT NULL,
+    settled_at TIMESTAMP(6)
+);
+
+CREATE INDEX IF NOT EXISTS idx_fund_reservations_status_expires ON fund_reservations (status, expires_at);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_fund_reservations_held_reference
+    ON fund_reservations (customer_id, reference) WHERE status = 'HELD';
+
+-- Idempotency keys for balance changes and captures made on behalf of payment sagas.
+ALTER TABLE balance_ledger_entries ADD COLUMN IF NOT EXISTS reference VARCHAR(128);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_balance_ledger_reference
+    ON balance_ledger_entries (customer_id, entry_type, reference) WHERE reference IS NOT NULL;
+
+ALTER TABLE fund_reservations ADD COLUMN IF NOT EXISTS capture_key VARCHAR(128);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_fund_reservations_capture_key
+    ON fund_reservations (customer_id, capture_key) WHERE capture_key IS NOT NULL;
+
+-- Snapshots are tied to the customers table they were taken against (its OID), since auth-service
+-- recreates and reseeds that table. Snapshots from before this column existed adopt the current table.
+ALTER TABLE balance_snapshots ADD COLUMN IF NOT EXISTS customers_epoch BIGINT;
+
+UPDATE balance_snapshots SET customers_epoch = CAST(CAST(to_regclass('customers') AS oid) AS bigint)
+    WHERE customers_epoch IS NULL;
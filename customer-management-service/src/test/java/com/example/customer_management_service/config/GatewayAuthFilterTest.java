@@ -0,0 +1,88 @@
+package com.example.customer_management_service.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GatewayAuthFilterTest {
+
+	private static final String TOKEN = "s3cret-service-token";
+
+	private GatewayAuthFilter filter;
+
+	@BeforeEach
+	void setUp() {
+		filter = new GatewayAuthFilter();
+		ReflectionTestUtils.setField(filter, "internalServiceToken", TOKEN);
+	}
+
+	@AfterEach
+	void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void internalRouteWithTheServiceTokenIsAuthenticatedAsInternal() throws Exception {
+		MockHttpServletRequest request = internalRequest();
+		request.addHeader(GatewayAuthFilter.INTERNAL_TOKEN_HEADER, TOKEN);
+
+		Authentication authentication = filter(request);
+
+		assertThat(authentication).isNotNull();
+		assertThat(authentication.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_INTERNAL");
+	}
+
+	@Test
+	void internalRouteWithAWrongTokenStaysAnonymous() throws Exception {
+		MockHttpServletRequest request = internalRequest();
+		request.addHeader(GatewayAuthFilter.INTERNAL_TOKEN_HEADER, TOKEN + "x");
+
+		assertThat(filter(request)).isNull();
+	}
+
+	@Test
+	void customerHeaderDoesNotOpenInternalRoutes() throws Exception {
+		MockHttpServletRequest request = internalRequest();
+		request.addHeader(GatewayAuthFilter.CUSTOMER_ID_HEADER, "1");
+
+		assertThat(filter(request)).isNull();
+	}
+
+	@Test
+	void internalRoutesStayClosedWithoutAConfiguredToken() throws Exception {
+		ReflectionTestUtils.setField(filter, "internalServiceToken", "");
+		MockHttpServletRequest request = internalRequest();
+		request.addHeader(GatewayAuthFilter.INTERNAL_TOKEN_HEADER, "");
+
+		assertThat(filter(request)).isNull();
+	}
+
+	@Test
+	void customerRoutesStillTakeTheGatewayCustomerId() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/balance");
+		request.addHeader(GatewayAuthFilter.CUSTOMER_ID_HEADER, "1");
+
+		Authentication authentication = filter(request);
+
+		assertThat(authentication.getPrincipal()).isEqualTo("1");
+		assertThat(authentication.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_USER");
+	}
+
+	private static MockHttpServletRequest internalRequest() {
+		return new MockHttpServletRequest("POST", "/internal/customers:batchGet");
+	}
+
+	private Authentication filter(MockHttpServletRequest request) throws Exception {
+		filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+		return SecurityContextHolder.getContext().getAuthentication();
+	}
+}
@@ -0,0 +1,128 @@
+package com.example.customer_management_service.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BalanceCacheTest {
+
+	private static final Long CUSTOMER_ID = 1L;
+	private static final String KEY = "customer:balance:77:1";
+
+	private StringRedisTemplate redisTemplate;
+	private HashOperations<String, Object, Object> hashOperations;
+	private SimpleMeterRegistry meterRegistry;
+	private BalanceCache balanceCache;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		redisTemplate = mock(StringRedisTemplate.class);
+		hashOperations = mock(HashOperations.class);
+		when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+		CustomersTableEpoch customersTableEpoch = mock(CustomersTableEpoch.class);
+		when(customersTableEpoch.current()).thenReturn(77L);
+		meterRegistry = new SimpleMeterRegistry();
+
+		balanceCache = new BalanceCache(redisTemplate, customersTableEpoch, meterRegistry);
+		ReflectionTestUtils.setField(balanceCache, "enabled", true);
+		ReflectionTestUtils.setField(balanceCache, "ttlSeconds", 300L);
+	}
+
+	@AfterEach
+	void tearDown() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	void hitIsReadFromTheEpochScopedKey() {
+		when(hashOperations.get(KEY, "b")).thenReturn("700");
+
+		assertThat(balanceCache.get(CUSTOMER_ID)).isEqualTo(700);
+		assertThat(requests("hit")).isEqualTo(1.0);
+	}
+
+	@Test
+	void missReturnsNull() {
+		assertThat(balanceCache.get(CUSTOMER_ID)).isNull();
+		assertThat(requests("miss")).isEqualTo(1.0);
+	}
+
+	@Test
+	void redisFailureIsTreatedAsAMiss() {
+		when(hashOperations.get(KEY, "b")).thenThrow(new RedisConnectionFailureException("connection refused"));
+
+		assertThat(balanceCache.get(CUSTOMER_ID)).isNull();
+		assertThat(requests("miss")).isEqualTo(1.0);
+		assertThat(meterRegistry.get("customer.balance.cache.errors").counter().count()).isEqualTo(1.0);
+	}
+
+	@Test
+	void putOutsideATransactionWritesRightAwayIfNewer() {
+		balanceCache.put(CUSTOMER_ID, 700, 4L);
+
+		verify(redisTemplate).execute(any(RedisScript.class), eq(List.of(KEY)), eq("4"), eq("700"), eq("300000"));
+	}
+
+	@Test
+	void putInsideATransactionWaitsForTheCommit() {
+		TransactionSynchronizationManager.initSynchronization();
+
+		balanceCache.put(CUSTOMER_ID, 700, 4L);
+		verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any(Object[].class));
+
+		afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+		verify(redisTemplate).execute(any(RedisScript.class), eq(List.of(KEY)), eq("4"), eq("700"), eq("300000"));
+	}
+
+	@Test
+	void rolledBackPutEvictsInsteadOfWriting() {
+		TransactionSynchronizationManager.initSynchronization();
+
+		balanceCache.put(CUSTOMER_ID, 700, 4L);
+		afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+		verify(redisTemplate).delete(KEY);
+		verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any(Object[].class));
+	}
+
+	@Test
+	void disabledCacheWritesNothing() {
+		ReflectionTestUtils.setField(balanceCache, "enabled", false);
+
+		balanceCache.put(CUSTOMER_ID, 700, 4L);
+
+		verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any(Object[].class));
+	}
+
+	private void afterCompletion(int status) {
+		List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+		TransactionSynchronizationManager.clearSynchronization();
+		synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+	}
+
+	private double requests(String result) {
+		return meterRegistry.get("customer.balance.cache.requests").tag("result", result).counter().count();
+	}
+}
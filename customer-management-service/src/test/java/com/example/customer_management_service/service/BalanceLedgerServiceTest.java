@@ -0,0 +1,147 @@
+package com.example.customer_management_service.service;
+
+import com.example.customer_management_service.dto.StatementPage;
+import com.example.customer_management_service.model.BalanceLedgerEntry;
+import com.example.customer_management_service.model.LedgerEntryType;
+import com.example.customer_management_service.repository.BalanceLedgerEntryRepository;
+import com.example.customer_management_service.repository.BalanceSnapshotRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class BalanceLedgerServiceTest {
+
+	private static final Long CUSTOMER_ID = 1L;
+
+	private BalanceLedgerEntryRepository ledgerEntryRepository;
+	private BalanceSnapshotRepository snapshotRepository;
+	private BalanceLedgerService ledgerService;
+
+	@BeforeEach
+	void setUp() {
+		ledgerEntryRepository = mock(BalanceLedgerEntryRepository.class);
+		snapshotRepository = mock(BalanceSnapshotRepository.class);
+		when(ledgerEntryRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+		ledgerService = new BalanceLedgerService();
+		ReflectionTestUtils.setField(ledgerService, "ledgerEntryRepository", ledgerEntryRepository);
+		ReflectionTestUtils.setField(ledgerService, "snapshotRepository", snapshotRepository);
+		ReflectionTestUtils.setField(ledgerService, "balanceMode", "ledger");
+		ReflectionTestUtils.setField(ledgerService, "snapshotSettleSeconds", 30L);
+	}
+
+	@Test
+	void debitTakesTheLedgerLockBeforeReadingTheBalance() {
+		when(ledgerEntryRepository.findLedgerBalance(CUSTOMER_ID)).thenReturn(Optional.of(1000));
+
+		assertThat(ledgerService.debit(CUSTOMER_ID, 300, "Tuition", "PAYMENT-SAGA-42")).isEqualTo(700);
+
+		InOrder order = inOrder(ledgerEntryRepository, snapshotRepository);
+		order.verify(ledgerEntryRepository).lockCustomerLedger(CUSTOMER_ID);
+		order.verify(snapshotRepository).openSnapshot(eq(CUSTOMER_ID), any());
+		order.verify(ledgerEntryRepository).findLedgerBalance(CUSTOMER_ID);
+		order.verify(ledgerEntryRepository).save(any());
+	}
+
+	@Test
+	void debitsAreStoredNegativeAndCreditsPositive() {
+		when(ledgerEntryRepository.findLedgerBalance(CUSTOMER_ID)).thenReturn(Optional.of(1000));
+
+		ledgerService.debit(CUSTOMER_ID, 300, "Tuition", "PAYMENT-SAGA-42");
+		assertThat(ledgerService.credit(CUSTOMER_ID, 300, "Refund", "PAYMENT-SAGA-REFUND-42")).isEqualTo(1300);
+
+		ArgumentCaptor<BalanceLedgerEntry> saved = ArgumentCaptor.forClass(BalanceLedgerEntry.class);
+		verify(ledgerEntryRepository, times(2)).save(saved.capture());
+		assertThat(saved.getAllValues()).extracting(BalanceLedgerEntry::getEntryType, BalanceLedgerEntry::getAmount, BalanceLedgerEntry::getReference)
+			.containsExactly(
+				tuple(LedgerEntryType.DEBIT, -300, "PAYMENT-SAGA-42"),
+				tuple(LedgerEntryType.CREDIT, 300, "PAYMENT-SAGA-REFUND-42"));
+		// A credit cannot overdraw, so it does not take the lock.
+		verify(ledgerEntryRepository).lockCustomerLedger(CUSTOMER_ID);
+	}
+
+	@Test
+	void debitBeyondTheLedgerBalanceAppendsNothing() {
+		when(ledgerEntryRepository.findLedgerBalance(CUSTOMER_ID)).thenReturn(Optional.of(200));
+
+		assertThatThrownBy(() -> ledgerService.debit(CUSTOMER_ID, 300, "Tuition", null))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("Insufficient balance to perform the debit. Required 300, available 200.");
+		verify(ledgerEntryRepository, never()).save(any());
+	}
+
+	@Test
+	void longDescriptionsAreCutToTheColumnSize() {
+		BalanceLedgerEntry entry = ledgerService.append(CUSTOMER_ID, LedgerEntryType.CREDIT, 10, "x".repeat(300));
+
+		assertThat(entry.getDescription()).hasSize(255);
+	}
+
+	@Test
+	void fullStatementPageCarriesTheCursorOfItsLastEntry() {
+		when(ledgerEntryRepository.findByCustomerIdAndEntryIdLessThanOrderByEntryIdDesc(eq(CUSTOMER_ID), eq(50L), any(Pageable.class)))
+			.thenReturn(List.of(entry(49L), entry(47L)));
+
+		StatementPage page = ledgerService.getStatement(CUSTOMER_ID, 50L, 2);
+
+		assertThat(page.getItems()).extracting(BalanceLedgerEntry::getEntryId).containsExactly(49L, 47L);
+		assertThat(page.getNextCursor()).isEqualTo(47L);
+	}
+
+	@Test
+	void lastStatementPageHasNoCursor() {
+		when(ledgerEntryRepository.findByCustomerIdOrderByEntryIdDesc(eq(CUSTOMER_ID), any(Pageable.class)))
+			.thenReturn(List.of(entry(3L)));
+
+		assertThat(ledgerService.getStatement(CUSTOMER_ID, null, 2).getNextCursor()).isNull();
+	}
+
+	@Test
+	void snapshotsOnlyFoldEntriesOlderThanTheSettleWindow() {
+		ledgerService.advanceSnapshots();
+
+		ArgumentCaptor<LocalDateTime> settledBefore = ArgumentCaptor.forClass(LocalDateTime.class);
+		ArgumentCaptor<LocalDateTime> now = ArgumentCaptor.forClass(LocalDateTime.class);
+		verify(snapshotRepository).advanceSnapshots(settledBefore.capture(), now.capture());
+		assertThat(Duration.between(settledBefore.getValue(), now.getValue())).isEqualTo(Duration.ofSeconds(30));
+	}
+
+	@Test
+	void columnModeNeverAdvancesSnapshots() {
+		ReflectionTestUtils.setField(ledgerService, "balanceMode", "column");
+
+		ledgerService.advanceSnapshots();
+
+		verifyNoInteractions(snapshotRepository);
+		verify(ledgerEntryRepository, never()).lockCustomerLedger(anyLong());
+	}
+
+	private static BalanceLedgerEntry entry(Long entryId) {
+		BalanceLedgerEntry entry = new BalanceLedgerEntry();
+		entry.setEntryId(entryId);
+		entry.setCustomerId(CUSTOMER_ID);
+		return entry;
+	}
+}
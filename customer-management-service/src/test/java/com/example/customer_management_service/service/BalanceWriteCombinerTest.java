@@ -0,0 +1,184 @@
+package com.example.customer_management_service.service;
+
+import com.example.customer_management_service.model.LedgerEntryType;
+import com.example.customer_management_service.service.BalanceWriteCombiner.Outcome;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class BalanceWriteCombinerTest {
+
+	// customer_id -> {available_balance, version}; customer 3 does not exist.
+	private static final Map<Long, long[]> CUSTOMERS = Map.of(
+		1L, new long[] { 100, 7 },
+		2L, new long[] { 50, 3 },
+		4L, new long[] { 0, 0 });
+
+	private JdbcTemplate jdbcTemplate;
+	private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+	private TransactionTemplate transactionTemplate;
+	private BalanceCache balanceCache;
+	private SimpleMeterRegistry meterRegistry;
+	private BalanceWriteCombiner combiner;
+	private ExecutorService callers;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		jdbcTemplate = mock(JdbcTemplate.class);
+		namedParameterJdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+		transactionTemplate = mock(TransactionTemplate.class);
+		balanceCache = mock(BalanceCache.class);
+		meterRegistry = new SimpleMeterRegistry();
+
+		when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+			invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+		doAnswer(invocation -> {
+			SqlParameterSource parameters = invocation.getArgument(1);
+			RowCallbackHandler handler = invocation.getArgument(2);
+			for (Object customerId : (List<?>) parameters.getValue("customerIds")) {
+				long[] row = CUSTOMERS.get((Long) customerId);
+				if (row != null) {
+					handler.processRow(customerRow((Long) customerId, row));
+				}
+			}
+			return null;
+		}).when(namedParameterJdbcTemplate).query(anyString(), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+
+		combiner = new BalanceWriteCombiner();
+		ReflectionTestUtils.setField(combiner, "jdbcTemplate", jdbcTemplate);
+		ReflectionTestUtils.setField(combiner, "namedParameterJdbcTemplate", namedParameterJdbcTemplate);
+		ReflectionTestUtils.setField(combiner, "transactionTemplate", transactionTemplate);
+		ReflectionTestUtils.setField(combiner, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(combiner, "balanceCache", balanceCache);
+		ReflectionTestUtils.setField(combiner, "balanceMode", "combined");
+		// A wide window so that the concurrent callers below land in one batch.
+		ReflectionTestUtils.setField(combiner, "windowMs", 500L);
+		ReflectionTestUtils.setField(combiner, "maxBatchSize", 4);
+		ReflectionTestUtils.setField(combiner, "applyTimeoutMs", 5000L);
+		combiner.start();
+
+		callers = Executors.newFixedThreadPool(4);
+	}
+
+	@AfterEach
+	void tearDown() throws InterruptedException {
+		callers.shutdownNow();
+		combiner.stop();
+	}
+
+	@Test
+	void eachMutationGetsItsOwnOutcome() throws Exception {
+		Future<Outcome> debit = apply(1L, LedgerEntryType.DEBIT, 30);
+		Future<Outcome> overdraft = apply(2L, LedgerEntryType.DEBIT, 80);
+		Future<Outcome> missing = apply(3L, LedgerEntryType.DEBIT, 10);
+		Future<Outcome> credit = apply(4L, LedgerEntryType.CREDIT, 25);
+
+		assertThat(debit.get(5, TimeUnit.SECONDS)).isEqualTo(new Outcome(true, true, 70));
+		assertThat(overdraft.get(5, TimeUnit.SECONDS)).isEqualTo(new Outcome(true, false, 50));
+		assertThat(missing.get(5, TimeUnit.SECONDS)).isEqualTo(new Outcome(false, false, null));
+		assertThat(credit.get(5, TimeUnit.SECONDS)).isEqualTo(new Outcome(true, true, 25));
+
+		assertThat(meterRegistry.get("customer.balance.combiner.batch.size").summary().count()).isEqualTo(1);
+
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<List<Object[]>> balanceRows = ArgumentCaptor.forClass(List.class);
+		verify(jdbcTemplate).batchUpdate(startsWith("UPDATE customers"), balanceRows.capture());
+		assertThat(balanceRows.getValue()).containsExactlyInAnyOrder(new Object[] { 70, 1L }, new Object[] { 25, 4L });
+
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<List<Object[]>> ledgerRows = ArgumentCaptor.forClass(List.class);
+		verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO balance_ledger_entries"), ledgerRows.capture());
+		assertThat(ledgerRows.getValue()).extracting(row -> row[0] + ":" + row[1] + ":" + row[2])
+			.containsExactlyInAnyOrder("1:DEBIT:-30", "4:CREDIT:25");
+
+		verify(balanceCache).put(1L, 70, 8L);
+		verify(balanceCache).put(4L, 25, 1L);
+		verify(balanceCache, never()).put(eq(2L), any(), any());
+	}
+
+	@Test
+	void laterDebitInTheBatchSeesTheEarlierOne() throws Exception {
+		Future<Outcome> first = apply(1L, LedgerEntryType.DEBIT, 60);
+		Future<Outcome> second = apply(1L, LedgerEntryType.DEBIT, 60);
+
+		// Whichever arrived first is applied; the other sees 40 left and is rejected.
+		assertThat(List.of(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS)))
+			.containsExactlyInAnyOrder(new Outcome(true, true, 40), new Outcome(true, false, 40));
+
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<List<Object[]>> balanceRows = ArgumentCaptor.forClass(List.class);
+		verify(jdbcTemplate).batchUpdate(startsWith("UPDATE customers"), balanceRows.capture());
+		assertThat(balanceRows.getValue()).containsExactly(new Object[] { 40, 1L });
+		verify(balanceCache).put(1L, 40, 8L);
+	}
+
+	@Test
+	void failedTransactionFailsEveryMutationOfTheBatch() {
+		CannotCreateTransactionException databaseDown = new CannotCreateTransactionException("database down");
+		doThrow(databaseDown).when(transactionTemplate).execute(any());
+
+		Future<Outcome> debit = apply(1L, LedgerEntryType.DEBIT, 30);
+		Future<Outcome> credit = apply(4L, LedgerEntryType.CREDIT, 25);
+
+		for (Future<Outcome> outcome : List.of(debit, credit)) {
+			assertThatThrownBy(() -> outcome.get(5, TimeUnit.SECONDS))
+				.isInstanceOf(ExecutionException.class)
+				.hasCause(databaseDown);
+		}
+		verifyNoInteractions(jdbcTemplate, balanceCache);
+	}
+
+	@Test
+	void applyIsRejectedOnceStopped() throws InterruptedException {
+		combiner.stop();
+
+		assertThatThrownBy(() -> combiner.apply(1L, LedgerEntryType.DEBIT, 30, "after stop"))
+			.isInstanceOf(IllegalStateException.class)
+			.hasMessageContaining("not running");
+	}
+
+	private Future<Outcome> apply(Long customerId, LedgerEntryType entryType, int amount) {
+		return callers.submit(() -> combiner.apply(customerId, entryType, amount, entryType + " " + amount));
+	}
+
+	private static ResultSet customerRow(Long customerId, long[] row) throws Exception {
+		ResultSet resultSet = mock(ResultSet.class);
+		when(resultSet.getLong("customer_id")).thenReturn(customerId);
+		when(resultSet.getInt("available_balance")).thenReturn((int) row[0]);
+		when(resultSet.getLong("version")).thenReturn(row[1]);
+		return resultSet;
+	}
+}
@@ -0,0 +1,143 @@
+package com.example.customer_management_service.service;
+
+import com.example.customer_management_service.dto.BalanceVersion;
+import com.example.customer_management_service.model.BalanceLedgerEntry;
+import com.example.customer_management_service.model.LedgerEntryType;
+import com.example.customer_management_service.repository.CustomerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Column mode: a debit is one conditional UPDATE ... RETURNING, and the row it returns is written
+// through to the balance cache.
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CustomerServiceTest {
+
+	private static final Long CUSTOMER_ID = 1L;
+
+	@Mock
+	private CustomerRepository customerRepository;
+
+	@Mock
+	private BalanceLedgerService balanceLedgerService;
+
+	@Mock
+	private TransactionTemplate transactionTemplate;
+
+	@Mock
+	private BalanceCache balanceCache;
+
+	@InjectMocks
+	private CustomerService customerService;
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(customerService, "balanceMode", "column");
+		when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+			invocation.getArgument(0, TransactionCallback.class).doInTransaction(null));
+		when(balanceLedgerService.findByReference(anyLong(), any(), any())).thenReturn(Optional.empty());
+	}
+
+	@Test
+	void debitIsOneConditionalUpdateWrittenThroughToTheCache() {
+		when(customerRepository.debitBalance(CUSTOMER_ID, 300)).thenReturn(Optional.of(balance(700, 4L)));
+
+		assertThat(customerService.debitCustomerBalance(CUSTOMER_ID, 300, "Tuition", "PAYMENT-SAGA-42")).isEqualTo(700);
+
+		verify(balanceLedgerService).append(CUSTOMER_ID, LedgerEntryType.DEBIT, 300, "Tuition", "PAYMENT-SAGA-42");
+		verify(balanceCache).put(CUSTOMER_ID, 700, 4L);
+		verify(customerRepository, never()).findByCustomerId(anyLong());
+	}
+
+	@Test
+	void debitThatMatchesNoRowReportsTheCurrentBalance() {
+		when(customerRepository.debitBalance(CUSTOMER_ID, 300)).thenReturn(Optional.empty());
+		when(customerRepository.findBalanceVersion(CUSTOMER_ID)).thenReturn(Optional.of(balance(200, 3L)));
+
+		assertThatThrownBy(() -> customerService.debitCustomerBalance(CUSTOMER_ID, 300, "Tuition"))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("Insufficient balance to perform the debit. Required 300, available 200.");
+		verify(balanceLedgerService, never()).append(anyLong(), any(), anyInt(), any(), any());
+		verify(balanceCache, never()).put(anyLong(), anyInt(), anyLong());
+	}
+
+	@Test
+	void debitOfAnUnknownCustomerReturnsNull() {
+		when(customerRepository.debitBalance(CUSTOMER_ID, 300)).thenReturn(Optional.empty());
+		when(customerRepository.findBalanceVersion(CUSTOMER_ID)).thenReturn(Optional.empty());
+
+		assertThat(customerService.debitCustomerBalance(CUSTOMER_ID, 300, "Tuition")).isNull();
+	}
+
+	@Test
+	void repeatedReferenceIsNotDebitedTwice() {
+		when(balanceLedgerService.findByReference(CUSTOMER_ID, LedgerEntryType.DEBIT, "PAYMENT-SAGA-42"))
+			.thenReturn(Optional.of(entry(-300)));
+		when(balanceCache.isEnabled()).thenReturn(true);
+		when(balanceCache.get(CUSTOMER_ID)).thenReturn(700);
+
+		assertThat(customerService.debitCustomerBalance(CUSTOMER_ID, 300, "Tuition", "PAYMENT-SAGA-42")).isEqualTo(700);
+		verify(customerRepository, never()).debitBalance(anyLong(), anyInt());
+	}
+
+	@Test
+	void referenceReusedForAnotherAmountIsRejected() {
+		when(balanceLedgerService.findByReference(CUSTOMER_ID, LedgerEntryType.DEBIT, "PAYMENT-SAGA-42"))
+			.thenReturn(Optional.of(entry(-300)));
+
+		assertThatThrownBy(() -> customerService.debitCustomerBalance(CUSTOMER_ID, 500, "Tuition", "PAYMENT-SAGA-42"))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageContaining("already used for a debit of 300");
+	}
+
+	@Test
+	void balanceMissIsReadThroughWithItsVersion() {
+		when(balanceCache.isEnabled()).thenReturn(true);
+		when(balanceCache.get(CUSTOMER_ID)).thenReturn(null);
+		when(customerRepository.findBalanceVersion(CUSTOMER_ID)).thenReturn(Optional.of(balance(900, 7L)));
+
+		assertThat(customerService.getAvailableBalance(CUSTOMER_ID)).isEqualTo(900);
+		verify(balanceCache).put(CUSTOMER_ID, 900, 7L);
+	}
+
+	private static BalanceVersion balance(Integer availableBalance, Long version) {
+		return new BalanceVersion() {
+			@Override
+			public Integer getAvailableBalance() {
+				return availableBalance;
+			}
+
+			@Override
+			public Long getVersion() {
+				return version;
+			}
+		};
+	}
+
+	private static BalanceLedgerEntry entry(int signedAmount) {
+		BalanceLedgerEntry entry = new BalanceLedgerEntry();
+		entry.setCustomerId(CUSTOMER_ID);
+		entry.setAmount(signedAmount);
+		return entry;
+	}
+}
@@ -0,0 +1,128 @@
+package com.example.customer_management_service.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class OptimisticBalanceRetryTest {
+
+	private SimpleMeterRegistry meterRegistry;
+	private TransactionTemplate transactionTemplate;
+	private OptimisticBalanceRetry retry;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		transactionTemplate = mock(TransactionTemplate.class);
+		when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+			invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
+		retry = new OptimisticBalanceRetry();
+		ReflectionTestUtils.setField(retry, "transactionTemplate", transactionTemplate);
+		ReflectionTestUtils.setField(retry, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(retry, "maxAttempts", 3);
+		ReflectionTestUtils.setField(retry, "baseBackoffMs", 1L);
+		ReflectionTestUtils.setField(retry, "maxBackoffMs", 5L);
+	}
+
+	@AfterEach
+	void tearDown() {
+		TransactionSynchronizationManager.setActualTransactionActive(false);
+	}
+
+	@Test
+	void retriesConflictsUntilAnAttemptSucceeds() {
+		AtomicInteger attempts = new AtomicInteger();
+
+		Integer balance = retry.execute("debit", () -> {
+			if (attempts.incrementAndGet() < 3) {
+				throw new OptimisticLockingFailureException("version changed");
+			}
+			return 900;
+		});
+
+		assertThat(balance).isEqualTo(900);
+		assertThat(attempts).hasValue(3);
+		assertThat(count("customer.balance.optimistic.conflicts", "debit")).isEqualTo(2);
+		assertThat(count("customer.balance.optimistic.retries", "debit")).isEqualTo(2);
+		assertThat(meterRegistry.find("customer.balance.optimistic.exhausted").counter()).isNull();
+	}
+
+	@Test
+	void rethrowsTheConflictOnceAttemptsAreExhausted() {
+		AtomicInteger attempts = new AtomicInteger();
+		OptimisticLockingFailureException conflict = new OptimisticLockingFailureException("version changed");
+
+		assertThatThrownBy(() -> retry.execute("credit", () -> {
+			attempts.incrementAndGet();
+			throw conflict;
+		})).isSameAs(conflict);
+
+		assertThat(attempts).hasValue(3);
+		assertThat(count("customer.balance.optimistic.conflicts", "credit")).isEqualTo(3);
+		assertThat(count("customer.balance.optimistic.retries", "credit")).isEqualTo(2);
+		assertThat(count("customer.balance.optimistic.exhausted", "credit")).isEqualTo(1);
+	}
+
+	@Test
+	void backoffNeverExceedsTheConfiguredMaximum() {
+		// Uncapped, the first backoff alone could sleep up to a second.
+		ReflectionTestUtils.setField(retry, "maxAttempts", 5);
+		ReflectionTestUtils.setField(retry, "baseBackoffMs", 1000L);
+		ReflectionTestUtils.setField(retry, "maxBackoffMs", 20L);
+
+		long startNanos = System.nanoTime();
+		assertThatThrownBy(() -> retry.execute("hold", () -> {
+			throw new OptimisticLockingFailureException("version changed");
+		})).isInstanceOf(OptimisticLockingFailureException.class);
+
+		assertThat((System.nanoTime() - startNanos) / 1_000_000).isLessThan(500);
+		assertThat(count("customer.balance.optimistic.retries", "hold")).isEqualTo(4);
+	}
+
+	@Test
+	void otherFailuresAreNotRetried() {
+		AtomicInteger attempts = new AtomicInteger();
+
+		assertThatThrownBy(() -> retry.execute("debit", () -> {
+			attempts.incrementAndGet();
+			throw new IllegalArgumentException("Insufficient balance.");
+		})).isInstanceOf(IllegalArgumentException.class);
+
+		assertThat(attempts).hasValue(1);
+		assertThat(meterRegistry.find("customer.balance.optimistic.conflicts").counter()).isNull();
+	}
+
+	@Test
+	void nestedCallRunsOnceInsideTheCallersTransaction() {
+		TransactionSynchronizationManager.setActualTransactionActive(true);
+		AtomicInteger attempts = new AtomicInteger();
+
+		assertThatThrownBy(() -> retry.execute("release", () -> {
+			attempts.incrementAndGet();
+			throw new OptimisticLockingFailureException("version changed");
+		})).isInstanceOf(OptimisticLockingFailureException.class);
+
+		assertThat(attempts).hasValue(1);
+		verifyNoInteractions(transactionTemplate);
+	}
+
+	private double count(String name, String operation) {
+		return meterRegistry.get(name).tag("operation", operation).counter().count();
+	}
+}
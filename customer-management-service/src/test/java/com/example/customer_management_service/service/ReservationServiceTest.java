@@ -0,0 +1,190 @@
+package com.example.customer_management_service.service;
+
+import com.example.customer_management_service.model.FundReservation;
+import com.example.customer_management_service.model.ReservationStatus;
+import com.example.customer_management_service.repository.FundReservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReservationServiceTest {
+
+	private static final Long CUSTOMER_ID = 1L;
+	private static final String REFERENCE = "TUITION-9";
+	private static final String CHARGE_REFERENCE = "PAYMENT-SAGA-42";
+
+	@Mock
+	private FundReservationRepository reservationRepository;
+
+	@Mock
+	private CustomerService customerService;
+
+	@Mock
+	private OptimisticBalanceRetry optimisticBalanceRetry;
+
+	@InjectMocks
+	private ReservationService reservationService;
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(reservationService, "defaultTtlSeconds", 600L);
+		ReflectionTestUtils.setField(reservationService, "maxTtlSeconds", 3600L);
+		ReflectionTestUtils.setField(reservationService, "sweepBatchSize", 100);
+		lenient().when(optimisticBalanceRetry.execute(anyString(), any()))
+			.thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+		lenient().when(reservationRepository.save(any(FundReservation.class)))
+			.thenAnswer(invocation -> invocation.getArgument(0));
+	}
+
+	@Test
+	void holdTakesTheAmountOffTheBalance() {
+		when(reservationRepository.findByCustomerIdAndReferenceAndStatus(CUSTOMER_ID, REFERENCE, ReservationStatus.HELD))
+			.thenReturn(Optional.empty());
+		when(customerService.debitCustomerBalance(CUSTOMER_ID, 500, "Hold for " + REFERENCE)).thenReturn(1500);
+
+		FundReservation reservation = reservationService.hold(CUSTOMER_ID, REFERENCE, 500, null);
+
+		assertThat(reservation.getStatus()).isEqualTo(ReservationStatus.HELD);
+		assertThat(reservation.getAmount()).isEqualTo(500);
+		assertThat(reservation.getExpiresAt()).isEqualTo(reservation.getCreatedAt().plusSeconds(600));
+	}
+
+	@Test
+	void holdingTheSameReferenceAgainOnlyExtendsIt() {
+		FundReservation existing = held(now().plusSeconds(30));
+		when(reservationRepository.findByCustomerIdAndReferenceAndStatus(CUSTOMER_ID, REFERENCE, ReservationStatus.HELD))
+			.thenReturn(Optional.of(existing));
+
+		FundReservation reservation = reservationService.hold(CUSTOMER_ID, REFERENCE, 500, 7200L);
+
+		assertThat(reservation.getExpiresAt()).isAfter(now().plusSeconds(3000));
+		verifyNoInteractions(customerService);
+	}
+
+	@Test
+	void holdForADifferentAmountIsRejected() {
+		when(reservationRepository.findByCustomerIdAndReferenceAndStatus(CUSTOMER_ID, REFERENCE, ReservationStatus.HELD))
+			.thenReturn(Optional.of(held(now().plusSeconds(30))));
+
+		assertThatThrownBy(() -> reservationService.hold(CUSTOMER_ID, REFERENCE, 700, null))
+			.isInstanceOf(IllegalArgumentException.class);
+		verifyNoInteractions(customerService);
+	}
+
+	@Test
+	void captureSettlesAHoldPastItsExpiryThatWasNotSweptYet() {
+		FundReservation expired = held(now().minusMinutes(5));
+		when(reservationRepository.findByCustomerIdAndCaptureKey(CUSTOMER_ID, CHARGE_REFERENCE)).thenReturn(Optional.empty());
+		when(reservationRepository.findByCustomerIdAndReferenceAndStatus(CUSTOMER_ID, REFERENCE, ReservationStatus.HELD))
+			.thenReturn(Optional.of(expired));
+		when(reservationRepository.captureHeld(eq(expired.getReservationId()), eq(CHARGE_REFERENCE), any())).thenReturn(1);
+
+		FundReservation captured = reservationService.capture(CUSTOMER_ID, REFERENCE, 500, CHARGE_REFERENCE);
+
+		assertThat(captured.getStatus()).isEqualTo(ReservationStatus.CAPTURED);
+		assertThat(captured.getCaptureKey()).isEqualTo(CHARGE_REFERENCE);
+		verifyNoInteractions(customerService);
+	}
+
+	@Test
+	void captureFindsNothingOnceTheSweeperHasReleasedTheHold() {
+		FundReservation expired = held(now().minusMinutes(5));
+		when(reservationRepository.findByCustomerIdAndCaptureKey(CUSTOMER_ID, CHARGE_REFERENCE)).thenReturn(Optional.empty());
+		when(reservationRepository.findByCustomerIdAndReferenceAndStatus(CUSTOMER_ID, REFERENCE, ReservationStatus.HELD))
+			.thenReturn(Optional.of(expired));
+		when(reservationRepository.captureHeld(eq(expired.getReservationId()), eq(CHARGE_REFERENCE), any())).thenReturn(0);
+
+		assertThat(reservationService.capture(CUSTOMER_ID, REFERENCE, 500, CHARGE_REFERENCE)).isNull();
+	}
+
+	@Test
+	void repeatedCaptureReturnsTheReservationItCapturedBefore() {
+		FundReservation captured = held(now().plusSeconds(30));
+		captured.setStatus(ReservationStatus.CAPTURED);
+		captured.setCaptureKey(CHARGE_REFERENCE);
+		when(reservationRepository.findByCustomerIdAndCaptureKey(CUSTOMER_ID, CHARGE_REFERENCE)).thenReturn(Optional.of(captured));
+
+		assertThat(reservationService.capture(CUSTOMER_ID, REFERENCE, 500, CHARGE_REFERENCE)).isSameAs(captured);
+		verify(reservationRepository, never()).captureHeld(anyLong(), anyString(), any());
+	}
+
+	@Test
+	void captureOfADifferentAmountIsRejected() {
+		when(reservationRepository.findByCustomerIdAndCaptureKey(CUSTOMER_ID, CHARGE_REFERENCE)).thenReturn(Optional.empty());
+		when(reservationRepository.findByCustomerIdAndReferenceAndStatus(CUSTOMER_ID, REFERENCE, ReservationStatus.HELD))
+			.thenReturn(Optional.of(held(now().plusSeconds(30))));
+
+		assertThatThrownBy(() -> reservationService.capture(CUSTOMER_ID, REFERENCE, 400, CHARGE_REFERENCE))
+			.isInstanceOf(IllegalArgumentException.class);
+		verify(reservationRepository, never()).captureHeld(anyLong(), anyString(), any());
+	}
+
+	@Test
+	void expiryCreditsTheHeldAmountBack() {
+		FundReservation expired = held(now().minusMinutes(5));
+		when(reservationRepository.findExpiredHeldIds(any(LocalDateTime.class), any(Pageable.class)))
+			.thenReturn(List.of(expired.getReservationId()));
+		when(reservationRepository.findById(expired.getReservationId())).thenReturn(Optional.of(expired));
+		when(reservationRepository.settleHeld(eq(expired.getReservationId()), eq(ReservationStatus.EXPIRED), any())).thenReturn(1);
+
+		reservationService.expireHolds();
+
+		verify(customerService).creditCustomerBalance(CUSTOMER_ID, 500, "Expired hold for " + REFERENCE);
+		assertThat(expired.getStatus()).isEqualTo(ReservationStatus.EXPIRED);
+	}
+
+	@Test
+	void expiryThatLostToACaptureCreditsNothing() {
+		FundReservation expired = held(now().minusMinutes(5));
+		when(reservationRepository.findExpiredHeldIds(any(LocalDateTime.class), any(Pageable.class)))
+			.thenReturn(List.of(expired.getReservationId()));
+		when(reservationRepository.findById(expired.getReservationId())).thenReturn(Optional.of(expired));
+		when(reservationRepository.settleHeld(eq(expired.getReservationId()), eq(ReservationStatus.EXPIRED), any())).thenReturn(0);
+
+		reservationService.expireHolds();
+
+		verify(customerService, never()).creditCustomerBalance(anyLong(), anyInt(), anyString());
+	}
+
+	// Same clock as the service, so expiry comparisons do not depend on the JVM's zone.
+	private static LocalDateTime now() {
+		return LocalDateTime.now(ZoneId.of("Asia/Ho_Chi_Minh"));
+	}
+
+	private static FundReservation held(LocalDateTime expiresAt) {
+		FundReservation reservation = new FundReservation();
+		reservation.setReservationId(11L);
+		reservation.setCustomerId(CUSTOMER_ID);
+		reservation.setReference(REFERENCE);
+		reservation.setAmount(500);
+		reservation.setStatus(ReservationStatus.HELD);
+		reservation.setCreatedAt(expiresAt.minusMinutes(10));
+		reservation.setExpiresAt(expiresAt);
+		return reservation;
+	}
+}
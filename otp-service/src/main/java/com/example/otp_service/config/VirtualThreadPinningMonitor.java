@@ -0,0 +1,54 @@
+package com.example.otp_service.config;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.stream.Collectors;
+
+// Diagnostic for virtual-thread mode, off unless virtual-threads.pinning.enabled is set as well.
+// Logs JFR jdk.VirtualThreadPinned events, i.e. blocking inside synchronized code (JDBC, SMTP, ...).
+// Every service carries the same copy; only the package line differs.
+@Component
+@ConditionalOnProperty(name = {"spring.threads.virtual.enabled", "virtual-threads.pinning.enabled"}, havingValue = "true")
+public class VirtualThreadPinningMonitor {
+
+    private static final int STACK_DEPTH = 8;
+
+    @Value("${virtual-threads.pinning.threshold-ms:20}")
+    private long pinningThresholdMs;
+
+    private RecordingStream recordingStream;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        recordingStream = new RecordingStream();
+        recordingStream.enable("jdk.VirtualThreadPinned")
+            .withThreshold(Duration.ofMillis(pinningThresholdMs))
+            .withStackTrace();
+        recordingStream.onEvent("jdk.VirtualThreadPinned", this::reportPinnedThread);
+        recordingStream.startAsync();
+    }
+
+    private void reportPinnedThread(RecordedEvent event) {
+        String stack = event.getStackTrace() == null ? "<no stack trace>" :
+            event.getStackTrace().getFrames().stream()
+                .limit(STACK_DEPTH)
+                .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber())
+                .collect(Collectors.joining("\n    at "));
+        System.err.println("WARNING: Virtual thread pinned to its carrier for " + event.getDuration().toMillis() + " ms:\n    at " + stack);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+}
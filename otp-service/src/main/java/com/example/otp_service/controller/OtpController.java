@@ -34,14 +34,16 @@ public class OtpController {
         @RequestHeader(CUSTOMER_ID_HEADER) String customerIdHeader,
         @RequestBody OtpGenerateRequest request) 
     {
-        if (request.getTuitionId() == null) {
-            return ResponseEntity.badRequest().body(GenericResponse.failure("Invalid request: tuitionId is required."));
+        if (request.getTuitionId() == null && request.getReference() == null) {
+            return ResponseEntity.badRequest().body(GenericResponse.failure("Invalid request: tuitionId or reference is required."));
         }
         
         try {
             Long customerId = getCustomerId(customerIdHeader);
 
-            OtpService.OtpResult result = otpService.getOrCreateOtp(customerId, request.getTuitionId(), false);
+            OtpService.OtpResult result = request.getReference() != null
+                ? otpService.getOrCreateOtp(customerId, request.getReference(), false)
+                : otpService.getOrCreateOtp(customerId, request.getTuitionId(), false);
 
             Map<String, String> data = Map.of(
                 "otpCode", result.otpCode,
@@ -62,14 +64,16 @@ public class OtpController {
         @RequestHeader(CUSTOMER_ID_HEADER) String customerIdHeader,
         @RequestBody OtpGenerateRequest request) 
     {
-        if (request.getTuitionId() == null) {
-            return ResponseEntity.badRequest().body(GenericResponse.failure("Invalid request: tuitionId is required."));
+        if (request.getTuitionId() == null && request.getReference() == null) {
+            return ResponseEntity.badRequest().body(GenericResponse.failure("Invalid request: tuitionId or reference is required."));
         }
         
         try {
             Long customerId = getCustomerId(customerIdHeader);
             
-            OtpService.OtpResult result = otpService.getOrCreateOtp(customerId, request.getTuitionId(), true);
+            OtpService.OtpResult result = request.getReference() != null
+                ? otpService.getOrCreateOtp(customerId, request.getReference(), true)
+                : otpService.getOrCreateOtp(customerId, request.getTuitionId(), true);
 
             Map<String, String> data = Map.of(
                 "otpCode", result.otpCode,
@@ -91,14 +95,16 @@ public class OtpController {
         @RequestHeader(CUSTOMER_ID_HEADER) String customerIdHeader,
         @RequestBody OtpValidateRequest request) 
     {
-        if (request.getTuitionId() == null || request.getOtpCode() == null) {
-            return ResponseEntity.badRequest().body(GenericResponse.failure("Invalid request: tuitionId and otpCode are required."));
+        if ((request.getTuitionId() == null && request.getReference() == null) || request.getOtpCode() == null) {
+            return ResponseEntity.badRequest().body(GenericResponse.failure("Invalid request: tuitionId (or reference) and otpCode are required."));
         }
         
         try {
             Long customerId = getCustomerId(customerIdHeader);
 
-            boolean isValid = otpService.validateOtp(customerId, request.getTuitionId(), request.getOtpCode());
+            boolean isValid = request.getReference() != null
+                ? otpService.validateOtp(customerId, request.getReference(), request.getOtpCode())
+                : otpService.validateOtp(customerId, request.getTuitionId(), request.getOtpCode());
 
             if (isValid) {
                 return ResponseEntity.ok(GenericResponse.success("OTP validated successfully."));
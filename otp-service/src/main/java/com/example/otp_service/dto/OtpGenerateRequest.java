@@ -9,4 +9,6 @@ import lombok.AllArgsConstructor;
 @AllArgsConstructor
 public class OtpGenerateRequest {
     private Long tuitionId;
+    // Optional; when set the OTP covers this reference (e.g. a batch of tuitions) instead of a single tuitionId.
+    private String reference;
 }
\ No newline at end of file
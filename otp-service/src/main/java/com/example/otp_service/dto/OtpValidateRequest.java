@@ -9,5 +9,7 @@ import lombok.AllArgsConstructor;
 @AllArgsConstructor
 public class OtpValidateRequest {
     private Long tuitionId;
+    // Optional; when set the OTP covers this reference (e.g. a batch of tuitions) instead of a single tuitionId.
+    private String reference;
     private String otpCode;
 }
\ No newline at end of file
@@ -30,14 +30,25 @@ public class OtpService {
         return String.format("%s:%d:%d", OTP_KEY_PREFIX, customerId, tuitionId);
     }
 
+    // Reference keys live in their own namespace so they can never collide with a tuitionId key.
+    private String buildKey(Long customerId, String reference) {
+        return String.format("%s:%d:REF:%s", OTP_KEY_PREFIX, customerId, reference);
+    }
+
     private String generateRandomOtp() {
         return String.format("%06d", new Random().nextInt(1000000));
     }
     
 
     public OtpResult getOrCreateOtp(Long customerId, Long tuitionId, boolean isResend) {
-        String key = buildKey(customerId, tuitionId);
-        
+        return getOrCreateOtpForKey(buildKey(customerId, tuitionId), isResend);
+    }
+
+    public OtpResult getOrCreateOtp(Long customerId, String reference, boolean isResend) {
+        return getOrCreateOtpForKey(buildKey(customerId, reference), isResend);
+    }
+
+    private OtpResult getOrCreateOtpForKey(String key, boolean isResend) {
         if (isResend) {
             redisTemplate.delete(key);
             String newOtp = generateAndSaveOtp(key);
@@ -66,7 +77,14 @@ public class OtpService {
     }
 
     public boolean validateOtp(Long customerId, Long tuitionId, String otpCode) {
-        String key = buildKey(customerId, tuitionId);
+        return validateOtpForKey(buildKey(customerId, tuitionId), otpCode);
+    }
+
+    public boolean validateOtp(Long customerId, String reference, String otpCode) {
+        return validateOtpForKey(buildKey(customerId, reference), otpCode);
+    }
+
+    private boolean validateOtpForKey(String key, String otpCode) {
         String storedOtp = redisTemplate.opsForValue().get(key);
 
         if (storedOtp != null && storedOtp.equals(otpCode)) {
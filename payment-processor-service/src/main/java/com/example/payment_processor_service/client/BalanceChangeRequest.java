@@ -0,0 +1,7 @@
+package com.example.payment_processor_service.client;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// reference makes the change apply at most once in customer-management-service.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BalanceChangeRequest(Integer amount, String description, String reference) {}
@@ -0,0 +1,140 @@
+package com.example.payment_processor_service.client;
+
+import com.example.payment_processor_service.dto.CustomerContact;
+import com.example.payment_processor_service.dto.GenericResponse;
+import com.example.payment_processor_service.service.DownstreamGuard;
+import com.example.payment_processor_service.service.DownstreamServerException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+// Typed client for customer-management-service.
+@Component
+public class CustomerClient {
+
+    private static final String CUSTOMER_SERVICE_BASE_URL = "http://customer-management-service:8082";
+
+    private static final ParameterizedTypeReference<GenericResponse<CustomerContact>> CONTACT_RESPONSE = new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<GenericResponse<Integer>> BALANCE_RESPONSE = new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<GenericResponse<FundHold>> HOLD_RESPONSE = new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<GenericResponse<Void>> ERROR_RESPONSE = new ParameterizedTypeReference<>() {};
+
+    @Autowired
+    @Qualifier("customerWebClient")
+    private WebClient customerWebClient;
+
+    // Longer response timeout for debit, credit, capture and release; see WebClientConfig.
+    @Autowired
+    @Qualifier("customerWriteWebClient")
+    private WebClient customerWriteWebClient;
+
+    @Autowired
+    private DownstreamGuard downstreamGuard;
+
+    public Mono<GenericResponse<CustomerContact>> getContact(Long customerId) {
+        return customerWebClient.get()
+            .uri(CUSTOMER_SERVICE_BASE_URL + "/contact")
+            .header("X-Customer-Id", String.valueOf(customerId))
+            .retrieve()
+            .onStatus(HttpStatusCode::isError, clientResponse ->
+                clientResponse.bodyToMono(ERROR_RESPONSE)
+                    .flatMap(response -> Mono.error(DownstreamServerException.forStatus(clientResponse.statusCode(), "Customer Contact Fetch Failed: " + response.getMessage())))
+            )
+            .bodyToMono(CONTACT_RESPONSE)
+            .transform(downstreamGuard.<GenericResponse<CustomerContact>>protect("customer"));
+    }
+
+    public Mono<GenericResponse<Integer>> getBalance(Long customerId) {
+        return customerWebClient.get()
+            .uri(CUSTOMER_SERVICE_BASE_URL + "/balance")
+            .header("X-Customer-Id", String.valueOf(customerId))
+            .retrieve()
+            .onStatus(HttpStatusCode::isError, clientResponse ->
+                clientResponse.bodyToMono(ERROR_RESPONSE)
+                    .flatMap(response -> Mono.error(DownstreamServerException.forStatus(clientResponse.statusCode(), "Customer Balance Fetch Failed: " + response.getMessage())))
+            )
+            .bodyToMono(BALANCE_RESPONSE)
+            .transform(downstreamGuard.<GenericResponse<Integer>>protect("customer"));
+    }
+
+    public Mono<GenericResponse<Integer>> debit(Long customerId, BalanceChangeRequest request) {
+        return changeBalance(customerId, "/balance/debit", request, "Customer Debit Failed");
+    }
+
+    public Mono<GenericResponse<Integer>> credit(Long customerId, BalanceChangeRequest request) {
+        return changeBalance(customerId, "/balance/credit", request, "Compensation Credit Failed");
+    }
+
+    public Mono<GenericResponse<FundHold>> holdFunds(Long customerId, ReservationRequest request) {
+        return customerWebClient.post()
+            .uri(CUSTOMER_SERVICE_BASE_URL + "/reservations")
+            .header("X-Customer-Id", String.valueOf(customerId))
+            .bodyValue(request)
+            .retrieve()
+            .onStatus(HttpStatusCode::isError, clientResponse ->
+                clientResponse.bodyToMono(ERROR_RESPONSE)
+                    .flatMap(response -> Mono.error(DownstreamServerException.forStatus(clientResponse.statusCode(), "Fund Hold Failed: " + response.getMessage())))
+            )
+            .bodyToMono(HOLD_RESPONSE)
+            .transform(downstreamGuard.<GenericResponse<FundHold>>protect("customer"));
+    }
+
+    // A 404 (no live hold for the reference) is returned as an unsuccessful response rather than an
+    // error, so the caller can fall back to a plain debit.
+    public Mono<GenericResponse<FundHold>> captureFunds(Long customerId, ReservationRequest request) {
+        return settleFunds(customerId, "/reservations/capture", request, "Fund Capture Failed");
+    }
+
+    // Whether anything was charged under a payment's charge reference; a 404 (nothing charged) is
+    // returned as an unsuccessful response.
+    public Mono<GenericResponse<Integer>> findCharge(Long customerId, String chargeReference) {
+        return customerWebClient.get()
+            .uri(CUSTOMER_SERVICE_BASE_URL + "/reservations/charges?reference={reference}", chargeReference)
+            .header("X-Customer-Id", String.valueOf(customerId))
+            .retrieve()
+            .onStatus(status -> status.value() == 404, clientResponse -> Mono.empty())
+            .onStatus(HttpStatusCode::isError, clientResponse ->
+                clientResponse.bodyToMono(ERROR_RESPONSE)
+                    .flatMap(response -> Mono.error(DownstreamServerException.forStatus(clientResponse.statusCode(), "Charge Lookup Failed: " + response.getMessage())))
+            )
+            .bodyToMono(BALANCE_RESPONSE)
+            .transform(downstreamGuard.<GenericResponse<Integer>>protect("customer"));
+    }
+
+    public Mono<GenericResponse<FundHold>> releaseFunds(Long customerId, ReservationRequest request) {
+        return settleFunds(customerId, "/reservations/release", request, "Fund Release Failed");
+    }
+
+    private Mono<GenericResponse<FundHold>> settleFunds(Long customerId, String path, ReservationRequest request, String failureStep) {
+        return customerWriteWebClient.post()
+            .uri(CUSTOMER_SERVICE_BASE_URL + path)
+            .header("X-Customer-Id", String.valueOf(customerId))
+            .bodyValue(request)
+            .retrieve()
+            .onStatus(status -> status.value() == 404, clientResponse -> Mono.empty())
+            .onStatus(HttpStatusCode::isError, clientResponse ->
+                clientResponse.bodyToMono(ERROR_RESPONSE)
+                    .flatMap(response -> Mono.error(DownstreamServerException.forStatus(clientResponse.statusCode(), failureStep + ": " + response.getMessage())))
+            )
+            .bodyToMono(HOLD_RESPONSE)
+            .transform(downstreamGuard.<GenericResponse<FundHold>>protect("customer"));
+    }
+
+    private Mono<GenericResponse<Integer>> changeBalance(Long customerId, String path, BalanceChangeRequest request, String failureStep) {
+        return customerWriteWebClient.post()
+            .uri(CUSTOMER_SERVICE_BASE_URL + path)
+            .header("X-Customer-Id", String.valueOf(customerId))
+            .bodyValue(request)
+            .retrieve()
+            .onStatus(HttpStatusCode::isError, clientResponse ->
+                clientResponse.bodyToMono(ERROR_RESPONSE)
+                    .flatMap(response -> Mono.error(DownstreamServerException.forStatus(clientResponse.statusCode(), failureStep + ": " + response.getMessage())))
+            )
+            .bodyToMono(BALANCE_RESPONSE)
+            .transform(downstreamGuard.<GenericResponse<Integer>>protect("customer"));
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.payment_processor_service.client;
+
+import java.time.LocalDateTime;
+
+// customer-management-service FundReservation.
+public record FundHold(
+    Long reservationId,
+    String reference,
+    Integer amount,
+    String status,
+    LocalDateTime expiresAt
+) {}
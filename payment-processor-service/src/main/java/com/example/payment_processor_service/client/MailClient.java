@@ -0,0 +1,42 @@
+package com.example.payment_processor_service.client;
+
+import com.example.payment_processor_service.dto.GenericResponse;
+import com.example.payment_processor_service.service.DownstreamGuard;
+import com.example.payment_processor_service.service.DownstreamServerException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+// Typed client for mail-service.
+@Component
+public class MailClient {
+
+    private static final String MAIL_SERVICE_BASE_URL = "http://mail-service:8086";
+
+    private static final ParameterizedTypeReference<GenericResponse<Void>> EMPTY_RESPONSE = new ParameterizedTypeReference<>() {};
+
+    @Autowired
+    @Qualifier("mailWebClient")
+    private WebClient mailWebClient;
+
+    @Autowired
+    private DownstreamGuard downstreamGuard;
+
+    public Mono<GenericResponse<Void>> send(Long customerId, SendMailRequest request) {
+        return mailWebClient.post()
+            .uri(MAIL_SERVICE_BASE_URL + "/send")
+            .header("X-Customer-Id", String.valueOf(customerId))
+            .bodyValue(request)
+            .retrieve()
+            .onStatus(HttpStatusCode::isError, clientResponse ->
+                clientResponse.bodyToMono(EMPTY_RESPONSE)
+                    .flatMap(response -> Mono.error(DownstreamServerException.forStatus(clientResponse.statusCode(), "Mail Service Failed: " + response.getMessage())))
+            )
+            .bodyToMono(EMPTY_RESPONSE)
+            .transform(downstreamGuard.<GenericResponse<Void>>protect("mail"));
+    }
+}
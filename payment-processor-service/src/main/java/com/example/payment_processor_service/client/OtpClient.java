@@ -0,0 +1,65 @@
+package com.example.payment_processor_service.client;
+
+import com.example.payment_processor_service.dto.GenericResponse;
+import com.example.payment_processor_service.service.DownstreamGuard;
+import com.example.payment_processor_service.service.DownstreamServerException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+// Typed client for otp-service.
+@Component
+public class OtpClient {
+
+    private static final String OTP_SERVICE_BASE_URL = "http://otp-service:8085";
+
+    private static final ParameterizedTypeReference<GenericResponse<OtpCode>> OTP_CODE_RESPONSE = new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<GenericResponse<Void>> EMPTY_RESPONSE = new ParameterizedTypeReference<>() {};
+
+    @Autowired
+    @Qualifier("otpWebClient")
+    private WebClient otpWebClient;
+
+    @Autowired
+    private DownstreamGuard downstreamGuard;
+
+    public Mono<GenericResponse<OtpCode>> generate(Long customerId, OtpRequest request) {
+        return requestOtp(customerId, "/generate", request);
+    }
+
+    public Mono<GenericResponse<OtpCode>> resend(Long customerId, OtpRequest request) {
+        return requestOtp(customerId, "/resend", request);
+    }
+
+    public Mono<GenericResponse<Void>> validate(Long customerId, OtpRequest request) {
+        return otpWebClient.post()
+            .uri(OTP_SERVICE_BASE_URL + "/validate")
+            .header("X-Customer-Id", String.valueOf(customerId))
+            .bodyValue(request)
+            .retrieve()
+            .onStatus(HttpStatusCode::isError, clientResponse ->
+                clientResponse.bodyToMono(EMPTY_RESPONSE)
+                    .flatMap(response -> Mono.error(DownstreamServerException.forStatus(clientResponse.statusCode(), "OTP Validation Failed: Invalid or expired OTP.")))
+            )
+            .bodyToMono(EMPTY_RESPONSE)
+            .transform(downstreamGuard.<GenericResponse<Void>>protect("otp"));
+    }
+
+    private Mono<GenericResponse<OtpCode>> requestOtp(Long customerId, String endpoint, OtpRequest request) {
+        return otpWebClient.post()
+            .uri(OTP_SERVICE_BASE_URL + endpoint)
+            .header("X-Customer-Id", String.valueOf(customerId))
+            .bodyValue(request)
+            .retrieve()
+            .onStatus(HttpStatusCode::isError, clientResponse ->
+                clientResponse.bodyToMono(EMPTY_RESPONSE)
+                    .flatMap(response -> Mono.error(DownstreamServerException.forStatus(clientResponse.statusCode(), "OTP Generation Failed: " + response.getMessage())))
+            )
+            .bodyToMono(OTP_CODE_RESPONSE)
+            .transform(downstreamGuard.<GenericResponse<OtpCode>>protect("otp"));
+    }
+}
@@ -0,0 +1,4 @@
+package com.example.payment_processor_service.client;
+
+// Data of otp-service /generate and /resend responses.
+public record OtpCode(String otpCode, String statusMessage) {}
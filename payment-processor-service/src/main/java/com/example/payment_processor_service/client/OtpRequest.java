@@ -0,0 +1,20 @@
+package com.example.payment_processor_service.client;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Either tuitionId or reference is set; the other one is left out of the JSON body.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record OtpRequest(Long tuitionId, String reference, String otpCode) {
+
+    public static OtpRequest forTuition(Long tuitionId) {
+        return new OtpRequest(tuitionId, null, null);
+    }
+
+    public static OtpRequest forReference(String reference) {
+        return new OtpRequest(null, reference, null);
+    }
+
+    public OtpRequest withOtpCode(String otpCode) {
+        return new OtpRequest(tuitionId, reference, otpCode);
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.payment_processor_service.client;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ReservationRequest(String reference, Integer amount, Long ttlSeconds, String captureKey) {}
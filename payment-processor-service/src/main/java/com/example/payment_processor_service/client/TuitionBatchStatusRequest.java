@@ -0,0 +1,5 @@
+package com.example.payment_processor_service.client;
+
+import java.util.List;
+
+public record TuitionBatchStatusRequest(List<Long> tuitionIds, Boolean isPaid) {}
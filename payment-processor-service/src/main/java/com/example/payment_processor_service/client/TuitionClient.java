@@ -0,0 +1,81 @@
+package com.example.payment_processor_service.client;
+
+import com.example.payment_processor_service.dto.GenericResponse;
+import com.example.payment_processor_service.service.DownstreamGuard;
+import com.example.payment_processor_service.service.DownstreamServerException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+// Typed client for tuition-service.
+@Component
+public class TuitionClient {
+
+    private static final String TUITION_SERVICE_BASE_URL = "http://tuition-service:8084";
+
+    private static final ParameterizedTypeReference<GenericResponse<TuitionDetails>> TUITION_RESPONSE = new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<GenericResponse<List<TuitionDetails>>> TUITIONS_RESPONSE = new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<GenericResponse<Void>> ERROR_RESPONSE = new ParameterizedTypeReference<>() {};
+
+    @Autowired
+    @Qualifier("tuitionWebClient")
+    private WebClient tuitionWebClient;
+
+    // Longer response timeout for the status updates; see WebClientConfig.
+    @Autowired
+    @Qualifier("tuitionWriteWebClient")
+    private WebClient tuitionWriteWebClient;
+
+    @Autowired
+    private DownstreamGuard downstreamGuard;
+
+    public Mono<GenericResponse<TuitionDetails>> getTuition(Long customerId, Long tuitionId) {
+        return tuitionWebClient.get()
+            .uri(TUITION_SERVICE_BASE_URL + "/id/{tuitionId}", tuitionId)
+            .header("X-Customer-Id", String.valueOf(customerId))
+            .retrieve()
+            .onStatus(HttpStatusCode::isError, clientResponse ->
+                clientResponse.bodyToMono(ERROR_RESPONSE)
+                    .flatMap(response -> {
+                        String message = response.getMessage() != null ? response.getMessage() : "Unknown error";
+                        return Mono.error(DownstreamServerException.forStatus(clientResponse.statusCode(), "Tuition Fetch Failed: " + message));
+                    })
+            )
+            .bodyToMono(TUITION_RESPONSE)
+            .transform(downstreamGuard.<GenericResponse<TuitionDetails>>protect("tuition"));
+    }
+
+    public Mono<GenericResponse<TuitionDetails>> updateStatus(Long customerId, TuitionStatusRequest request) {
+        return tuitionWriteWebClient.post()
+            .uri(TUITION_SERVICE_BASE_URL + "/status")
+            .header("X-Customer-Id", String.valueOf(customerId))
+            .bodyValue(request)
+            .retrieve()
+            .onStatus(HttpStatusCode::isError, clientResponse ->
+                clientResponse.bodyToMono(ERROR_RESPONSE)
+                    .flatMap(response -> Mono.error(DownstreamServerException.forStatus(clientResponse.statusCode(), "Tuition Update Failed: " + response.getMessage())))
+            )
+            .bodyToMono(TUITION_RESPONSE)
+            .transform(downstreamGuard.<GenericResponse<TuitionDetails>>protect("tuition"));
+    }
+
+    public Mono<GenericResponse<List<TuitionDetails>>> updateStatuses(Long customerId, TuitionBatchStatusRequest request) {
+        return tuitionWriteWebClient.post()
+            .uri(TUITION_SERVICE_BASE_URL + "/status/batch")
+            .header("X-Customer-Id", String.valueOf(customerId))
+            .bodyValue(request)
+            .retrieve()
+            .onStatus(HttpStatusCode::isError, clientResponse ->
+                clientResponse.bodyToMono(ERROR_RESPONSE)
+                    .flatMap(response -> Mono.error(DownstreamServerException.forStatus(clientResponse.statusCode(), "Tuition Update Failed: " + response.getMessage())))
+            )
+            .bodyToMono(TUITIONS_RESPONSE)
+            .transform(downstreamGuard.<GenericResponse<List<TuitionDetails>>>protect("tuition"));
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.payment_processor_service.client;
+
+// tuition-service StudentTuition, as returned by GET /id/{tuitionId} and the /status endpoints.
+public record TuitionDetails(
+    Long tuitionId,
+    String studentId,
+    String studentName,
+    Integer amount,
+    String semester,
+    String academicYear,
+    Boolean isPaid
+) {}
@@ -0,0 +1,3 @@
+package com.example.payment_processor_service.client;
+
+public record TuitionStatusRequest(Long tuitionId, Boolean isPaid) {}
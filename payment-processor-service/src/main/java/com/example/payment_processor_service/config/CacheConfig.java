@@ -0,0 +1,46 @@
+package com.example.payment_processor_service.config;
+
+import com.example.payment_processor_service.dto.CustomerContact;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class CacheConfig {
+
+    // tuitionId -> amount. Amounts never change once a tuition is issued; the TTL only bounds
+    // how long an entry for an already-paid tuition can linger if an invalidation is missed.
+    @Bean
+    public Cache<Long, Integer> tuitionAmountCache(
+            MeterRegistry meterRegistry,
+            @Value("${payment.cache.tuition.max-size:10000}") long maxSize,
+            @Value("${payment.cache.tuition.ttl-minutes:30}") long ttlMinutes) {
+        Cache<Long, Integer> cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+            .recordStats()
+            .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "tuition-amount");
+    }
+
+    // customerId -> contact projection used for outgoing mail. No service can change contact
+    // details yet; the short TTL bounds how long a future change would go unnoticed.
+    @Bean
+    public Cache<Long, CustomerContact> customerContactCache(
+            MeterRegistry meterRegistry,
+            @Value("${payment.cache.customer-contact.max-size:10000}") long maxSize,
+            @Value("${payment.cache.customer-contact.ttl-minutes:10}") long ttlMinutes) {
+        Cache<Long, CustomerContact> cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+            .recordStats()
+            .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "customer-contact");
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.payment_processor_service.config;
+
+import com.example.payment_processor_service.service.DownstreamServerException;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+
+// Transport errors, timeouts, 5xx answers and bulkhead rejections (the downstream is not keeping
+// up with its permits) open a breaker; 4xx business rejections mean the downstream is healthy and
+// must not count against it.
+public class DownstreamFailurePredicate implements Predicate<Throwable> {
+
+    @Override
+    public boolean test(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof WebClientRequestException
+                    || cause instanceof BulkheadFullException
+                    || cause instanceof TimeoutException
+                    || cause instanceof IOException
+                    || cause instanceof DownstreamServerException) {
+                return true;
+            }
+            if (cause instanceof WebClientResponseException responseException) {
+                return responseException.getStatusCode().is5xxServerError();
+            }
+        }
+        return false;
+    }
+}
@@ -45,4 +45,11 @@ public class GatewayAuthFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    // Endpoints returning Mono complete on an ASYNC dispatch, which is authorized again by the
+    // security chain, so the header has to be turned into an Authentication there as well.
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,210 @@
+package com.example.payment_processor_service.config;
+
+import com.example.payment_processor_service.dto.GenericResponse;
+import com.example.payment_processor_service.model.IdempotencyRecord;
+import com.example.payment_processor_service.model.IdempotencyStatus;
+import com.example.payment_processor_service.service.IdempotencyService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
+
+// Runs after the security chain (default filter order), so only authenticated requests reach it.
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 128;
+
+    // /confirm/reactive completes on an async dispatch and is left to callers that manage their own retries.
+    private static final Set<String> IDEMPOTENT_PATHS = Set.of(
+        "/initiate", "/confirm", "/resend", "/batch/initiate", "/batch/confirm");
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+            || !IDEMPOTENT_PATHS.contains(request.getServletPath())
+            || !StringUtils.hasText(request.getHeader(IDEMPOTENCY_KEY_HEADER));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+
+        String idempotencyKey = request.getHeader(IDEMPOTENCY_KEY_HEADER).trim();
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            writeFailure(response, 400, "Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters.");
+            return;
+        }
+
+        Long customerId;
+        try {
+            customerId = Long.parseLong(request.getHeader(GatewayAuthFilter.CUSTOMER_ID_HEADER));
+        } catch (NumberFormatException e) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // The body is read up front to fingerprint it and replayed to the controller from memory.
+        byte[] requestBody = StreamUtils.copyToByteArray(request.getInputStream());
+        HttpServletRequest bufferedRequest = new BufferedBodyRequest(request, requestBody);
+        String requestHash = sha256(requestBody);
+
+        String path = request.getServletPath();
+        IdempotencyService.Reservation reservation = idempotencyService.reserve(customerId, idempotencyKey, path, requestHash);
+        IdempotencyRecord record = reservation.record();
+
+        if (!reservation.owner()) {
+            replayOrReject(record, path, requestHash, response);
+            return;
+        }
+
+        ContentCachingResponseWrapper cachingResponse = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(bufferedRequest, cachingResponse);
+        } catch (ServletException | IOException | RuntimeException e) {
+            idempotencyService.release(record);
+            throw e;
+        }
+
+        int status = cachingResponse.getStatus();
+        if (isStored(status)) {
+            String body = new String(cachingResponse.getContentAsByteArray(), StandardCharsets.UTF_8);
+            idempotencyService.complete(record, status, body);
+        } else {
+            // Not final: server-side failures, conflicts with concurrent work (payment lock, balance
+            // or hold updates) and rejected input such as a wrong OTP. Nothing was applied, so the
+            // client may retry with the same key, e.g. with the correct OTP.
+            idempotencyService.release(record);
+        }
+        cachingResponse.copyBodyToResponse();
+    }
+
+    // Only successful outcomes are replayed.
+    private boolean isStored(int status) {
+        return status >= 200 && status < 300;
+    }
+
+    private void replayOrReject(IdempotencyRecord record, String path, String requestHash, HttpServletResponse response) throws IOException {
+        if (!record.getRequestPath().equals(path)) {
+            writeFailure(response, 422, "Idempotency-Key was already used for " + record.getRequestPath() + ".");
+            return;
+        }
+        if (record.getRequestHash() != null && !record.getRequestHash().equals(requestHash)) {
+            writeFailure(response, 422, "Idempotency-Key was already used with a different request body.");
+            return;
+        }
+        if (record.getStatus() == IdempotencyStatus.IN_PROGRESS) {
+            writeFailure(response, 409, "A request with this Idempotency-Key is still being processed.");
+            return;
+        }
+
+        response.setStatus(record.getResponseStatus());
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        if (record.getResponseBody() != null) {
+            response.getWriter().write(record.getResponseBody());
+        }
+    }
+
+    private String sha256(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    private void writeFailure(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getWriter(), GenericResponse.failure(message));
+    }
+
+    private static class BufferedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        BufferedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // The whole body is already in memory, so it is available, and then fully read, at once.
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        readListener.onAllDataRead();
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return input.read(buffer, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String encoding = getCharacterEncoding() != null ? getCharacterEncoding() : StandardCharsets.UTF_8.name();
+            return new BufferedReader(new InputStreamReader(getInputStream(), encoding));
+        }
+    }
+}
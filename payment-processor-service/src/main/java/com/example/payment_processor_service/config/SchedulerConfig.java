@@ -0,0 +1,22 @@
+package com.example.payment_processor_service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+@Configuration
+@EnableScheduling
+public class SchedulerConfig {
+
+    // Blocking JPA calls made from reactive pipelines run here. Keeping the thread cap at the
+    // Hikari pool size means in-flight payments queue for a thread, never for a connection.
+    @Bean(destroyMethod = "dispose")
+    public Scheduler paymentDbScheduler(
+            @Value("${payment.reactive.db-threads:10}") int dbThreads,
+            @Value("${payment.reactive.db-queue-size:100000}") int queueSize) {
+        return Schedulers.newBoundedElastic(dbThreads, queueSize, "payment-db");
+    }
+}
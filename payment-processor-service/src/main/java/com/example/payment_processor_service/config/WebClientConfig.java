@@ -1,17 +1,145 @@
 package com.example.payment_processor_service.config;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
+import java.time.Duration;
+import java.util.List;
+
+// One WebClient per downstream, each on its own connection pool, so a slow dependency can only
+// exhaust its own connections. Pools are tuned through payment.http.<downstream>.* and publish
+// reactor.netty.connection.provider.* gauges tagged with the pool name.
+//
+// payment.http.<downstream>.protocol=h2c switches a pool to cleartext HTTP/2 (prior knowledge), and
+// payment.http.<downstream>.encoding=cbor sends and accepts application/cbor instead of JSON. Both
+// default to HTTP/1.1 JSON; customer, tuition and otp services accept either.
+//
+// Reads keep the short payment.http.<downstream>.response-timeout-ms. The write clients for customer
+// and tuition share the same pools but wait payment.http.<downstream>.write-response-timeout-ms: a
+// write that times out is still applied downstream, and it is only safe to give up on because
+// debits, captures and credits carry an idempotency reference and tuition status updates are
+// idempotent.
 @Configuration
 public class WebClientConfig {
+
+    private static final int MAX_IN_MEMORY_SIZE = 16 * 1024 * 1024;
+
+    @Autowired
+    private Environment environment;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider customerConnectionProvider() {
+        return buildConnectionProvider("customer", 50);
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider tuitionConnectionProvider() {
+        return buildConnectionProvider("tuition", 30);
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider otpConnectionProvider() {
+        return buildConnectionProvider("otp", 30);
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider mailConnectionProvider() {
+        return buildConnectionProvider("mail", 10);
+    }
+
+    @Bean
+    public WebClient customerWebClient() {
+        return buildWebClient("customer", customerConnectionProvider(), 3000);
+    }
+
     @Bean
-    public WebClient webClient() {
-        return WebClient.builder()
-            .codecs(configurer -> configurer
-                .defaultCodecs()
-                .maxInMemorySize(16 * 1024 * 1024))
+    public WebClient customerWriteWebClient() {
+        return buildWebClient("customer", customerConnectionProvider(), "write-response-timeout-ms", 15000);
+    }
+
+    @Bean
+    public WebClient tuitionWebClient() {
+        return buildWebClient("tuition", tuitionConnectionProvider(), 3000);
+    }
+
+    @Bean
+    public WebClient tuitionWriteWebClient() {
+        return buildWebClient("tuition", tuitionConnectionProvider(), "write-response-timeout-ms", 15000);
+    }
+
+    @Bean
+    public WebClient otpWebClient() {
+        return buildWebClient("otp", otpConnectionProvider(), 3000);
+    }
+
+    @Bean
+    public WebClient mailWebClient() {
+        return buildWebClient("mail", mailConnectionProvider(), 10000);
+    }
+
+    private ConnectionProvider buildConnectionProvider(String name, int defaultMaxConnections) {
+        String prefix = "payment.http." + name + ".";
+        int maxConnections = environment.getProperty(prefix + "max-connections", Integer.class, defaultMaxConnections);
+
+        return ConnectionProvider.builder(name + "-pool")
+            .maxConnections(maxConnections)
+            .pendingAcquireMaxCount(environment.getProperty(prefix + "pending-acquire-max-count", Integer.class, maxConnections * 4))
+            .pendingAcquireTimeout(Duration.ofMillis(environment.getProperty(prefix + "pending-acquire-timeout-ms", Long.class, 2000L)))
+            .maxIdleTime(Duration.ofMillis(environment.getProperty(prefix + "max-idle-time-ms", Long.class, 30000L)))
+            .maxLifeTime(Duration.ofMillis(environment.getProperty(prefix + "max-life-time-ms", Long.class, 300000L)))
+            .evictInBackground(Duration.ofMillis(environment.getProperty(prefix + "evict-interval-ms", Long.class, 30000L)))
+            .metrics(true)
             .build();
     }
-}
\ No newline at end of file
+
+    private WebClient buildWebClient(String name, ConnectionProvider connectionProvider, long defaultResponseTimeoutMs) {
+        return buildWebClient(name, connectionProvider, "response-timeout-ms", defaultResponseTimeoutMs);
+    }
+
+    private WebClient buildWebClient(String name, ConnectionProvider connectionProvider, String responseTimeoutProperty, long defaultResponseTimeoutMs) {
+        String prefix = "payment.http." + name + ".";
+        int connectTimeoutMs = environment.getProperty(prefix + "connect-timeout-ms", Integer.class, 1000);
+        long responseTimeoutMs = environment.getProperty(prefix + responseTimeoutProperty, Long.class, defaultResponseTimeoutMs);
+
+        boolean h2c = "h2c".equalsIgnoreCase(environment.getProperty(prefix + "protocol", "http1"));
+        boolean cbor = "cbor".equalsIgnoreCase(environment.getProperty(prefix + "encoding", "json"));
+
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+            .protocol(h2c ? HttpProtocol.H2C : HttpProtocol.HTTP11)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+            .option(ChannelOption.SO_KEEPALIVE, true)
+            .responseTimeout(Duration.ofMillis(responseTimeoutMs))
+            .metrics(true, uri -> uri.replaceAll("/\\d+", "/{id}"));
+
+        WebClient.Builder builder = WebClient.builder()
+            .clientConnector(new ReactorClientHttpConnector(httpClient))
+            .codecs(configurer -> {
+                configurer.defaultCodecs().maxInMemorySize(MAX_IN_MEMORY_SIZE);
+                configurer.customCodecs().registerWithDefaultConfig(new Jackson2CborDecoder());
+                configurer.customCodecs().registerWithDefaultConfig(new Jackson2CborEncoder());
+            });
+
+        if (cbor) {
+            // Error responses written outside content negotiation are still JSON, so JSON stays acceptable.
+            builder.defaultHeaders(headers -> {
+                headers.set(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_CBOR_VALUE);
+                headers.setAccept(List.of(MediaType.APPLICATION_CBOR, MediaType.APPLICATION_JSON));
+            });
+        }
+        System.out.println("[HTTP] " + name + " client: " + (h2c ? "h2c" : "HTTP/1.1") + ", " + (cbor ? "CBOR" : "JSON") + ", " + responseTimeoutProperty + "=" + responseTimeoutMs + ".");
+
+        return builder.build();
+    }
+}
@@ -1,26 +1,47 @@
 package com.example.payment_processor_service.controller;
 
+import com.example.payment_processor_service.dto.BatchPaymentConfirmationRequest;
+import com.example.payment_processor_service.dto.BatchPaymentInitiateRequest;
 import com.example.payment_processor_service.dto.GenericResponse;
+import com.example.payment_processor_service.dto.PaymentHistoryPage;
 import com.example.payment_processor_service.dto.PaymentConfirmationRequest;
 import com.example.payment_processor_service.dto.PaymentInitiateRequest;
 import com.example.payment_processor_service.model.PaymentTransaction;
+import com.example.payment_processor_service.service.BatchPaymentService;
+import com.example.payment_processor_service.service.PaymentConflictException;
 import com.example.payment_processor_service.service.PaymentService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
 public class PaymentController {
 
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     @Autowired
     private PaymentService paymentService;
 
+    @Autowired
+    private BatchPaymentService batchPaymentService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @GetMapping("/info")
     public ResponseEntity<GenericResponse<List<PaymentTransaction>>> getPaymentHistory(Authentication authentication) {
         Long customerId;
@@ -44,6 +65,54 @@ public class PaymentController {
         }
     }
 
+    @GetMapping("/history")
+    public ResponseEntity<GenericResponse<PaymentHistoryPage>> getPaymentHistoryPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            Authentication authentication) {
+        Long customerId;
+        try {
+            customerId = Long.parseLong(authentication.getPrincipal().toString());
+        } catch (NumberFormatException e) {
+            return ResponseEntity.status(500).body(GenericResponse.failure("Invalid customer ID format in authentication context."));
+        }
+
+        if (size < 1 || size > MAX_HISTORY_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body(GenericResponse.failure("Invalid request: size must be between 1 and " + MAX_HISTORY_PAGE_SIZE + "."));
+        }
+
+        try {
+            PaymentHistoryPage page = paymentService.getPaymentHistoryPage(customerId, cursor, size);
+            return ResponseEntity.ok(GenericResponse.success("Payment transaction history page retrieved successfully.", page));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(GenericResponse.failure(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(GenericResponse.failure("Internal server error while fetching payment history: " + e.getMessage()));
+        }
+    }
+
+    // Newline-delimited JSON, one transaction per line, written while rows are read from the database.
+    @GetMapping("/history/stream")
+    public ResponseEntity<?> streamPaymentHistory(Authentication authentication) {
+        Long customerId;
+        try {
+            customerId = Long.parseLong(authentication.getPrincipal().toString());
+        } catch (NumberFormatException e) {
+            return ResponseEntity.status(500).body(GenericResponse.failure("Invalid customer ID format in authentication context."));
+        }
+
+        StreamingResponseBody body = outputStream -> paymentService.streamPaymentHistory(customerId, transaction -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(transaction));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+    }
+
     @PostMapping("/initiate")
     public ResponseEntity<GenericResponse<String>> initiatePayment(@RequestBody PaymentInitiateRequest request, Authentication authentication) {
         Long customerId;
@@ -62,6 +131,8 @@ public class PaymentController {
             
             return ResponseEntity.ok(GenericResponse.success("OTP has been generated and sent to your email. Please use /confirm to finalize payment."));
             
+        } catch (PaymentConflictException e) {
+            return ResponseEntity.status(409).body(GenericResponse.failure(e.getMessage()));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(400).body(GenericResponse.failure(e.getMessage()));
         } catch (Exception e) {
@@ -84,9 +155,10 @@ public class PaymentController {
         
         try {
             PaymentTransaction transaction = paymentService.confirmPayment(customerId, request);
-            paymentService.sendPaymentSuccessEmail(customerId, request.getTuitionId(), transaction.getAmount());
             return ResponseEntity.ok(GenericResponse.success("Payment successful and transaction recorded.", transaction));
             
+        } catch (PaymentConflictException e) {
+            return ResponseEntity.status(409).body(GenericResponse.failure(e.getMessage()));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(400).body(GenericResponse.failure(e.getMessage()));
         } catch (Exception e) {
@@ -94,6 +166,29 @@ public class PaymentController {
         }
     }
 
+    @PostMapping("/confirm/reactive")
+    public Mono<ResponseEntity<GenericResponse<PaymentTransaction>>> confirmPaymentReactive(@RequestBody PaymentConfirmationRequest request, Authentication authentication) {
+        Long customerId;
+        try {
+            customerId = Long.parseLong(authentication.getPrincipal().toString());
+        } catch (NumberFormatException e) {
+            return Mono.just(ResponseEntity.status(500).body(GenericResponse.failure("Invalid customer ID format in authentication context.")));
+        }
+
+        if (request.getTuitionId() == null || request.getOtpCode() == null) {
+            return Mono.just(ResponseEntity.badRequest().body(GenericResponse.failure("Invalid request: tuitionId and otpCode are required.")));
+        }
+
+        return paymentService.confirmPaymentReactive(customerId, request)
+            .map(transaction -> ResponseEntity.ok(GenericResponse.success("Payment successful and transaction recorded.", transaction)))
+            .onErrorResume(PaymentConflictException.class, e ->
+                Mono.just(ResponseEntity.status(409).body(GenericResponse.<PaymentTransaction>failure(e.getMessage()))))
+            .onErrorResume(IllegalArgumentException.class, e ->
+                Mono.just(ResponseEntity.status(400).body(GenericResponse.<PaymentTransaction>failure(e.getMessage()))))
+            .onErrorResume(e ->
+                Mono.just(ResponseEntity.status(500).body(GenericResponse.<PaymentTransaction>failure("Internal server error during payment: " + e.getMessage()))));
+    }
+
     @PostMapping("/resend")
     public ResponseEntity<GenericResponse<String>> resendOtp(@RequestBody PaymentInitiateRequest request, Authentication authentication) {
         Long customerId;
@@ -112,10 +207,61 @@ public class PaymentController {
             
             return ResponseEntity.ok(GenericResponse.success("New OTP has been generated and sent to your email."));
             
+        } catch (PaymentConflictException e) {
+            return ResponseEntity.status(409).body(GenericResponse.failure(e.getMessage()));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(400).body(GenericResponse.failure(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(GenericResponse.failure("Internal server error during OTP resend: " + e.getMessage()));
         }
     }
+
+    @PostMapping("/batch/initiate")
+    public ResponseEntity<GenericResponse<String>> initiateBatchPayment(@RequestBody BatchPaymentInitiateRequest request, Authentication authentication) {
+        Long customerId;
+        try {
+            customerId = Long.parseLong(authentication.getPrincipal().toString());
+        } catch (NumberFormatException e) {
+            return ResponseEntity.status(500).body(GenericResponse.failure("Invalid customer ID format in authentication context."));
+        }
+
+        try {
+            batchPaymentService.initiateBatchPayment(customerId, request);
+
+            return ResponseEntity.ok(GenericResponse.success("OTP has been generated and sent to your email. Please use /batch/confirm with the same tuitionIds to finalize payment."));
+
+        } catch (PaymentConflictException e) {
+            return ResponseEntity.status(409).body(GenericResponse.failure(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(GenericResponse.failure(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(GenericResponse.failure("Internal server error during batch initiation: " + e.getMessage()));
+        }
+    }
+
+    @PostMapping("/batch/confirm")
+    public ResponseEntity<GenericResponse<List<PaymentTransaction>>> confirmBatchPayment(@RequestBody BatchPaymentConfirmationRequest request, Authentication authentication) {
+        Long customerId;
+        try {
+            customerId = Long.parseLong(authentication.getPrincipal().toString());
+        } catch (NumberFormatException e) {
+            return ResponseEntity.status(500).body(GenericResponse.failure("Invalid customer ID format in authentication context."));
+        }
+
+        if (request.getOtpCode() == null) {
+            return ResponseEntity.badRequest().body(GenericResponse.failure("Invalid request: tuitionIds and otpCode are required."));
+        }
+
+        try {
+            List<PaymentTransaction> transactions = batchPaymentService.confirmBatchPayment(customerId, request);
+            return ResponseEntity.ok(GenericResponse.success("Batch payment successful and transactions recorded.", transactions));
+
+        } catch (PaymentConflictException e) {
+            return ResponseEntity.status(409).body(GenericResponse.failure(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(GenericResponse.failure(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(GenericResponse.failure("Internal server error during batch payment: " + e.getMessage()));
+        }
+    }
 }
\ No newline at end of file
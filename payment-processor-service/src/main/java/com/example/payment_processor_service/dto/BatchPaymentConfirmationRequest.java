@@ -0,0 +1,15 @@
+package com.example.payment_processor_service.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPaymentConfirmationRequest {
+    private List<Long> tuitionIds;
+    private String otpCode;
+}
\ No newline at end of file
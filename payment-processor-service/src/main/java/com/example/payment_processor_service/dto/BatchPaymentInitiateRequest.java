@@ -0,0 +1,14 @@
+package com.example.payment_processor_service.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPaymentInitiateRequest {
+    private List<Long> tuitionIds;
+}
\ No newline at end of file
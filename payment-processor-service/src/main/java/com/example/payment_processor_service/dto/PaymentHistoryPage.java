@@ -0,0 +1,16 @@
+package com.example.payment_processor_service.dto;
+
+import com.example.payment_processor_service.model.PaymentTransaction;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentHistoryPage {
+    private List<PaymentTransaction> items;
+    private String nextCursor;
+}
@@ -0,0 +1,54 @@
+package com.example.payment_processor_service.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(
+    name = "idempotency_keys",
+    uniqueConstraints = @UniqueConstraint(name = "uk_idempotency_keys_customer_key", columnNames = {"customerId", "idempotencyKey"}),
+    indexes = @Index(name = "idx_idempotency_keys_expires_at", columnList = "expiresAt")
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long recordId;
+
+    @Column(nullable = false)
+    private Long customerId;
+
+    @Column(nullable = false, length = 128)
+    private String idempotencyKey;
+
+    @Column(nullable = false)
+    private String requestPath;
+
+    // SHA-256 of the request body, so a key reused with a different body is rejected.
+    @Column(length = 64)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private IdempotencyStatus status;
+
+    private Integer responseStatus;
+
+    public static final int MAX_RESPONSE_BODY_LENGTH = 8000;
+
+    @Column(length = MAX_RESPONSE_BODY_LENGTH)
+    private String responseBody;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
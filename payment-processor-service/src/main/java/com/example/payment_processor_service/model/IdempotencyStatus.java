@@ -0,0 +1,6 @@
+package com.example.payment_processor_service.model;
+
+public enum IdempotencyStatus {
+    IN_PROGRESS,
+    COMPLETED
+}
@@ -0,0 +1,56 @@
+package com.example.payment_processor_service.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(
+    name = "mail_outbox",
+    indexes = @Index(name = "idx_mail_outbox_status_next_attempt_at", columnList = "status, nextAttemptAt")
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MailOutboxMessage {
+
+    public static final String REDACTED_BODY = "[redacted]";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long messageId;
+
+    @Column(nullable = false)
+    private Long customerId;
+
+    // Null when the address is resolved by the dispatcher (customer-management-service lookup).
+    private String recipient;
+
+    @Column(nullable = false, length = 500)
+    private String subject;
+
+    // Replaced with REDACTED_BODY once the mail is sent or given up on; OTP mails carry the code.
+    @Column(nullable = false, length = 4000)
+    private String body;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private OutboxStatus status;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    private LocalDateTime sentAt;
+}
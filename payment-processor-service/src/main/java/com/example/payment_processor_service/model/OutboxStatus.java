@@ -0,0 +1,8 @@
+package com.example.payment_processor_service.model;
+
+public enum OutboxStatus {
+    PENDING,
+    SENDING,
+    SENT,
+    FAILED
+}
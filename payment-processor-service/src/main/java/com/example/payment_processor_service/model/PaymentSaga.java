@@ -0,0 +1,53 @@
+package com.example.payment_processor_service.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(
+    name = "payment_sagas",
+    indexes = @Index(name = "idx_payment_sagas_status_updated_at", columnList = "status, updatedAt")
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentSaga {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long sagaId;
+
+    @Column(nullable = false)
+    private Long customerId;
+
+    @Column(nullable = false)
+    private Long tuitionId;
+
+    private Integer amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private SagaStatus status;
+
+    private Long paymentId;
+
+    // Idempotency key of the capture/debit, written before the call goes out (DEBIT_REQUESTED).
+    @Column(length = 128)
+    private String chargeReference;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -8,7 +8,10 @@ import lombok.AllArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "payment_transactions")
+@Table(
+    name = "payment_transactions",
+    indexes = @Index(name = "idx_payment_transactions_customer_date_id", columnList = "customerId, paymentDate, paymentId")
+)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,13 @@
+package com.example.payment_processor_service.model;
+
+public enum SagaStatus {
+    STARTED,
+    OTP_VALIDATED,
+    DEBIT_REQUESTED,
+    DEBITED,
+    TUITION_UPDATED,
+    RECORDED,
+    COMPENSATION_PENDING,
+    COMPENSATED,
+    FAILED
+}
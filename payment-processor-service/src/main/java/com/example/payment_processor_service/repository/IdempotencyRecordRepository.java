@@ -0,0 +1,34 @@
+package com.example.payment_processor_service.repository;
+
+import com.example.payment_processor_service.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+    Optional<IdempotencyRecord> findByCustomerIdAndIdempotencyKey(Long customerId, String idempotencyKey);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+
+    // Only completes a record that is still IN_PROGRESS; returns 0 if its lease ran out and the
+    // record was deleted or taken over in the meantime.
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = com.example.payment_processor_service.model.IdempotencyStatus.COMPLETED, " +
+           "r.responseStatus = :responseStatus, r.responseBody = :responseBody, r.expiresAt = :expiresAt " +
+           "WHERE r.recordId = :recordId AND r.status = com.example.payment_processor_service.model.IdempotencyStatus.IN_PROGRESS")
+    int complete(@Param("recordId") Long recordId,
+                 @Param("responseStatus") Integer responseStatus,
+                 @Param("responseBody") String responseBody,
+                 @Param("expiresAt") LocalDateTime expiresAt);
+}
@@ -0,0 +1,28 @@
+package com.example.payment_processor_service.repository;
+
+import com.example.payment_processor_service.model.MailOutboxMessage;
+import com.example.payment_processor_service.model.OutboxStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface MailOutboxRepository extends JpaRepository<MailOutboxMessage, Long> {
+
+    // SENDING rows whose lease expired (dispatcher crashed mid-send) are picked up again.
+    // SKIP LOCKED lets several payment-processor nodes drain the outbox without blocking each other.
+    @Query(value = "SELECT * FROM mail_outbox WHERE status IN ('PENDING', 'SENDING') AND next_attempt_at <= :now " +
+                   "ORDER BY message_id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<MailOutboxMessage> lockNextBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM MailOutboxMessage m WHERE m.status = :status AND m.sentAt < :sentBefore")
+    int deleteByStatusAndSentAtBefore(@Param("status") OutboxStatus status, @Param("sentBefore") LocalDateTime sentBefore);
+}
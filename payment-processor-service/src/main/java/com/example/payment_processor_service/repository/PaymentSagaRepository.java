@@ -0,0 +1,26 @@
+package com.example.payment_processor_service.repository;
+
+import com.example.payment_processor_service.model.PaymentSaga;
+import com.example.payment_processor_service.model.SagaStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PaymentSagaRepository extends JpaRepository<PaymentSaga, Long> {
+    List<PaymentSaga> findByStatusInAndUpdatedAtBefore(Collection<SagaStatus> statuses, LocalDateTime updatedBefore, Pageable pageable);
+
+    // Compare-and-set on updatedAt, so only one worker (or node) can claim a stuck saga per round.
+    @Transactional
+    @Modifying
+    @Query("UPDATE PaymentSaga s SET s.updatedAt = :now, s.attempts = s.attempts + 1 WHERE s.sagaId = :sagaId AND s.updatedAt = :seenUpdatedAt")
+    int claim(@Param("sagaId") Long sagaId, @Param("seenUpdatedAt") LocalDateTime seenUpdatedAt, @Param("now") LocalDateTime now);
+}
@@ -1,13 +1,46 @@
 package com.example.payment_processor_service.repository;
 
 import com.example.payment_processor_service.model.PaymentTransaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PaymentTransactionRepository extends JpaRepository<PaymentTransaction, Long> {
     Optional<PaymentTransaction> findByTuitionId(Long tuitionId);
+    List<PaymentTransaction> findByTuitionIdIn(Collection<Long> tuitionIds);
     List<PaymentTransaction> findByCustomerId(Long customerId);
-}
\ No newline at end of file
+
+    // Keyset pages, newest first. Both queries walk idx_payment_transactions_customer_date_id
+    // backwards and stop after :limit rows, however deep the cursor is.
+    @Query(value = "SELECT * FROM payment_transactions WHERE customer_id = :customerId " +
+                   "ORDER BY payment_date DESC, payment_id DESC LIMIT :limit", nativeQuery = true)
+    List<PaymentTransaction> findFirstHistoryPage(@Param("customerId") Long customerId, @Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM payment_transactions WHERE customer_id = :customerId " +
+                   "AND (payment_date, payment_id) < (:paymentDate, :paymentId) " +
+                   "ORDER BY payment_date DESC, payment_id DESC LIMIT :limit", nativeQuery = true)
+    List<PaymentTransaction> findHistoryPageAfter(@Param("customerId") Long customerId,
+                                                  @Param("paymentDate") LocalDateTime paymentDate,
+                                                  @Param("paymentId") Long paymentId,
+                                                  @Param("limit") int limit);
+
+    // Must be consumed inside a read-only transaction; the fetch size keeps the PostgreSQL
+    // driver from materializing the whole result set.
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM PaymentTransaction p WHERE p.customerId = :customerId ORDER BY p.paymentDate DESC, p.paymentId DESC")
+    Stream<PaymentTransaction> streamByCustomerId(@Param("customerId") Long customerId);
+}
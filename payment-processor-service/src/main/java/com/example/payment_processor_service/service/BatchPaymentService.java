@@ -0,0 +1,255 @@
+package com.example.payment_processor_service.service;
+
+import com.example.payment_processor_service.client.OtpClient;
+import com.example.payment_processor_service.client.OtpCode;
+import com.example.payment_processor_service.client.OtpRequest;
+import com.example.payment_processor_service.client.TuitionBatchStatusRequest;
+import com.example.payment_processor_service.client.TuitionClient;
+import com.example.payment_processor_service.client.TuitionDetails;
+import com.example.payment_processor_service.dto.BatchPaymentConfirmationRequest;
+import com.example.payment_processor_service.dto.BatchPaymentInitiateRequest;
+import com.example.payment_processor_service.dto.GenericResponse;
+import com.example.payment_processor_service.model.PaymentSaga;
+import com.example.payment_processor_service.model.PaymentTransaction;
+import com.example.payment_processor_service.model.SagaStatus;
+import com.example.payment_processor_service.repository.PaymentTransactionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+// Batch payments: one OTP, one aggregated debit and one bulk tuition update for up to
+// payment.batch.max-size tuitions. Each tuition still gets its own saga row, so a crash at any
+// step is finished or refunded tuition by tuition by the recovery worker. The lookups, the charge
+// and the per-saga refund are the same steps PaymentService runs for a single tuition.
+@Service
+public class BatchPaymentService {
+
+    private static final String BATCH_OTP_REFERENCE_PREFIX = "BATCH-";
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentTransactionRepository paymentTransactionRepository;
+
+    @Autowired
+    private TuitionClient tuitionClient;
+
+    @Autowired
+    private OtpClient otpClient;
+
+    @Autowired
+    private Scheduler paymentDbScheduler;
+
+    @Autowired
+    private PaymentSagaLog paymentSagaLog;
+
+    @Autowired
+    private MailOutboxService mailOutboxService;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
+    @Autowired
+    private TuitionPaymentLock tuitionPaymentLock;
+
+    @Autowired
+    private FundReservationService fundReservationService;
+
+    @Autowired
+    private Cache<Long, Integer> tuitionAmountCache;
+
+    @Value("${payment.batch.max-size:10}")
+    private int maxBatchSize;
+
+    private record BatchPaymentContext(List<Integer> requiredAmounts, Integer availableBalance, String customerEmail) {}
+
+    public void initiateBatchPayment(Long customerId, BatchPaymentInitiateRequest request) {
+        List<Long> tuitionIds = normalizeBatch(request.getTuitionIds());
+        singleFlight.execute("initiate:" + customerId + ":" + batchReference(tuitionIds), () -> runInitiateBatchPayment(customerId, tuitionIds));
+    }
+
+    private void runInitiateBatchPayment(Long customerId, List<Long> tuitionIds) {
+        List<PaymentTransaction> alreadyPaid = paymentTransactionRepository.findByTuitionIdIn(tuitionIds);
+        if (!alreadyPaid.isEmpty()) {
+            throw new IllegalArgumentException("Tuition ID(s) " + alreadyPaid.stream().map(PaymentTransaction::getTuitionId).toList() + " have already been paid.");
+        }
+
+        BatchPaymentContext context = fetchBatchPaymentContext(customerId, tuitionIds);
+        int totalAmount = context.requiredAmounts().stream().mapToInt(Integer::intValue).sum();
+
+        if (!fundReservationService.isEnabled() && context.availableBalance() < totalAmount) {
+            throw new IllegalArgumentException("Insufficient balance to perform the debit. Required " + totalAmount + ", available " + context.availableBalance() + ".");
+        }
+
+        String reference = batchReference(tuitionIds);
+        fundReservationService.hold(customerId, reference, totalAmount);
+        OtpCode otpResult = fundReservationService.releaseIfFails(customerId, reference, () -> paymentService.getOtpFromService(customerId, OtpRequest.forReference(reference), "/generate"));
+
+        if (!otpResult.statusMessage().contains("Existing")) {
+            mailOutboxService.enqueueBatchOtpMail(customerId, context.customerEmail(), tuitionIds, otpResult.otpCode(), totalAmount);
+            System.out.println("OTP Code for Tuition IDs " + tuitionIds + " queued for email: " + context.customerEmail() + " is: " + otpResult.otpCode());
+        } else {
+            System.out.println("[INFO] Existing OTP reused for Tuition IDs " + tuitionIds + ". Skipping email dispatch.");
+        }
+    }
+
+    public List<PaymentTransaction> confirmBatchPayment(Long customerId, BatchPaymentConfirmationRequest request) {
+        return confirmBatchPaymentReactive(customerId, request).block();
+    }
+
+    public Mono<List<PaymentTransaction>> confirmBatchPaymentReactive(Long customerId, BatchPaymentConfirmationRequest request) {
+        return Mono.fromCallable(() -> normalizeBatch(request.getTuitionIds()))
+            .flatMap(tuitionIds -> tuitionPaymentLock.withLock(tuitionIds, lease -> onDbScheduler(() -> {
+                    List<PaymentTransaction> alreadyPaid = paymentTransactionRepository.findByTuitionIdIn(tuitionIds);
+                    if (!alreadyPaid.isEmpty()) {
+                        throw new IllegalArgumentException("Tuition ID(s) " + alreadyPaid.stream().map(PaymentTransaction::getTuitionId).toList() + " have already been paid.");
+                    }
+                    return paymentSagaLog.startAll(customerId, tuitionIds);
+                })
+                .flatMap(sagas -> runBatchConfirmSaga(customerId, tuitionIds, sagas, request.getOtpCode(), lease))));
+    }
+
+    private Mono<List<PaymentTransaction>> runBatchConfirmSaga(Long customerId, List<Long> tuitionIds, List<PaymentSaga> sagas, String otpCode, TuitionPaymentLock.Lease lease) {
+        return otpClient.validate(customerId, OtpRequest.forReference(batchReference(tuitionIds)).withOtpCode(otpCode))
+            .onErrorMap(e -> PaymentFailures.map("OTP Validation Failed", e))
+            .then(onDbScheduler(() -> {
+                paymentSagaLog.advanceAll(sagas, SagaStatus.OTP_VALIDATED);
+                return sagas;
+            }))
+            .flatMapMany(Flux::fromIterable)
+            .flatMap(saga -> paymentService.createRequiredAmountMono(customerId, saga.getTuitionId()).doOnNext(saga::setAmount))
+            .then(tuitionPaymentLock.verify(lease))
+            .then(onDbScheduler(() -> {
+                paymentSagaLog.requestDebitAll(sagas, batchChargeReference(sagas));
+                return sagas;
+            }))
+            .then(Mono.defer(() -> paymentService.chargeCustomer(customerId, batchReference(tuitionIds), sagas.get(0).getChargeReference(), "Tuition Payment for IDs " + tuitionIds, totalAmount(sagas))))
+            .then(onDbScheduler(() -> {
+                paymentSagaLog.advanceAll(sagas, SagaStatus.DEBITED);
+                return sagas;
+            }))
+            .onErrorResume(e -> paymentService.closeUndebitedSagas(sagas, e))
+            .then(Mono.defer(() -> completeDebitedBatch(customerId, tuitionIds, sagas)));
+    }
+
+    private Mono<List<PaymentTransaction>> completeDebitedBatch(Long customerId, List<Long> tuitionIds, List<PaymentSaga> sagas) {
+        return createTuitionBatchUpdateMono(customerId, tuitionIds, true)
+            .onErrorResume(e -> this.<GenericResponse<List<TuitionDetails>>>compensateBatch(customerId, tuitionIds, sagas, PaymentFailures.map("Tuition Update Failed", e)))
+            .then(onDbScheduler(() -> {
+                paymentSagaLog.advanceAll(sagas, SagaStatus.TUITION_UPDATED);
+                return sagas;
+            }))
+            .then(onDbScheduler(() -> paymentSagaLog.recordBatch(sagas, sagas.stream()
+                    .map(saga -> paymentService.buildTransaction(customerId, saga.getTuitionId(), saga.getAmount()))
+                    .toList()))
+                .onErrorResume(DataIntegrityViolationException.class, e -> resolveBatchCollision(customerId, tuitionIds, sagas, e)));
+    }
+
+    // A concurrent payment already recorded some of these tuitions, and the whole recordBatch was
+    // rolled back. Tuitions that nobody recorded are marked unpaid again and then the batch is refunded.
+    // If the revert fails, the sagas stay in TUITION_UPDATED. The recovery worker then records or
+    // refunds them one by one, which settles each tuition correctly.
+    private Mono<List<PaymentTransaction>> resolveBatchCollision(Long customerId, List<Long> tuitionIds, List<PaymentSaga> sagas, DataIntegrityViolationException collision) {
+        return onDbScheduler(() -> paymentTransactionRepository.findByTuitionIdIn(tuitionIds).stream()
+                .map(PaymentTransaction::getTuitionId)
+                .toList())
+            .flatMap(paidTuitionIds -> {
+                List<Long> unpaidTuitionIds = tuitionIds.stream().filter(tuitionId -> !paidTuitionIds.contains(tuitionId)).toList();
+                IllegalArgumentException failure = new IllegalArgumentException("Tuition ID(s) " + paidTuitionIds + " have already been paid.", collision);
+
+                Mono<Void> revert = unpaidTuitionIds.isEmpty() ?
+                    Mono.<Void>empty() :
+                    createTuitionBatchUpdateMono(customerId, unpaidTuitionIds, false).then();
+                return revert
+                    .onErrorResume(revertError -> {
+                        System.err.println("CRITICAL ERROR: Could not mark Tuition IDs " + unpaidTuitionIds + " unpaid again after a batch collision. Sagas left for the recovery worker.");
+                        return onDbScheduler(() -> {
+                                paymentSagaLog.recordErrorAll(sagas, revertError);
+                                return sagas;
+                            })
+                            .then(Mono.<Void>error(new RuntimeException("Batch payment could not be completed; it will be settled automatically. " + failure.getMessage(), revertError)));
+                    })
+                    .then(this.<List<PaymentTransaction>>compensateBatch(customerId, tuitionIds, sagas, failure));
+            });
+    }
+
+    // Same write-ahead rule as PaymentService.compensateSaga. The batch is refunded saga by saga under the same
+    // per-saga refund references the recovery worker uses, so a refund that fails part way through
+    // is finished by the worker without crediting any saga twice.
+    private <T> Mono<T> compensateBatch(Long customerId, List<Long> tuitionIds, List<PaymentSaga> sagas, RuntimeException failure) {
+        return onDbScheduler(() -> {
+                paymentSagaLog.advanceAll(sagas, SagaStatus.COMPENSATION_PENDING, failure);
+                return sagas;
+            })
+            .thenMany(Flux.fromIterable(sagas))
+            .concatMap(paymentService::refundSaga)
+            .then()
+            .doOnSuccess(compensated -> System.err.println("[COMPENSATION SUCCESS] Customer balance credited back for Tuition IDs: " + tuitionIds + ". System state restored."))
+            .then(Mono.<T>error(failure))
+            .onErrorResume(e -> e != failure, compensationError -> {
+                System.err.println("CRITICAL ERROR: Compensation (Credit) failed for Customer ID " + customerId + ". Sagas for Tuition IDs " + tuitionIds + " left in COMPENSATION_PENDING for the recovery worker.");
+                return Mono.<T>error(new RuntimeException("Compensation (Credit) failed for Customer ID: " + customerId + ". The refund will be retried automatically. " + compensationError.getMessage(), compensationError));
+            });
+    }
+
+    private BatchPaymentContext fetchBatchPaymentContext(Long customerId, List<Long> tuitionIds) {
+        return Mono.zip(
+                Flux.fromIterable(tuitionIds)
+                    .flatMapSequential(tuitionId -> paymentService.createRequiredAmountMono(customerId, tuitionId))
+                    .collectList(),
+                paymentService.createAvailableBalanceMono(customerId),
+                paymentService.createPrefetchedEmailMono(customerId)
+            )
+            .map(tuple -> new BatchPaymentContext(tuple.getT1(), tuple.getT2(), tuple.getT3().orElse(null)))
+            .block();
+    }
+
+    // Sorted so that the same set of tuitions always maps to the same OTP reference.
+    private List<Long> normalizeBatch(List<Long> tuitionIds) {
+        if (tuitionIds == null || tuitionIds.isEmpty() || tuitionIds.contains(null)) {
+            throw new IllegalArgumentException("Invalid request: tuitionIds must be a non-empty list of IDs.");
+        }
+        List<Long> normalized = tuitionIds.stream().distinct().sorted().toList();
+        if (normalized.size() != tuitionIds.size()) {
+            throw new IllegalArgumentException("Invalid request: tuitionIds must not contain duplicates.");
+        }
+        if (normalized.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Invalid request: at most " + maxBatchSize + " tuitions can be paid in one batch.");
+        }
+        return normalized;
+    }
+
+    private String batchReference(List<Long> sortedTuitionIds) {
+        return BATCH_OTP_REFERENCE_PREFIX + String.join("-", sortedTuitionIds.stream().map(String::valueOf).toList());
+    }
+
+    private String batchChargeReference(List<PaymentSaga> sagas) {
+        return "PAYMENT-BATCH-" + sagas.stream().mapToLong(PaymentSaga::getSagaId).min().orElseThrow();
+    }
+
+    private int totalAmount(List<PaymentSaga> sagas) {
+        return sagas.stream().mapToInt(PaymentSaga::getAmount).sum();
+    }
+
+    private <T> Mono<T> onDbScheduler(Callable<T> databaseCall) {
+        return Mono.fromCallable(databaseCall).subscribeOn(paymentDbScheduler);
+    }
+
+    private Mono<GenericResponse<List<TuitionDetails>>> createTuitionBatchUpdateMono(Long customerId, List<Long> tuitionIds, boolean isPaid) {
+        return tuitionClient.updateStatuses(customerId, new TuitionBatchStatusRequest(tuitionIds, isPaid))
+            .doOnSuccess(response -> {
+                if (isPaid) {
+                    tuitionAmountCache.invalidateAll(tuitionIds);
+                }
+            });
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.payment_processor_service.service;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+// Wraps downstream calls in a per-downstream semaphore bulkhead and circuit breaker (instances
+// "customer", "tuition", "otp" and "mail", configured under resilience4j.*). Rejections fail fast
+// instead of parking a request thread on a dependency that is already struggling.
+@Component
+public class DownstreamGuard {
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Autowired
+    private BulkheadRegistry bulkheadRegistry;
+
+    public <T> Function<Mono<T>, Mono<T>> protect(String downstream) {
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(downstream);
+        Bulkhead bulkhead = bulkheadRegistry.bulkhead(downstream);
+
+        // The last transform is the outermost: the circuit breaker wraps the bulkhead. An open
+        // breaker rejects before a permit is taken, and bulkhead rejections reach the breaker and
+        // count as failures (DownstreamFailurePredicate), so sustained shedding opens it.
+        return mono -> mono
+            .transformDeferred(BulkheadOperator.of(bulkhead))
+            .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+            .onErrorMap(CallNotPermittedException.class,
+                e -> new RuntimeException("Service '" + downstream + "' is temporarily unavailable (circuit open). Please retry shortly.", e))
+            .onErrorMap(BulkheadFullException.class,
+                e -> new RuntimeException("Service '" + downstream + "' is at its concurrency limit. Please retry shortly.", e));
+    }
+}
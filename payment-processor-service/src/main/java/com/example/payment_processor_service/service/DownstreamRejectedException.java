@@ -0,0 +1,16 @@
+package com.example.payment_processor_service.service;
+
+// Raised for 4xx answers: the downstream looked at the request and refused it, so nothing was applied.
+public class DownstreamRejectedException extends RuntimeException {
+
+    private final int status;
+
+    public DownstreamRejectedException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.payment_processor_service.service;
+
+import org.springframework.http.HttpStatusCode;
+
+// Raised for 5xx answers from a downstream service. Unlike 4xx business rejections
+// (insufficient balance, invalid OTP...) these count as failures for the circuit breakers.
+public class DownstreamServerException extends RuntimeException {
+
+    public DownstreamServerException(String message) {
+        super(message);
+    }
+
+    public static RuntimeException forStatus(HttpStatusCode status, String message) {
+        return status.is5xxServerError() ? new DownstreamServerException(message) : new DownstreamRejectedException(status.value(), message);
+    }
+}
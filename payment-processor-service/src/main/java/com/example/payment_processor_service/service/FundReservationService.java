@@ -0,0 +1,84 @@
+package com.example.payment_processor_service.service;
+
+import com.example.payment_processor_service.client.BalanceChangeRequest;
+import com.example.payment_processor_service.client.CustomerClient;
+import com.example.payment_processor_service.client.FundHold;
+import com.example.payment_processor_service.client.ReservationRequest;
+import com.example.payment_processor_service.dto.GenericResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Supplier;
+
+// Funds are held at initiate so a balance change between initiate and confirm is caught before
+// an OTP is sent; confirm then captures the hold. With payment.reservation.enabled=false nothing is
+// held and confirm debits directly.
+@Service
+public class FundReservationService {
+
+    @Autowired
+    private CustomerClient customerClient;
+
+    @Value("${payment.reservation.enabled:true}")
+    private boolean reservationsEnabled;
+
+    @Value("${payment.reservation.ttl-seconds:600}")
+    private long reservationTtlSeconds;
+
+    public boolean isEnabled() {
+        return reservationsEnabled;
+    }
+
+    // Holding again for the same reference (resend, repeated initiate) only extends the existing hold.
+    public void hold(Long customerId, String reference, Integer amount) {
+        if (!reservationsEnabled) {
+            return;
+        }
+        try {
+            GenericResponse<FundHold> holdResponse = customerClient.holdFunds(customerId, new ReservationRequest(reference, amount, reservationTtlSeconds, null))
+                .block();
+            if (holdResponse == null || !holdResponse.isSuccess()) {
+                throw new RuntimeException(holdResponse != null && holdResponse.getMessage() != null ? holdResponse.getMessage() : "Unknown fund hold error.");
+            }
+        } catch (Exception e) {
+            throw PaymentFailures.map("Fund Hold Failed", e);
+        }
+    }
+
+    // A hold without an OTP can never be confirmed, so it is handed back straight away instead of
+    // waiting for the expiry sweeper.
+    public <T> T releaseIfFails(Long customerId, String reference, Supplier<T> call) {
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            if (reservationsEnabled) {
+                customerClient.releaseFunds(customerId, new ReservationRequest(reference, null, null, null))
+                    .subscribe(
+                        released -> {},
+                        releaseError -> System.err.println("WARNING: Failed to release fund hold " + reference + ": " + releaseError.getMessage()));
+            }
+            throw e;
+        }
+    }
+
+    // Captures the hold placed at initiate; without a live hold (reservations disabled, expired or
+    // released) the amount is debited directly as before. Both carry the charge reference.
+    // Capture answers 404 only when no HELD row exists for the hold reference (a hold past its expiry
+    // but not yet swept is captured), so the fallback debit never charges on top of a hold.
+    public Mono<Void> captureOrDebit(Long customerId, String holdReference, String chargeReference, String description, Integer amount) {
+        if (!reservationsEnabled) {
+            return debit(customerId, description, amount, chargeReference);
+        }
+        return customerClient.captureFunds(customerId, new ReservationRequest(holdReference, amount, null, chargeReference))
+            .defaultIfEmpty(new GenericResponse<>())
+            .flatMap(captureResponse -> captureResponse.isSuccess() ?
+                Mono.<Void>empty() :
+                debit(customerId, description, amount, chargeReference));
+    }
+
+    private Mono<Void> debit(Long customerId, String description, Integer amount, String chargeReference) {
+        return customerClient.debit(customerId, new BalanceChangeRequest(amount, description, chargeReference)).then();
+    }
+}
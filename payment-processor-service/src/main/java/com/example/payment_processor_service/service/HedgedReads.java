@@ -0,0 +1,180 @@
+package com.example.payment_processor_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Hedged requests for idempotent downstream reads. If the first attempt has not answered within
+// the recent p95 latency of that call, a second identical attempt is fired and the first success
+// wins; the other attempt is cancelled. Each call has its own token budget, refilled by a fixed
+// share of that call's requests (payment.hedge.budget-percent), so a slow dependency cannot double
+// its load or spend the hedges of another call.
+//
+// Metrics per call: payment.hedge.latency (p95 source; every successful call, timed from its first
+// attempt whichever attempt answered), payment.hedge.requests, payment.hedge.fired,
+// payment.hedge.won (hedge answered first) and payment.hedge.skipped (budget exhausted).
+@Component
+public class HedgedReads {
+
+    private static final long TOKEN = 1000;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${payment.hedge.enabled:true}")
+    private boolean enabled;
+
+    @Value("${payment.hedge.initial-delay-ms:100}")
+    private long initialDelayMs;
+
+    @Value("${payment.hedge.min-delay-ms:10}")
+    private long minDelayMs;
+
+    @Value("${payment.hedge.max-delay-ms:1000}")
+    private long maxDelayMs;
+
+    @Value("${payment.hedge.min-samples:50}")
+    private long minSamples;
+
+    @Value("${payment.hedge.budget-percent:10}")
+    private long budgetPercent;
+
+    @Value("${payment.hedge.budget-max-tokens:20}")
+    private long budgetMaxTokens;
+
+    private final Map<String, HedgeMetrics> metricsByCall = new ConcurrentHashMap<>();
+
+    // budget is in thousandths of a hedge, so fractional deposits need no floating point.
+    private record HedgeMetrics(Timer latency, Counter requests, Counter fired, Counter won, Counter skipped, AtomicLong budget) {}
+
+    public <T> Mono<T> hedge(String call, Supplier<Mono<T>> request) {
+        if (!enabled) {
+            return request.get();
+        }
+
+        return Mono.create(sink -> {
+            HedgeMetrics metrics = metricsFor(call);
+            metrics.requests().increment();
+            deposit(metrics);
+
+            long startNanos = System.nanoTime();
+            AtomicBoolean settled = new AtomicBoolean();
+            AtomicInteger outstanding = new AtomicInteger(1);
+            Disposable.Composite attempts = Disposables.composite();
+            sink.onDispose(attempts);
+
+            attempts.add(attempt(request, sink, settled, outstanding, metrics, startNanos, false));
+            attempts.add(Mono.delay(hedgeDelay(metrics)).subscribe(tick -> {
+                if (settled.get()) {
+                    return;
+                }
+                if (!tryWithdraw(metrics)) {
+                    metrics.skipped().increment();
+                    return;
+                }
+                // The first attempt may have answered while the token was taken; give it back
+                // rather than send a request nobody will read.
+                if (settled.get()) {
+                    refund(metrics);
+                    return;
+                }
+                outstanding.incrementAndGet();
+                metrics.fired().increment();
+                attempts.add(attempt(request, sink, settled, outstanding, metrics, startNanos, true));
+            }));
+        });
+    }
+
+    // An error only settles the call once no other attempt is still in flight, so a hedge can
+    // still succeed after the first attempt fails. Latency is measured from the call's first attempt,
+    // so a hedge win records what the caller waited, not how fast the hedge itself was.
+    private <T> Disposable attempt(Supplier<Mono<T>> request, MonoSink<T> sink, AtomicBoolean settled,
+                                   AtomicInteger outstanding, HedgeMetrics metrics, long startNanos, boolean isHedge) {
+        return request.get().subscribe(
+            value -> {
+                if (settled.compareAndSet(false, true)) {
+                    metrics.latency().record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                    if (isHedge) {
+                        metrics.won().increment();
+                    }
+                    sink.success(value);
+                }
+            },
+            error -> {
+                if (outstanding.decrementAndGet() == 0 && settled.compareAndSet(false, true)) {
+                    sink.error(error);
+                }
+            },
+            () -> {
+                if (settled.compareAndSet(false, true)) {
+                    metrics.latency().record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                    sink.success();
+                }
+            });
+    }
+
+    private Duration hedgeDelay(HedgeMetrics metrics) {
+        if (metrics.latency().count() < minSamples) {
+            return Duration.ofMillis(initialDelayMs);
+        }
+        double p95Ms = initialDelayMs;
+        for (ValueAtPercentile percentile : metrics.latency().takeSnapshot().percentileValues()) {
+            if (percentile.percentile() == 0.95) {
+                p95Ms = percentile.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return Duration.ofMillis(Math.max(minDelayMs, Math.min(maxDelayMs, (long) Math.ceil(p95Ms))));
+    }
+
+    private void deposit(HedgeMetrics metrics) {
+        long depositPerCall = TOKEN * budgetPercent / 100;
+        metrics.budget().updateAndGet(tokens -> Math.min(budgetMaxTokens * TOKEN, tokens + depositPerCall));
+    }
+
+    private boolean tryWithdraw(HedgeMetrics metrics) {
+        while (true) {
+            long tokens = metrics.budget().get();
+            if (tokens < TOKEN) {
+                return false;
+            }
+            if (metrics.budget().compareAndSet(tokens, tokens - TOKEN)) {
+                return true;
+            }
+        }
+    }
+
+    private void refund(HedgeMetrics metrics) {
+        metrics.budget().updateAndGet(tokens -> Math.min(budgetMaxTokens * TOKEN, tokens + TOKEN));
+    }
+
+    private HedgeMetrics metricsFor(String call) {
+        return metricsByCall.computeIfAbsent(call, name -> new HedgeMetrics(
+            Timer.builder("payment.hedge.latency")
+                .tag("call", name)
+                .publishPercentiles(0.95)
+                .distributionStatisticExpiry(Duration.ofMinutes(1))
+                .register(meterRegistry),
+            Counter.builder("payment.hedge.requests").tag("call", name).register(meterRegistry),
+            Counter.builder("payment.hedge.fired").tag("call", name).register(meterRegistry),
+            Counter.builder("payment.hedge.won").tag("call", name).register(meterRegistry),
+            Counter.builder("payment.hedge.skipped").tag("call", name).tag("reason", "budget").register(meterRegistry),
+            new AtomicLong()));
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.payment_processor_service.service;
+
+import com.example.payment_processor_service.model.IdempotencyRecord;
+import com.example.payment_processor_service.model.IdempotencyStatus;
+import com.example.payment_processor_service.repository.IdempotencyRecordRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Optional;
+
+@Service
+public class IdempotencyService {
+
+    private static final ZoneId PAYMENT_ZONE = ZoneId.of("Asia/Ho_Chi_Minh");
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Value("${payment.idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    // How long an IN_PROGRESS record blocks its key. A process that dies mid-request cannot release
+    // it, so the key frees itself after this lease instead of answering 409 for ttl-hours.
+    @Value("${payment.idempotency.in-progress-lease-seconds:120}")
+    private long inProgressLeaseSeconds;
+
+    // Either the caller owns a fresh IN_PROGRESS record (and must complete or release it),
+    // or an existing record for the same key is returned for replay / conflict handling.
+    public record Reservation(IdempotencyRecord record, boolean owner) {}
+
+    public Reservation reserve(Long customerId, String idempotencyKey, String requestPath, String requestHash) {
+        LocalDateTime now = now();
+        Optional<IdempotencyRecord> existing = idempotencyRecordRepository.findByCustomerIdAndIdempotencyKey(customerId, idempotencyKey);
+
+        if (existing.isPresent()) {
+            if (existing.get().getExpiresAt().isAfter(now)) {
+                return new Reservation(existing.get(), false);
+            }
+            idempotencyRecordRepository.delete(existing.get());
+        }
+
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setCustomerId(customerId);
+        record.setIdempotencyKey(idempotencyKey);
+        record.setRequestPath(requestPath);
+        record.setRequestHash(requestHash);
+        record.setStatus(IdempotencyStatus.IN_PROGRESS);
+        record.setCreatedAt(now);
+        record.setExpiresAt(now.plusSeconds(inProgressLeaseSeconds));
+
+        try {
+            return new Reservation(idempotencyRecordRepository.save(record), true);
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent duplicate inserted first; hand back its record instead.
+            return idempotencyRecordRepository.findByCustomerIdAndIdempotencyKey(customerId, idempotencyKey)
+                .map(winner -> new Reservation(winner, false))
+                .orElseThrow(() -> e);
+        }
+    }
+
+    // Returns false when the response could not be stored; the key is then released so a retry
+    // runs again instead of finding the record stuck IN_PROGRESS.
+    public boolean complete(IdempotencyRecord record, int responseStatus, String responseBody) {
+        if (responseBody != null && responseBody.length() > IdempotencyRecord.MAX_RESPONSE_BODY_LENGTH) {
+            System.err.println("[IDEMPOTENCY] Response for key " + record.getIdempotencyKey() + " is too large to store (" + responseBody.length() + " chars). Key released.");
+            release(record);
+            return false;
+        }
+        try {
+            int updated = idempotencyRecordRepository.complete(record.getRecordId(), responseStatus, responseBody, now().plusHours(ttlHours));
+            if (updated == 0) {
+                System.err.println("[IDEMPOTENCY] Lease for key " + record.getIdempotencyKey() + " expired before the response was stored.");
+                return false;
+            }
+            return true;
+        } catch (RuntimeException e) {
+            System.err.println("[IDEMPOTENCY] Could not store the response for key " + record.getIdempotencyKey() + ": " + e.getMessage() + ". Key released.");
+            release(record);
+            return false;
+        }
+    }
+
+    // Best effort: if the delete fails too, the IN_PROGRESS lease still frees the key.
+    public void release(IdempotencyRecord record) {
+        try {
+            idempotencyRecordRepository.deleteById(record.getRecordId());
+        } catch (RuntimeException e) {
+            System.err.println("[IDEMPOTENCY] Could not release key " + record.getIdempotencyKey() + ": " + e.getMessage() + ". It frees itself when its lease expires.");
+        }
+    }
+
+    @Scheduled(cron = "${payment.idempotency.purge-cron:0 */15 * * * *}")
+    public void purgeExpiredKeys() {
+        int purged = idempotencyRecordRepository.deleteExpired(now());
+        if (purged > 0) {
+            System.out.println("[IDEMPOTENCY] Purged " + purged + " expired idempotency key(s).");
+        }
+    }
+
+    private LocalDateTime now() {
+        return LocalDateTime.now(PAYMENT_ZONE);
+    }
+}
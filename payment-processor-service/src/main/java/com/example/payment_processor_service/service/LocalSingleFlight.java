@@ -0,0 +1,56 @@
+package com.example.payment_processor_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// In-process single-flight; only coalesces requests that land on the same instance.
+@Component
+@ConditionalOnProperty(name = "payment.single-flight.mode", havingValue = "local", matchIfMissing = true)
+public class LocalSingleFlight implements SingleFlight {
+
+    private final ConcurrentMap<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalescedCounter;
+
+    public LocalSingleFlight(MeterRegistry meterRegistry) {
+        this.coalescedCounter = Counter.builder("payment.singleflight.coalesced")
+            .description("Requests that joined an identical in-flight request instead of running it again")
+            .tag("scope", "local")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void execute(String key, Runnable work) {
+        CompletableFuture<Void> flight = new CompletableFuture<>();
+        CompletableFuture<Void> existing = inFlight.putIfAbsent(key, flight);
+
+        if (existing != null) {
+            coalescedCounter.increment();
+            try {
+                existing.join();
+                return;
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+
+        try {
+            work.run();
+            flight.complete(null);
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+}
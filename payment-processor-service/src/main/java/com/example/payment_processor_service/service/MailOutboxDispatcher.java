@@ -0,0 +1,88 @@
+package com.example.payment_processor_service.service;
+
+import com.example.payment_processor_service.client.MailClient;
+import com.example.payment_processor_service.client.SendMailRequest;
+import com.example.payment_processor_service.dto.GenericResponse;
+import com.example.payment_processor_service.model.MailOutboxMessage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@Service
+public class MailOutboxDispatcher {
+
+    @Autowired
+    private MailOutboxService mailOutboxService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private MailClient mailClient;
+
+    @Value("${mail.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${mail.outbox.concurrency:8}")
+    private int concurrency;
+
+    // Sent rows are only kept for delivery diagnostics; their bodies are already redacted.
+    @Value("${mail.outbox.retention-minutes:60}")
+    private long retentionMinutes;
+
+    // Blocks while a batch is sent; spring.task.scheduling.pool.size keeps it from holding up the
+    // saga recovery and purge jobs.
+    @Scheduled(fixedDelayString = "${mail.outbox.poll-interval-ms:500}")
+    public void dispatchPendingMail() {
+        List<MailOutboxMessage> batch;
+        do {
+            batch = mailOutboxService.claimBatch(batchSize);
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            // Sends run concurrently on the WebClient; the outcomes are written back in one transaction
+            // from this thread so no JDBC call ever runs on a Netty event loop.
+            List<MailOutboxService.Delivery> deliveries = Flux.fromIterable(batch)
+                .flatMap(this::deliver, concurrency)
+                .collectList()
+                .block();
+
+            mailOutboxService.complete(deliveries);
+
+            long sent = deliveries.stream().filter(delivery -> delivery.error() == null).count();
+            System.out.println("[MAIL OUTBOX] Dispatched " + sent + "/" + deliveries.size() + " queued email(s).");
+        } while (batch.size() == batchSize);
+    }
+
+    @Scheduled(cron = "${mail.outbox.purge-cron:0 */10 * * * *}")
+    public void purgeSentMail() {
+        int purged = mailOutboxService.purgeSentBefore(mailOutboxService.now().minusMinutes(retentionMinutes));
+        if (purged > 0) {
+            System.out.println("[MAIL OUTBOX] Purged " + purged + " sent email(s) older than " + retentionMinutes + " minutes.");
+        }
+    }
+
+    private Mono<MailOutboxService.Delivery> deliver(MailOutboxMessage message) {
+        Mono<String> recipientMono = message.getRecipient() != null ?
+            Mono.just(message.getRecipient()) :
+            paymentService.createCustomerEmailMono(message.getCustomerId());
+
+        return recipientMono
+            .flatMap(recipient -> createSendMailMono(recipient, message.getSubject(), message.getBody(), message.getCustomerId())
+                .thenReturn(new MailOutboxService.Delivery(message, recipient, null)))
+            .onErrorResume(e -> {
+                System.err.println("WARNING: Failed to send queued email " + message.getMessageId() + " via Mail Service: " + e.getMessage());
+                return Mono.just(new MailOutboxService.Delivery(message, null, e));
+            });
+    }
+
+    private Mono<GenericResponse<Void>> createSendMailMono(String to, String subject, String body, Long customerId) {
+        return mailClient.send(customerId, new SendMailRequest(to, subject, body));
+    }
+}
\ No newline at end of file
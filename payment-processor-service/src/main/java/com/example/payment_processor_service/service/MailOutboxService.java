@@ -0,0 +1,158 @@
+package com.example.payment_processor_service.service;
+
+import com.example.payment_processor_service.model.MailOutboxMessage;
+import com.example.payment_processor_service.model.OutboxStatus;
+import com.example.payment_processor_service.repository.MailOutboxRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.text.NumberFormat;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Locale;
+
+@Service
+public class MailOutboxService {
+
+    private static final ZoneId PAYMENT_ZONE = ZoneId.of("Asia/Ho_Chi_Minh");
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    @Autowired
+    private MailOutboxRepository mailOutboxRepository;
+
+    @Value("${mail.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${mail.outbox.lease-seconds:60}")
+    private long leaseSeconds;
+
+    @Value("${mail.outbox.backoff-base-seconds:5}")
+    private long backoffBaseSeconds;
+
+    public record Delivery(MailOutboxMessage message, String recipient, Throwable error) {}
+
+    public MailOutboxMessage enqueueOtpMail(Long customerId, String customerEmail, Long tuitionId, String otpCode, Integer requiredAmount) {
+        String subject = String.format("Mã OTP cho thanh toán học phí (ID: %d)", tuitionId);
+        String body = String.format(
+            "Mã OTP của bạn để xác nhận thanh toán học phí (ID: %d, Số tiền: %s) là: %s. \n\nMã này sẽ hết hạn sau 5 phút.", 
+            tuitionId, 
+            formatAmount(requiredAmount), 
+            otpCode
+        );
+        return enqueue(customerId, customerEmail, subject, body);
+    }
+
+    // Joins the caller's transaction, so the mail exists if and only if the payment was recorded.
+    public MailOutboxMessage enqueuePaymentSuccessMail(Long customerId, Long tuitionId, Integer paidAmount) {
+        String subject = String.format("Thanh toán học phí thành công (ID: %d)", tuitionId);
+        String body = String.format(
+            "Xin chúc mừng! Giao dịch thanh toán học phí (ID: %d) với số tiền %s đã được thực hiện thành công. \n\nCảm ơn bạn đã sử dụng dịch vụ của chúng tôi.", 
+            tuitionId, 
+            formatAmount(paidAmount)
+        );
+        return enqueue(customerId, null, subject, body);
+    }
+
+    public MailOutboxMessage enqueueBatchOtpMail(Long customerId, String customerEmail, List<Long> tuitionIds, String otpCode, Integer totalAmount) {
+        String subject = String.format("Mã OTP cho thanh toán %d khoản học phí", tuitionIds.size());
+        String body = String.format(
+            "Mã OTP của bạn để xác nhận thanh toán các khoản học phí (ID: %s, Tổng số tiền: %s) là: %s. \n\nMã này sẽ hết hạn sau 5 phút.", 
+            joinIds(tuitionIds), 
+            formatAmount(totalAmount), 
+            otpCode
+        );
+        return enqueue(customerId, customerEmail, subject, body);
+    }
+
+    public MailOutboxMessage enqueueBatchPaymentSuccessMail(Long customerId, List<Long> tuitionIds, Integer paidAmount) {
+        String subject = String.format("Thanh toán %d khoản học phí thành công", tuitionIds.size());
+        String body = String.format(
+            "Xin chúc mừng! Giao dịch thanh toán các khoản học phí (ID: %s) với tổng số tiền %s đã được thực hiện thành công. \n\nCảm ơn bạn đã sử dụng dịch vụ của chúng tôi.", 
+            joinIds(tuitionIds), 
+            formatAmount(paidAmount)
+        );
+        return enqueue(customerId, null, subject, body);
+    }
+
+    private MailOutboxMessage enqueue(Long customerId, String recipient, String subject, String body) {
+        LocalDateTime now = now();
+        MailOutboxMessage message = new MailOutboxMessage();
+        message.setCustomerId(customerId);
+        message.setRecipient(recipient);
+        message.setSubject(subject);
+        message.setBody(body);
+        message.setStatus(OutboxStatus.PENDING);
+        message.setAttempts(0);
+        message.setCreatedAt(now);
+        message.setNextAttemptAt(now);
+        return mailOutboxRepository.save(message);
+    }
+
+    // Rows are locked only for the duration of this short transaction; the lease on nextAttemptAt
+    // keeps other dispatchers away while the mail is actually being sent.
+    @Transactional
+    public List<MailOutboxMessage> claimBatch(int batchSize) {
+        LocalDateTime now = now();
+        List<MailOutboxMessage> batch = mailOutboxRepository.lockNextBatch(now, batchSize);
+        for (MailOutboxMessage message : batch) {
+            message.setStatus(OutboxStatus.SENDING);
+            message.setNextAttemptAt(now.plusSeconds(leaseSeconds));
+        }
+        return mailOutboxRepository.saveAll(batch);
+    }
+
+    @Transactional
+    public void complete(List<Delivery> deliveries) {
+        LocalDateTime now = now();
+        for (Delivery delivery : deliveries) {
+            MailOutboxMessage message = delivery.message();
+            message.setAttempts(message.getAttempts() + 1);
+            if (delivery.recipient() != null) {
+                message.setRecipient(delivery.recipient());
+            }
+
+            if (delivery.error() == null) {
+                message.setStatus(OutboxStatus.SENT);
+                message.setSentAt(now);
+                message.setBody(MailOutboxMessage.REDACTED_BODY);
+                message.setLastError(null);
+            } else if (message.getAttempts() >= maxAttempts) {
+                message.setStatus(OutboxStatus.FAILED);
+                message.setBody(MailOutboxMessage.REDACTED_BODY);
+                message.setLastError(describe(delivery.error()));
+                System.err.println("CRITICAL ERROR: Mail " + message.getMessageId() + " for Customer ID " + message.getCustomerId() + " dropped after " + message.getAttempts() + " attempts: " + message.getLastError());
+            } else {
+                long backoffSeconds = backoffBaseSeconds << Math.min(message.getAttempts() - 1, 10);
+                message.setStatus(OutboxStatus.PENDING);
+                message.setNextAttemptAt(now.plusSeconds(backoffSeconds));
+                message.setLastError(describe(delivery.error()));
+            }
+        }
+        mailOutboxRepository.saveAll(deliveries.stream().map(Delivery::message).toList());
+    }
+
+    public int purgeSentBefore(LocalDateTime sentBefore) {
+        return mailOutboxRepository.deleteByStatusAndSentAtBefore(OutboxStatus.SENT, sentBefore);
+    }
+
+    public LocalDateTime now() {
+        return LocalDateTime.now(PAYMENT_ZONE);
+    }
+
+    private String formatAmount(Integer amount) {
+        NumberFormat formatter = NumberFormat.getInstance(Locale.forLanguageTag("vi-VN"));
+        return formatter.format(amount) + " VND";
+    }
+
+    private String joinIds(List<Long> ids) {
+        return String.join(", ", ids.stream().map(String::valueOf).toList());
+    }
+
+    private String describe(Throwable cause) {
+        String message = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
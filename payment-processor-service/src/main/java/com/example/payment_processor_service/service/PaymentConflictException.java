@@ -0,0 +1,11 @@
+package com.example.payment_processor_service.service;
+
+// The request collided with concurrent work on the same customer or tuition (a held payment lock,
+// a concurrent balance or hold update). Nothing was applied and the same request can be retried,
+// so it is answered with 409 and never cached under an Idempotency-Key.
+public class PaymentConflictException extends RuntimeException {
+
+    public PaymentConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.payment_processor_service.service;
+
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+
+// Turns downstream failures into what the controller reports: a 409 for a conflict, a 400 when the
+// downstream message names the failed step, a 500 for everything else.
+final class PaymentFailures {
+
+    private PaymentFailures() {
+    }
+
+    static RuntimeException map(String step, Throwable e) {
+        String rootMessage = e.getMessage();
+        if (isConflict(e)) {
+            return new PaymentConflictException(rootMessage != null && rootMessage.contains(step + ": ") ? rootMessage.substring(rootMessage.indexOf(": ") + 2) : rootMessage, e);
+        }
+        if (rootMessage != null && rootMessage.contains(step + ": ")) {
+            return new IllegalArgumentException(rootMessage.substring(rootMessage.indexOf(": ") + 2), e);
+        }
+        return new RuntimeException("Payment processing failed due to internal error during [" + step + "]: " + e.getMessage(), e);
+    }
+
+    // A 4xx or a call that never left (open breaker, full bulkhead) means the downstream did not act on it.
+    static boolean isDefinitelyNotApplied(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DownstreamRejectedException
+                    || cause instanceof CallNotPermittedException
+                    || cause instanceof BulkheadFullException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isConflict(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PaymentConflictException
+                    || cause instanceof DownstreamRejectedException rejected && rejected.getStatus() == 409) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.payment_processor_service.service;
+
+import com.example.payment_processor_service.model.PaymentSaga;
+import com.example.payment_processor_service.model.PaymentTransaction;
+import com.example.payment_processor_service.model.SagaStatus;
+import com.example.payment_processor_service.repository.PaymentSagaRepository;
+import com.example.payment_processor_service.repository.PaymentTransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+@Service
+public class PaymentSagaLog {
+
+    private static final ZoneId PAYMENT_ZONE = ZoneId.of("Asia/Ho_Chi_Minh");
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    @Autowired
+    private PaymentSagaRepository paymentSagaRepository;
+
+    @Autowired
+    private PaymentTransactionRepository paymentTransactionRepository;
+
+    @Autowired
+    private MailOutboxService mailOutboxService;
+
+    public PaymentSaga start(Long customerId, Long tuitionId) {
+        LocalDateTime now = now();
+        PaymentSaga saga = new PaymentSaga();
+        saga.setCustomerId(customerId);
+        saga.setTuitionId(tuitionId);
+        saga.setStatus(SagaStatus.STARTED);
+        saga.setAttempts(0);
+        saga.setCreatedAt(now);
+        saga.setUpdatedAt(now);
+        return paymentSagaRepository.save(saga);
+    }
+
+    // A batch payment runs one saga per tuition so the recovery worker can finish or refund each
+    // of them on its own; the batch path just moves them through the steps together.
+    @Transactional
+    public List<PaymentSaga> startAll(Long customerId, List<Long> tuitionIds) {
+        return tuitionIds.stream().map(tuitionId -> start(customerId, tuitionId)).toList();
+    }
+
+    @Transactional
+    public void advanceAll(List<PaymentSaga> sagas, SagaStatus status) {
+        sagas.forEach(saga -> advance(saga, status));
+    }
+
+    @Transactional
+    public void advanceAll(List<PaymentSaga> sagas, SagaStatus status, Throwable cause) {
+        sagas.forEach(saga -> advance(saga, status, cause));
+    }
+
+    // Written before the capture/debit call goes out: from here on the saga may have been charged,
+    // and whether it was is looked up by the charge reference rather than assumed.
+    public PaymentSaga requestDebit(PaymentSaga saga, Integer amount, String chargeReference) {
+        saga.setAmount(amount);
+        saga.setChargeReference(chargeReference);
+        return advance(saga, SagaStatus.DEBIT_REQUESTED);
+    }
+
+    // The batch is charged once, so all of its sagas share one charge reference.
+    @Transactional
+    public void requestDebitAll(List<PaymentSaga> sagas, String chargeReference) {
+        sagas.forEach(saga -> {
+            saga.setChargeReference(chargeReference);
+            advance(saga, SagaStatus.DEBIT_REQUESTED);
+        });
+    }
+
+    @Transactional
+    public void recordErrorAll(List<PaymentSaga> sagas, Throwable cause) {
+        sagas.forEach(saga -> recordError(saga, cause));
+    }
+
+    public PaymentSaga advance(PaymentSaga saga, SagaStatus status) {
+        saga.setStatus(status);
+        saga.setUpdatedAt(now());
+        return paymentSagaRepository.save(saga);
+    }
+
+    public PaymentSaga advance(PaymentSaga saga, SagaStatus status, Throwable cause) {
+        saga.setLastError(describe(cause));
+        return advance(saga, status);
+    }
+
+    public PaymentSaga recordError(PaymentSaga saga, Throwable cause) {
+        saga.setLastError(describe(cause));
+        saga.setUpdatedAt(now());
+        return paymentSagaRepository.save(saga);
+    }
+
+    // The payment row, the RECORDED step and the success mail commit together, so recovery never has
+    // to guess whether an existing payment for this tuition belongs to this saga or to a concurrent one.
+    @Transactional
+    public PaymentTransaction record(PaymentSaga saga, PaymentTransaction transaction) {
+        PaymentTransaction saved = paymentTransactionRepository.save(transaction);
+        saga.setPaymentId(saved.getPaymentId());
+        advance(saga, SagaStatus.RECORDED);
+        mailOutboxService.enqueuePaymentSuccessMail(saved.getCustomerId(), saved.getTuitionId(), saved.getAmount());
+        return saved;
+    }
+
+    @Transactional
+    public List<PaymentTransaction> recordBatch(List<PaymentSaga> sagas, List<PaymentTransaction> transactions) {
+        List<PaymentTransaction> saved = paymentTransactionRepository.saveAll(transactions);
+        for (int i = 0; i < sagas.size(); i++) {
+            sagas.get(i).setPaymentId(saved.get(i).getPaymentId());
+        }
+        advanceAll(sagas, SagaStatus.RECORDED);
+        mailOutboxService.enqueueBatchPaymentSuccessMail(
+            sagas.get(0).getCustomerId(),
+            saved.stream().map(PaymentTransaction::getTuitionId).toList(),
+            saved.stream().mapToInt(PaymentTransaction::getAmount).sum());
+        return saved;
+    }
+
+    public boolean claim(PaymentSaga saga) {
+        LocalDateTime now = now();
+        if (paymentSagaRepository.claim(saga.getSagaId(), saga.getUpdatedAt(), now) == 0) {
+            return false;
+        }
+        saga.setUpdatedAt(now);
+        saga.setAttempts(saga.getAttempts() + 1);
+        return true;
+    }
+
+    public LocalDateTime now() {
+        return LocalDateTime.now(PAYMENT_ZONE);
+    }
+
+    private String describe(Throwable cause) {
+        String message = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
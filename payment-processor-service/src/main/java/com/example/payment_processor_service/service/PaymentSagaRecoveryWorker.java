@@ -0,0 +1,82 @@
+package com.example.payment_processor_service.service;
+
+import com.example.payment_processor_service.model.PaymentSaga;
+import com.example.payment_processor_service.model.SagaStatus;
+import com.example.payment_processor_service.repository.PaymentSagaRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+@Service
+public class PaymentSagaRecoveryWorker {
+
+    private static final Set<SagaStatus> RECOVERABLE_STATUSES = EnumSet.of(
+        SagaStatus.STARTED,
+        SagaStatus.OTP_VALIDATED,
+        SagaStatus.DEBIT_REQUESTED,
+        SagaStatus.DEBITED,
+        SagaStatus.TUITION_UPDATED,
+        SagaStatus.COMPENSATION_PENDING
+    );
+
+    @Autowired
+    private PaymentSagaRepository paymentSagaRepository;
+
+    @Autowired
+    private PaymentSagaLog paymentSagaLog;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Value("${payment.saga.recovery.batch-size:50}")
+    private int batchSize;
+
+    @Value("${payment.saga.recovery.concurrency:8}")
+    private int concurrency;
+
+    @Value("${payment.saga.recovery.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    // Must stay well above the longest confirm request, otherwise the worker could pick up a saga
+    // that is still being driven by a live request.
+    @Value("${payment.saga.recovery.stale-after-seconds:120}")
+    private long staleAfterSeconds;
+
+    @Scheduled(fixedDelayString = "${payment.saga.recovery.interval-ms:30000}", initialDelayString = "${payment.saga.recovery.initial-delay-ms:30000}")
+    public void recoverStuckSagas() {
+        List<PaymentSaga> batch;
+        int batches = 0;
+        do {
+            LocalDateTime staleBefore = paymentSagaLog.now().minusSeconds(staleAfterSeconds);
+            batch = paymentSagaRepository.findByStatusInAndUpdatedAtBefore(
+                RECOVERABLE_STATUSES,
+                staleBefore,
+                PageRequest.of(0, batchSize, Sort.by("updatedAt"))
+            );
+
+            if (batch.isEmpty()) {
+                return;
+            }
+            System.out.println("[SAGA RECOVERY] Processing batch of " + batch.size() + " stuck payment saga(s).");
+
+            // Every saga in the batch is claimed (updatedAt bumped) or skipped, so the next query moves on.
+            Flux.fromIterable(batch)
+                .flatMap(saga -> paymentService.recoverSaga(saga)
+                    .onErrorResume(e -> {
+                        System.err.println("[SAGA RECOVERY] Saga " + saga.getSagaId() + " not recovered in this round: " + e.getMessage());
+                        return Mono.empty();
+                    }), concurrency)
+                .blockLast();
+        } while (batch.size() == batchSize && ++batches < maxBatchesPerRun);
+    }
+}
@@ -1,25 +1,41 @@
 package com.example.payment_processor_service.service;
 
+import com.example.payment_processor_service.client.BalanceChangeRequest;
+import com.example.payment_processor_service.client.CustomerClient;
+import com.example.payment_processor_service.client.OtpClient;
+import com.example.payment_processor_service.client.OtpCode;
+import com.example.payment_processor_service.client.OtpRequest;
+import com.example.payment_processor_service.client.TuitionClient;
+import com.example.payment_processor_service.client.TuitionDetails;
+import com.example.payment_processor_service.client.TuitionStatusRequest;
+import com.example.payment_processor_service.dto.CustomerContact;
 import com.example.payment_processor_service.dto.GenericResponse;
+import com.example.payment_processor_service.dto.PaymentHistoryPage;
 import com.example.payment_processor_service.dto.PaymentConfirmationRequest;
 import com.example.payment_processor_service.dto.PaymentInitiateRequest;
+import com.example.payment_processor_service.model.PaymentSaga;
 import com.example.payment_processor_service.model.PaymentTransaction;
+import com.example.payment_processor_service.model.SagaStatus;
 import com.example.payment_processor_service.repository.PaymentTransactionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.transaction.annotation.Isolation;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatusCode;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 import java.util.List;
-import java.util.Locale;
+import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.util.Map;
-import java.text.NumberFormat;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class PaymentService {
@@ -28,411 +44,504 @@ public class PaymentService {
     private PaymentTransactionRepository paymentTransactionRepository;
 
     @Autowired
-    private WebClient webClient;
+    private CustomerClient customerClient;
 
-    private record OtpServiceResponse(String otpCode, String statusMessage) {}
-    
-    private static final String CUSTOMER_SERVICE_BASE_URL = "http://customer-management-service:8082";
-    private static final String TUITION_SERVICE_BASE_URL = "http://tuition-service:8084";
-    private static final String OTP_SERVICE_BASE_URL = "http://otp-service:8085";
-    private static final String MAIL_SERVICE_BASE_URL = "http://mail-service:8086";
+    @Autowired
+    private TuitionClient tuitionClient;
+
+    @Autowired
+    private OtpClient otpClient;
+
+    @Autowired
+    private HedgedReads hedgedReads;
+
+    @Autowired
+    private Scheduler paymentDbScheduler;
+
+    @Autowired
+    private PaymentSagaLog paymentSagaLog;
+
+    @Autowired
+    private MailOutboxService mailOutboxService;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
+    @Autowired
+    private TuitionPaymentLock tuitionPaymentLock;
+
+    @Autowired
+    private FundReservationService fundReservationService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private Cache<Long, Integer> tuitionAmountCache;
+
+    @Autowired
+    private Cache<Long, CustomerContact> customerContactCache;
 
-    private record SendMailRequest(String to, String subject, String body) {}
+    // customerEmail is null when the prefetch failed; MailOutboxDispatcher then looks it up at delivery.
+    private record PaymentContext(Integer requiredAmount, Integer availableBalance, String customerEmail) {}
 
     @Transactional(readOnly = true)
     public List<PaymentTransaction> getPaymentHistory(Long customerId) {
         return paymentTransactionRepository.findByCustomerId(customerId);
     }
 
+    // One extra row is fetched to tell whether another page exists; the cursor encodes the
+    // (paymentDate, paymentId) of the last row returned.
+    @Transactional(readOnly = true)
+    public PaymentHistoryPage getPaymentHistoryPage(Long customerId, String cursor, int size) {
+        List<PaymentTransaction> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = paymentTransactionRepository.findFirstHistoryPage(customerId, size + 1);
+        } else {
+            String[] position = decodeHistoryCursor(cursor);
+            rows = paymentTransactionRepository.findHistoryPageAfter(
+                customerId, LocalDateTime.parse(position[0]), Long.parseLong(position[1]), size + 1);
+        }
+
+        if (rows.size() <= size) {
+            return new PaymentHistoryPage(rows, null);
+        }
+        List<PaymentTransaction> page = rows.subList(0, size);
+        PaymentTransaction last = page.get(size - 1);
+        return new PaymentHistoryPage(List.copyOf(page), encodeHistoryCursor(last));
+    }
+
+    // Rows are handed to the sink one at a time and detached right away, so memory stays flat
+    // regardless of how many payments the customer has.
     @Transactional(readOnly = true)
+    public void streamPaymentHistory(Long customerId, Consumer<PaymentTransaction> sink) {
+        try (Stream<PaymentTransaction> transactions = paymentTransactionRepository.streamByCustomerId(customerId)) {
+            transactions.forEach(transaction -> {
+                sink.accept(transaction);
+                entityManager.detach(transaction);
+            });
+        }
+    }
+
+    private String encodeHistoryCursor(PaymentTransaction transaction) {
+        String position = transaction.getPaymentDate() + "|" + transaction.getPaymentId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeHistoryCursor(String cursor) {
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (position.length != 2) {
+                throw new IllegalArgumentException("Invalid history cursor.");
+            }
+            LocalDateTime.parse(position[0]);
+            Long.parseLong(position[1]);
+            return position;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid history cursor.", e);
+        }
+    }
+
+    // Double clicks and client retries share one in-flight initiate (and one OTP mail) per tuition.
     public void initiatePayment(Long customerId, PaymentInitiateRequest request) {
+        singleFlight.execute("initiate:" + customerId + ":" + request.getTuitionId(), () -> runInitiatePayment(customerId, request));
+    }
+
+    private void runInitiatePayment(Long customerId, PaymentInitiateRequest request) {
         if (paymentTransactionRepository.findByTuitionId(request.getTuitionId()).isPresent()) {
             throw new IllegalArgumentException("Tuition ID " + request.getTuitionId() + " has already been paid.");
         }
 
-        Integer requiredAmount = getRequiredAmount(customerId, request.getTuitionId());
-        Integer availableBalance = getAvailableBalance(customerId);
+        PaymentContext context = fetchPaymentContext(customerId, request.getTuitionId());
+        Integer requiredAmount = context.requiredAmount();
+        Integer availableBalance = context.availableBalance();
         
-        if (availableBalance < requiredAmount) {
+        // With reservations the hold itself is the balance check; funds already held for this
+        // tuition no longer show in the available balance.
+        if (!fundReservationService.isEnabled() && availableBalance < requiredAmount) {
             throw new IllegalArgumentException("Insufficient balance to perform the debit. Required " + requiredAmount + ", available " + availableBalance + ".");
         }
 
-        OtpServiceResponse otpResult = getOtpFromService(customerId, request.getTuitionId(), "/generate");
+        String reference = tuitionReference(request.getTuitionId());
+        fundReservationService.hold(customerId, reference, requiredAmount);
+        OtpCode otpResult = fundReservationService.releaseIfFails(customerId, reference, () -> getOtpFromService(customerId, request.getTuitionId(), "/generate"));
         String otpCode = otpResult.otpCode();
 
         if (!otpResult.statusMessage().contains("Existing")) {
-            String customerEmail = getCustomerEmail(customerId);
-            sendOtpEmail(customerId, request.getTuitionId(), otpCode, requiredAmount, customerEmail);
-            System.out.println("OTP Code for Tuition ID " + request.getTuitionId() + " sent to email: " + customerEmail + " is: " + otpCode);
+            String customerEmail = context.customerEmail();
+            mailOutboxService.enqueueOtpMail(customerId, customerEmail, request.getTuitionId(), otpCode, requiredAmount);
+            System.out.println("OTP Code for Tuition ID " + request.getTuitionId() + " queued for email: " + customerEmail + " is: " + otpCode);
         } else {
              System.out.println("[INFO] Existing OTP reused for Tuition ID " + request.getTuitionId() + ". Skipping email dispatch.");
         }
     }
 
 
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    // Deliberately not @Transactional: a transaction here would hold a pooled connection for the whole
+    // chain of remote calls. The pre-check is a fast path only; the unique tuitionId constraint
+    // enforced when the saga is recorded is what actually prevents a double payment.
     public PaymentTransaction confirmPayment(Long customerId, PaymentConfirmationRequest request) {
-        if (paymentTransactionRepository.findByTuitionId(request.getTuitionId()).isPresent()) {
-            throw new IllegalArgumentException("Tuition ID " + request.getTuitionId() + " has already been paid.");
-        }
-        
-        Mono<GenericResponse<Object>> otpValidateMono = createOtpValidationMono(customerId, request.getTuitionId(), request.getOtpCode());
-        try {
-            otpValidateMono.block();
-        } catch (Exception e) {
-            throw mapToPaymentFailure("OTP Validation Failed", e);
-        }
+        return confirmPaymentReactive(customerId, request).block();
+    }
 
-        Integer requiredAmount = null;
-        try {
-            Mono<GenericResponse<Object>> tuitionMono = createGetTuitionMono(customerId, request.getTuitionId());
-            GenericResponse<Object> tuitionResponse = tuitionMono.block();
-            if (tuitionResponse != null && tuitionResponse.isSuccess() && tuitionResponse.getData() != null) {
-                Object responseData = tuitionResponse.getData();
-                if (responseData instanceof Map) {
-                    Object amountObj = ((Map<?, ?>)responseData).get("amount");
-                    if (amountObj instanceof Number) {
-                        requiredAmount = ((Number)amountObj).intValue(); 
-                    }
+    // Confirm saga composed as a single Mono: no servlet thread waits on the remote calls, and all JPA
+    // work (including every saga step written to payment_sagas) runs on the bounded paymentDbScheduler.
+    // The whole saga runs under the tuition lock, so a concurrent confirm for the same tuition is
+    // rejected up front instead of debiting and then being compensated.
+    public Mono<PaymentTransaction> confirmPaymentReactive(Long customerId, PaymentConfirmationRequest request) {
+        Long tuitionId = request.getTuitionId();
+
+        return tuitionPaymentLock.withLock(List.of(tuitionId), lease -> onDbScheduler(() -> {
+                if (paymentTransactionRepository.findByTuitionId(tuitionId).isPresent()) {
+                    throw new IllegalArgumentException("Tuition ID " + tuitionId + " has already been paid.");
                 }
-            } else {
-                String message = tuitionResponse != null && tuitionResponse.getMessage() != null ? 
-                                 tuitionResponse.getMessage() : 
-                                 "Tuition details could not be retrieved.";
-                throw new RuntimeException(message);
-            }
-        } catch (Exception e) {
-            throw mapToPaymentFailure("Tuition Fetch Failed", e);
-        }
+                return paymentSagaLog.start(customerId, tuitionId);
+            })
+            .flatMap(saga -> runConfirmSaga(saga, request.getOtpCode(), lease)));
+    }
 
-        if (requiredAmount == null) {
-            throw new IllegalArgumentException(
-                "Missing amount in tuition record"
-            );
-        }
-        
-        // 3. Thực hiện Debit
-        Mono<GenericResponse<Integer>> debitMono = createDebitMono(customerId, request.getTuitionId(), requiredAmount); 
-        try {
-            debitMono.block(); 
-        } catch (Exception e) {
-            throw mapToPaymentFailure("Customer Debit Failed", e);
-        }
+    private Mono<PaymentTransaction> runConfirmSaga(PaymentSaga saga, String otpCode, TuitionPaymentLock.Lease lease) {
+        Long customerId = saga.getCustomerId();
+        Long tuitionId = saga.getTuitionId();
+
+        return createOtpValidationMono(customerId, tuitionId, otpCode)
+            .onErrorMap(e -> PaymentFailures.map("OTP Validation Failed", e))
+            .then(onDbScheduler(() -> paymentSagaLog.advance(saga, SagaStatus.OTP_VALIDATED)))
+            .then(createRequiredAmountMono(customerId, tuitionId))
+            .flatMap(requiredAmount -> tuitionPaymentLock.verify(lease)
+                .then(onDbScheduler(() -> paymentSagaLog.requestDebit(saga, requiredAmount, chargeReference(saga)))))
+            .flatMap(requested -> chargeCustomer(customerId, tuitionReference(tuitionId), saga.getChargeReference(), "Tuition Payment for ID " + tuitionId, saga.getAmount()))
+            .then(onDbScheduler(() -> paymentSagaLog.advance(saga, SagaStatus.DEBITED)))
+            .onErrorResume(e -> closeUndebitedSagas(List.of(saga), e))
+            .then(Mono.defer(() -> completeDebitedSaga(saga)));
+    }
 
-        // 4. Update Tuition
-        Mono<GenericResponse<Object>> tuitionUpdateMono = createTuitionUpdateMono(customerId, request, true);
-        try {
-            tuitionUpdateMono.block(); 
-        } catch (Exception e) {
-            compensateCustomerDebit(customerId, requiredAmount, request.getTuitionId());
-            throw mapToPaymentFailure("Tuition Update Failed", e);
+    // Capture or debit under the saga's charge reference. A 4xx or a call that never left (open
+    // breaker, full bulkhead) means nothing was charged. Any other failure may have happened after
+    // customer-management applied the charge, so it is looked up by reference; if that does not
+    // settle it, the saga stays in DEBIT_REQUESTED for the recovery worker.
+    Mono<Void> chargeCustomer(Long customerId, String holdReference, String chargeReference, String description, Integer amount) {
+        return fundReservationService.captureOrDebit(customerId, holdReference, chargeReference, description, amount)
+            .onErrorResume(e -> {
+                if (PaymentFailures.isDefinitelyNotApplied(e)) {
+                    return Mono.error(new ChargeRejectedException(PaymentFailures.map("Customer Debit Failed", e)));
+                }
+                System.err.println("WARNING: Outcome of charge " + chargeReference + " for Customer ID " + customerId + " unknown (" + e.getMessage() + "). Looking it up.");
+                return findChargeMono(customerId, chargeReference)
+                    .onErrorResume(lookupError -> Mono.just(false))
+                    .flatMap(charged -> charged ?
+                        Mono.<Void>empty() :
+                        Mono.<Void>error(new RuntimeException("The outcome of the payment debit is not known yet. The payment will be completed or refunded automatically; please check your payment history shortly.", e)));
+            });
+    }
+
+    private Mono<Boolean> findChargeMono(Long customerId, String chargeReference) {
+        return customerClient.findCharge(customerId, chargeReference)
+            .map(GenericResponse::isSuccess)
+            .defaultIfEmpty(false);
+    }
+
+    // Sagas that were never charged are closed as FAILED. Once DEBIT_REQUESTED is written that is
+    // only known from a definite rejection; any other error (including a failure to write DEBITED
+    // after a successful charge) leaves the sagas for the recovery worker to look up.
+    <T> Mono<T> closeUndebitedSagas(List<PaymentSaga> sagas, Throwable e) {
+        Throwable failure = e instanceof ChargeRejectedException rejected ? rejected.getCause() : e;
+        boolean inDoubt = sagas.get(0).getStatus() == SagaStatus.DEBIT_REQUESTED && !(e instanceof ChargeRejectedException);
+
+        return onDbScheduler(() -> {
+                if (inDoubt) {
+                    paymentSagaLog.recordErrorAll(sagas, failure);
+                } else {
+                    paymentSagaLog.advanceAll(sagas, SagaStatus.FAILED, failure);
+                }
+                return sagas;
+            })
+            .then(Mono.<T>error(failure));
+    }
+
+    private static class ChargeRejectedException extends RuntimeException {
+        ChargeRejectedException(RuntimeException failure) {
+            super(failure.getMessage(), failure);
         }
-        
-        // 5. Record Transaction
+    }
+
+    // Steps after the debit are shared by the request path and the recovery worker.
+    private Mono<PaymentTransaction> completeDebitedSaga(PaymentSaga saga) {
+        return createTuitionUpdateMono(saga.getCustomerId(), saga.getTuitionId(), true)
+            .onErrorResume(e -> this.<GenericResponse<TuitionDetails>>compensateSaga(saga, PaymentFailures.map("Tuition Update Failed", e)))
+            .then(onDbScheduler(() -> paymentSagaLog.advance(saga, SagaStatus.TUITION_UPDATED)))
+            .then(Mono.defer(() -> recordSaga(saga)));
+    }
+
+    // Losing the race on the unique tuitionId constraint means a concurrent confirm already paid
+    // this tuition, so our debit is refunded.
+    private Mono<PaymentTransaction> recordSaga(PaymentSaga saga) {
+        return onDbScheduler(() -> paymentSagaLog.record(saga, buildTransaction(saga.getCustomerId(), saga.getTuitionId(), saga.getAmount())))
+            .onErrorResume(DataIntegrityViolationException.class, e -> this.<PaymentTransaction>compensateSaga(saga,
+                new IllegalArgumentException("Tuition ID " + saga.getTuitionId() + " has already been paid.", e)));
+    }
+
+    // The intent to compensate is written before the credit call, so a crash or a failed credit leaves
+    // the saga in COMPENSATION_PENDING for the recovery worker instead of being retried on this thread.
+    private <T> Mono<T> compensateSaga(PaymentSaga saga, RuntimeException failure) {
+        return onDbScheduler(() -> paymentSagaLog.advance(saga, SagaStatus.COMPENSATION_PENDING, failure))
+            .then(refundSaga(saga))
+            .then(Mono.<T>error(failure))
+            .onErrorResume(e -> e != failure, compensationError -> {
+                System.err.println("CRITICAL ERROR: Compensation (Credit) failed for Customer ID " + saga.getCustomerId() + ". Saga " + saga.getSagaId() + " left in COMPENSATION_PENDING for the recovery worker.");
+                return Mono.<T>error(new RuntimeException("Compensation (Credit) failed for Customer ID: " + saga.getCustomerId() + ". The refund will be retried automatically. " + compensationError.getMessage(), compensationError));
+            });
+    }
+
+    Mono<Void> refundSaga(PaymentSaga saga) {
+        return Mono.defer(() -> {
+                System.err.println("[COMPENSATION] Attempting to CREDIT back amount " + saga.getAmount() + " for customer ID: " + saga.getCustomerId());
+                return createCreditMono(saga);
+            })
+            .then(onDbScheduler(() -> paymentSagaLog.advance(saga, SagaStatus.COMPENSATED)))
+            .doOnSuccess(compensated -> System.err.println("[COMPENSATION SUCCESS] Customer balance credited back for Tuition ID: " + saga.getTuitionId() + ". System state restored."))
+            .then();
+    }
+
+    // Charge keys: the capture and the fallback debit use the same one, so whichever of them applied
+    // can be found again and repeating either is a no-op in customer-management-service.
+    private String chargeReference(PaymentSaga saga) {
+        return "PAYMENT-SAGA-" + saga.getSagaId();
+    }
+
+    // Refunds get their own prefix so a saga's charge and its refund read apart in the ledger.
+    private String refundReference(PaymentSaga saga) {
+        return "PAYMENT-SAGA-REFUND-" + saga.getSagaId();
+    }
+
+    // Called by PaymentSagaRecoveryWorker for sagas that stopped moving. Sagas that stopped before
+    // DEBIT_REQUESTED were never charged and are closed as FAILED; DEBIT_REQUESTED ones are looked up
+    // by charge reference; debited ones are driven forward or refunded.
+    public Mono<Void> recoverSaga(PaymentSaga saga) {
+        return onDbScheduler(() -> paymentSagaLog.claim(saga))
+            .flatMap(claimed -> {
+                if (!claimed) {
+                    return Mono.<Void>empty();
+                }
+                System.out.println("[SAGA RECOVERY] Recovering saga " + saga.getSagaId() + " (Tuition ID " + saga.getTuitionId() + ") from status " + saga.getStatus() + ", attempt " + saga.getAttempts() + ".");
+
+                return switch (saga.getStatus()) {
+                    case STARTED, OTP_VALIDATED -> onDbScheduler(() -> paymentSagaLog.advance(saga, SagaStatus.FAILED,
+                            new IllegalStateException("Abandoned before the debit was requested.")))
+                        .then();
+                    case DEBIT_REQUESTED -> resolveRequestedDebit(saga);
+                    case DEBITED -> completeDebitedSaga(saga).then();
+                    case TUITION_UPDATED -> recordSaga(saga).then();
+                    case COMPENSATION_PENDING -> refundSaga(saga);
+                    default -> Mono.<Void>empty();
+                };
+            })
+            .onErrorResume(e -> onDbScheduler(() -> paymentSagaLog.recordError(saga, e))
+                .then(Mono.<Void>error(e)));
+    }
+
+    // A saga is only recovered once it has been idle for payment.saga.recovery.stale-after-seconds,
+    // far longer than any capture/debit call may take, so a charge that cannot be found now was
+    // never made. Batch sagas share the batch's charge reference and are resolved one by one.
+    private Mono<Void> resolveRequestedDebit(PaymentSaga saga) {
+        return findChargeMono(saga.getCustomerId(), saga.getChargeReference())
+            .flatMap(charged -> charged ?
+                onDbScheduler(() -> paymentSagaLog.advance(saga, SagaStatus.DEBITED))
+                    .then(Mono.defer(() -> completeDebitedSaga(saga)))
+                    .then() :
+                onDbScheduler(() -> paymentSagaLog.advance(saga, SagaStatus.FAILED,
+                        new IllegalStateException("Charge " + saga.getChargeReference() + " was never applied.")))
+                    .then());
+    }
+
+    private <T> Mono<T> onDbScheduler(Callable<T> databaseCall) {
+        return Mono.fromCallable(databaseCall).subscribeOn(paymentDbScheduler);
+    }
+
+    PaymentTransaction buildTransaction(Long customerId, Long tuitionId, Integer amount) {
         PaymentTransaction transaction = new PaymentTransaction();
         transaction.setCustomerId(customerId);
-        transaction.setTuitionId(request.getTuitionId());
-        transaction.setAmount(requiredAmount);
+        transaction.setTuitionId(tuitionId);
+        transaction.setAmount(amount);
         transaction.setPaymentDate(ZonedDateTime.now(ZoneId.of("Asia/Ho_Chi_Minh")).toLocalDateTime());
-        
-        return paymentTransactionRepository.save(transaction);
+        return transaction;
     }
     
 
-    @Transactional(readOnly = true)
     public void resendOtp(Long customerId, PaymentInitiateRequest request) {
+        singleFlight.execute("resend:" + customerId + ":" + request.getTuitionId(), () -> runResendOtp(customerId, request));
+    }
+
+    private void runResendOtp(Long customerId, PaymentInitiateRequest request) {
         if (paymentTransactionRepository.findByTuitionId(request.getTuitionId()).isPresent()) {
             throw new IllegalArgumentException("Tuition ID " + request.getTuitionId() + " has already been paid.");
         }
 
-        Integer requiredAmount = getRequiredAmount(customerId, request.getTuitionId());
-        Integer availableBalance = getAvailableBalance(customerId);
+        PaymentContext context = fetchPaymentContext(customerId, request.getTuitionId());
+        Integer requiredAmount = context.requiredAmount();
+        Integer availableBalance = context.availableBalance();
         
-        if (availableBalance < requiredAmount) {
+        if (!fundReservationService.isEnabled() && availableBalance < requiredAmount) {
             throw new IllegalArgumentException("Insufficient balance to perform the debit. Required " + requiredAmount + ", available " + availableBalance + ".");
         }
 
-        OtpServiceResponse otpResult = getOtpFromService(customerId, request.getTuitionId(), "/resend"); 
+        String reference = tuitionReference(request.getTuitionId());
+        fundReservationService.hold(customerId, reference, requiredAmount);
+        OtpCode otpResult = fundReservationService.releaseIfFails(customerId, reference, () -> getOtpFromService(customerId, request.getTuitionId(), "/resend"));
 
-        String customerEmail = getCustomerEmail(customerId);
-        sendOtpEmail(customerId, request.getTuitionId(), otpResult.otpCode(), requiredAmount, customerEmail);
-        System.out.println("[INFO] Forced RESEND. Old OTP deleted. New OTP for Tuition ID " + request.getTuitionId() + " sent to email: " + customerEmail + " is: " + otpResult.otpCode());
+        String customerEmail = context.customerEmail();
+        mailOutboxService.enqueueOtpMail(customerId, customerEmail, request.getTuitionId(), otpResult.otpCode(), requiredAmount);
+        System.out.println("[INFO] Forced RESEND. Old OTP deleted. New OTP for Tuition ID " + request.getTuitionId() + " queued for email: " + customerEmail + " is: " + otpResult.otpCode());
     }
 
-    private OtpServiceResponse getOtpFromService(Long customerId, Long tuitionId, String endpoint) {
-        Map<String, Object> otpRequest = Map.of("tuitionId", tuitionId);
+    private OtpCode getOtpFromService(Long customerId, Long tuitionId, String endpoint) {
+        return getOtpFromService(customerId, OtpRequest.forTuition(tuitionId), endpoint);
+    }
 
+    OtpCode getOtpFromService(Long customerId, OtpRequest otpRequest, String endpoint) {
         try {
-            GenericResponse<Map<String, String>> otpResponse = webClient.post()
-                .uri(OTP_SERVICE_BASE_URL + endpoint)
-                .header(HttpHeaders.CONTENT_TYPE, "application/json")
-                .header("X-Customer-Id", String.valueOf(customerId))
-                .bodyValue(otpRequest)
-                .retrieve()
-                .bodyToMono(new ParameterizedTypeReference<GenericResponse<Map<String, String>>>() {})
-                .block(); 
-                
-            if (otpResponse != null && otpResponse.isSuccess() && otpResponse.getData() != null && otpResponse.getData().containsKey("otpCode")) {
-                String otpCode = otpResponse.getData().get("otpCode");
-                String statusMessage = otpResponse.getData().getOrDefault("statusMessage", "OTP generated."); 
-                return new OtpServiceResponse(otpCode, statusMessage); 
+            Mono<GenericResponse<OtpCode>> otpMono = "/resend".equals(endpoint) ?
+                otpClient.resend(customerId, otpRequest) :
+                otpClient.generate(customerId, otpRequest);
+            GenericResponse<OtpCode> otpResponse = otpMono.block();
+
+            if (otpResponse != null && otpResponse.isSuccess() && otpResponse.getData() != null && otpResponse.getData().otpCode() != null) {
+                OtpCode otp = otpResponse.getData();
+                return otp.statusMessage() != null ? otp : new OtpCode(otp.otpCode(), "OTP generated.");
             }
             String message = otpResponse != null && otpResponse.getMessage() != null ? 
                              otpResponse.getMessage() : 
                              "Unknown OTP generation error.";
             throw new RuntimeException(message);
         } catch (Exception e) {
-             throw mapToPaymentFailure("OTP Generation Failed", e);
+             throw PaymentFailures.map("OTP Generation Failed", e);
         }
     }
     
-    private Mono<GenericResponse<Object>> createOtpValidationMono(Long customerId, Long tuitionId, String otpCode) {
-        Map<String, Object> validateRequest = Map.of(
-            "tuitionId", tuitionId,
-            "otpCode", otpCode
-        );
-
-        return webClient.post()
-            .uri(OTP_SERVICE_BASE_URL + "/validate")
-            .header(HttpHeaders.CONTENT_TYPE, "application/json")
-            .header("X-Customer-Id", String.valueOf(customerId))
-            .bodyValue(validateRequest)
-            .retrieve()
-            .onStatus(HttpStatusCode::isError, clientResponse -> 
-                clientResponse.bodyToMono(new ParameterizedTypeReference<GenericResponse<Object>>() {})
-                    .flatMap(response -> Mono.error(new RuntimeException("OTP Validation Failed: Invalid or expired OTP.")))
-            )
-            .bodyToMono(new ParameterizedTypeReference<GenericResponse<Object>>() {});
+    private Mono<GenericResponse<Void>> createOtpValidationMono(Long customerId, Long tuitionId, String otpCode) {
+        return otpClient.validate(customerId, OtpRequest.forTuition(tuitionId).withOtpCode(otpCode));
     }
 
-    private String getCustomerEmail(Long customerId) {
-        try {
-            GenericResponse<Map<String, Object>> customerResponse = webClient.get()
-                .uri(CUSTOMER_SERVICE_BASE_URL + "/info")
-                .header("X-Customer-Id", String.valueOf(customerId)) 
-                .retrieve()
-                .bodyToMono(new ParameterizedTypeReference<GenericResponse<Map<String, Object>>>() {})
-                .block();
-                
-            if (customerResponse != null && customerResponse.isSuccess() && customerResponse.getData() != null && customerResponse.getData().containsKey("email")) {
-                return customerResponse.getData().get("email").toString();
-            }
-            throw new RuntimeException("Customer email not found.");
-        } catch (Exception e) {
-             throw new RuntimeException("Failed to fetch customer email: " + e.getMessage(), e);
-        }
+    // Tuition, balance and email lookups are independent, so they are fetched concurrently
+    // and the caller waits for the slowest hop instead of the sum of all of them.
+    private PaymentContext fetchPaymentContext(Long customerId, Long tuitionId) {
+        return Mono.zip(
+                createRequiredAmountMono(customerId, tuitionId),
+                createAvailableBalanceMono(customerId),
+                createPrefetchedEmailMono(customerId)
+            )
+            .map(tuple -> new PaymentContext(tuple.getT1(), tuple.getT2(), tuple.getT3().orElse(null)))
+            .block();
     }
 
-    private void sendOtpEmail(Long customerId, Long tuitionId, String otpCode, Integer requiredAmount, String customerEmail) {
-        
-        NumberFormat formatter = NumberFormat.getInstance(Locale.forLanguageTag("vi-VN"));
-        String formattedAmount = formatter.format(requiredAmount) + " VND";
-        
-        String subject = String.format("Mã OTP cho thanh toán học phí (ID: %d)", tuitionId);
-        String body = String.format(
-            "Mã OTP của bạn để xác nhận thanh toán học phí (ID: %d, Số tiền: %s) là: %s. \n\nMã này sẽ hết hạn sau 5 phút.", 
-            tuitionId, 
-            formattedAmount, 
-            otpCode
-        );
-
-        try {
-            Mono<GenericResponse<Void>> mailMono = createSendMailMono(customerEmail, subject, body, customerId);
-            mailMono.block();
-            System.out.println("OTP Code for Tuition ID " + tuitionId + " successfully sent to email: " + customerEmail);
-
-        } catch (Exception e) {
-            System.err.println("WARNING: Failed to send OTP email via Mail Service: " + e.getMessage());
-        }
+    // The email is only needed if an OTP mail goes out, so failing to prefetch it must not fail
+    // initiate or resend: the mail is queued without a recipient and resolved when it is delivered.
+    Mono<Optional<String>> createPrefetchedEmailMono(Long customerId) {
+        return createCustomerEmailMono(customerId)
+            .map(Optional::of)
+            .onErrorResume(e -> {
+                System.err.println("WARNING: Prefetching the email of Customer ID " + customerId + " failed (" + e.getMessage() + "). Resolving it when the mail is delivered.");
+                return Mono.just(Optional.empty());
+            });
     }
 
-    public void sendPaymentSuccessEmail(Long customerId, Long tuitionId, Integer paidAmount) {
-        String customerEmail = getCustomerEmail(customerId);
-
-        NumberFormat formatter = NumberFormat.getInstance(Locale.forLanguageTag("vi-VN"));
-        String formattedAmount = formatter.format(paidAmount) + " VND";
-        
-        String subject = String.format("Thanh toán học phí thành công (ID: %d)", tuitionId);
-        String body = String.format(
-            "Xin chúc mừng! Giao dịch thanh toán học phí (ID: %d) với số tiền %s đã được thực hiện thành công. \n\nCảm ơn bạn đã sử dụng dịch vụ của chúng tôi.", 
-            tuitionId, 
-            formattedAmount
-        );
-
-        try {
-            Mono<GenericResponse<Void>> mailMono = createSendMailMono(customerEmail, subject, body, customerId);
-            mailMono.block();
-            System.out.println("Payment Success email for Tuition ID " + tuitionId + " successfully sent to email: " + customerEmail);
-        } catch (Exception e) {
-            System.err.println("WARNING: Failed to send Payment Success email via Mail Service: " + e.getMessage());
-        }
+    public Mono<String> createCustomerEmailMono(Long customerId) {
+        return createCustomerContactMono(customerId)
+            .flatMap(contact -> contact.getEmail() != null
+                ? Mono.just(contact.getEmail())
+                : Mono.<String>error(new RuntimeException("Customer email not found.")))
+            .onErrorMap(e -> new RuntimeException("Failed to fetch customer email: " + e.getMessage(), e));
     }
 
-    private Mono<GenericResponse<Void>> createSendMailMono(String to, String subject, String body, Long customerId) {
-        SendMailRequest mailRequest = new SendMailRequest(to, subject, body);
-
-        return webClient.post()
-            .uri(MAIL_SERVICE_BASE_URL + "/send")
-            .header(HttpHeaders.CONTENT_TYPE, "application/json")
-            .header("X-Customer-Id", String.valueOf(customerId)) 
-            .bodyValue(mailRequest)
-            .retrieve()
-            .onStatus(HttpStatusCode::isError, clientResponse -> 
-                clientResponse.bodyToMono(new ParameterizedTypeReference<GenericResponse<Void>>() {})
-                    .flatMap(response -> Mono.error(new RuntimeException("Mail Service Failed: " + response.getMessage())))
-            )
-            .bodyToMono(new ParameterizedTypeReference<GenericResponse<Void>>() {});
+    // Contact details are read through customerContactCache; only misses reach customer-management-service.
+    private Mono<CustomerContact> createCustomerContactMono(Long customerId) {
+        return Mono.defer(() -> {
+            CustomerContact cachedContact = customerContactCache.getIfPresent(customerId);
+            if (cachedContact != null) {
+                return Mono.just(cachedContact);
+            }
+            return customerClient.getContact(customerId)
+                .defaultIfEmpty(new GenericResponse<>())
+                .flatMap(contactResponse -> {
+                    if (contactResponse.isSuccess() && contactResponse.getData() != null) {
+                        return Mono.just(contactResponse.getData());
+                    }
+                    return Mono.<CustomerContact>error(new RuntimeException("Customer contact not found."));
+                })
+                .doOnNext(contact -> customerContactCache.put(customerId, contact));
+        });
     }
-    
-    private void compensateCustomerDebit(Long customerId, Integer amount, Long tuitionId) {
-        System.err.println("[COMPENSATION] Tuition Update failed. Attempting to CREDIT back amount " + amount + " for customer ID: " + customerId);
 
-        Mono<GenericResponse<Integer>> compensationMono = createCreditMono(customerId, tuitionId, amount);
-
-        try {
-            compensationMono.block(); 
-            System.err.println("[COMPENSATION SUCCESS] Customer balance credited back for Tuition ID: " + tuitionId + ". System state restored.");
-        } catch (Exception compensationError) {
-            System.err.println("CRITICAL ERROR: Compensation (Credit) failed for Customer ID " + customerId + ". State is now INCONSISTENT! MANUAL INTERVENTION REQUIRED!");
-            throw new RuntimeException("Compensation (Credit) failed, System state inconsistent. Manual check required for Customer ID: " + customerId + ". " + compensationError.getMessage(), compensationError);
-        }
+    // Initiate, resend and confirm all need the amount of the same tuition, so it is read through
+    // tuitionAmountCache and tuition-service is only hit on a miss.
+    Mono<Integer> createRequiredAmountMono(Long customerId, Long tuitionId) {
+        return Mono.defer(() -> {
+            Integer cachedAmount = tuitionAmountCache.getIfPresent(tuitionId);
+            if (cachedAmount != null) {
+                return Mono.just(cachedAmount);
+            }
+            return fetchRequiredAmountMono(customerId, tuitionId)
+                .doOnNext(amount -> tuitionAmountCache.put(tuitionId, amount));
+        });
     }
 
-    private Integer getRequiredAmount(Long customerId, Long tuitionId) {
-        try {
-            Mono<GenericResponse<Object>> tuitionMono = createGetTuitionMono(customerId, tuitionId);
-            GenericResponse<Object> tuitionResponse = tuitionMono.block();
-            
-            if (tuitionResponse != null && tuitionResponse.isSuccess() && tuitionResponse.getData() instanceof Map) {
-                Map<?, ?> responseData = (Map<?, ?>)tuitionResponse.getData();
-                Object amountObj = responseData.get("amount");
-                
-                if (amountObj instanceof Number) {
-                    return ((Number)amountObj).intValue(); 
+    private Mono<Integer> fetchRequiredAmountMono(Long customerId, Long tuitionId) {
+        return createGetTuitionMono(customerId, tuitionId)
+            .onErrorMap(e -> PaymentFailures.map("Tuition Fetch Failed", e))
+            .defaultIfEmpty(new GenericResponse<>())
+            .flatMap(tuitionResponse -> {
+                TuitionDetails tuition = tuitionResponse.getData();
+                if (tuitionResponse.isSuccess() && tuition != null && tuition.amount() != null) {
+                    return Mono.just(tuition.amount());
                 }
-            }
-            
-            String message = tuitionResponse != null && tuitionResponse.getMessage() != null ? 
-                             tuitionResponse.getMessage() : 
-                             "Tuition details could not be retrieved.";
-            throw new IllegalArgumentException("Missing or invalid amount in tuition record: " + message);
-            
-        } catch (IllegalArgumentException e) {
-            throw e; 
-        } catch (Exception e) {
-            throw mapToPaymentFailure("Tuition Fetch Failed", e);
-        }
+                
+                String message = tuitionResponse.getMessage() != null ? 
+                                 tuitionResponse.getMessage() : 
+                                 "Tuition details could not be retrieved.";
+                return Mono.<Integer>error(new IllegalArgumentException("Missing or invalid amount in tuition record: " + message));
+            });
     }
 
     private Mono<GenericResponse<Integer>> createGetBalanceMono(Long customerId) {
-        return webClient.get()
-            .uri(CUSTOMER_SERVICE_BASE_URL + "/balance")
-            .header("X-Customer-Id", String.valueOf(customerId)) 
-            .retrieve()
-            .onStatus(HttpStatusCode::isError, clientResponse -> 
-                clientResponse.bodyToMono(new ParameterizedTypeReference<GenericResponse<Object>>() {})
-                    .flatMap(response -> Mono.error(new RuntimeException("Customer Balance Fetch Failed: " + response.getMessage())))
-            )
-            .bodyToMono(new ParameterizedTypeReference<GenericResponse<Integer>>() {}); 
+        return hedgedReads.hedge("customer-balance", () -> customerClient.getBalance(customerId));
     }
 
-    private Integer getAvailableBalance(Long customerId) {
-        try {
-            Mono<GenericResponse<Integer>> balanceMono = createGetBalanceMono(customerId);
-            GenericResponse<Integer> balanceResponse = balanceMono.block();
-
-            if (balanceResponse != null && balanceResponse.isSuccess() && balanceResponse.getData() != null) {
-                return balanceResponse.getData();
-            }
-            
-            String message = balanceResponse != null && balanceResponse.getMessage() != null ? 
-                             balanceResponse.getMessage() : 
-                             "Customer balance could not be retrieved.";
-            throw new RuntimeException(message);
+    Mono<Integer> createAvailableBalanceMono(Long customerId) {
+        return createGetBalanceMono(customerId)
+            .defaultIfEmpty(new GenericResponse<>())
+            .flatMap(balanceResponse -> {
+                if (balanceResponse.isSuccess() && balanceResponse.getData() != null) {
+                    return Mono.just(balanceResponse.getData());
+                }
+                
+                String message = balanceResponse.getMessage() != null ? 
+                                 balanceResponse.getMessage() : 
+                                 "Customer balance could not be retrieved.";
+                return Mono.<Integer>error(new RuntimeException(message));
+            })
+            .onErrorMap(e -> PaymentFailures.map("Customer Balance Fetch Failed", e));
+    }
 
-        } catch (Exception e) {
-             throw mapToPaymentFailure("Customer Balance Fetch Failed", e);
-        }
+    private Mono<GenericResponse<TuitionDetails>> createGetTuitionMono(Long customerId, Long tuitionId) {
+        return hedgedReads.hedge("tuition", () -> tuitionClient.getTuition(customerId, tuitionId));
     }
 
-    private Mono<GenericResponse<Object>> createGetTuitionMono(Long customerId, Long tuitionId) {
-        return webClient.get()
-            .uri(TUITION_SERVICE_BASE_URL + "/id/" + tuitionId)
-            .header(HttpHeaders.CONTENT_TYPE, "application/json")
-            .header("X-Customer-Id", String.valueOf(customerId))
-            .retrieve()
-            .onStatus(HttpStatusCode::isError, clientResponse -> 
-                clientResponse.bodyToMono(new ParameterizedTypeReference<GenericResponse<Object>>() {})
-                    .flatMap(response -> {
-                        String message = response.getMessage() != null ? response.getMessage() : "Unknown error";
-                        return Mono.error(new RuntimeException("Tuition Fetch Failed: " + message));
-                    })
-            )
-            .bodyToMono(new ParameterizedTypeReference<GenericResponse<Object>>() {});
-    }
-
-    private Mono<GenericResponse<Integer>> createDebitMono(Long customerId, Long tuitionId, Integer amount) {
-        Map<String, Object> debitRequest = Map.of(
-            "amount", amount,
-            "description", "Tuition Payment for ID " + tuitionId
-        );
-
-        return webClient.post()
-            .uri(CUSTOMER_SERVICE_BASE_URL + "/balance/debit")
-            .header(HttpHeaders.CONTENT_TYPE, "application/json")
-            .header("X-Customer-Id", String.valueOf(customerId))
-            .bodyValue(debitRequest)
-            .retrieve()
-            .onStatus(HttpStatusCode::isError, clientResponse -> 
-                clientResponse.bodyToMono(new ParameterizedTypeReference<GenericResponse<Object>>() {})
-                    .flatMap(response -> Mono.error(new RuntimeException("Customer Debit Failed: " + response.getMessage())))
-            )
-            .bodyToMono(new ParameterizedTypeReference<GenericResponse<Integer>>() {});
-    }
-
-    private Mono<GenericResponse<Integer>> createCreditMono(Long customerId, Long tuitionId, Integer amount) {
-         Map<String, Object> creditRequest = Map.of(
-            "amount", amount,
-            "description", "Compensation Credit for failed Tuition ID: " + tuitionId
-        );
-
-        return webClient.post()
-            .uri(CUSTOMER_SERVICE_BASE_URL + "/balance/credit")
-            .header(HttpHeaders.CONTENT_TYPE, "application/json")
-            .header("X-Customer-Id", String.valueOf(customerId))
-            .bodyValue(creditRequest)
-            .retrieve()
-            .onStatus(HttpStatusCode::isError, clientResponse -> 
-                clientResponse.bodyToMono(new ParameterizedTypeReference<GenericResponse<Object>>() {})
-                    .flatMap(response -> Mono.error(new RuntimeException("Compensation Credit Failed: " + response.getMessage())))
-            )
-            .bodyToMono(new ParameterizedTypeReference<GenericResponse<Integer>>() {});
+    private String tuitionReference(Long tuitionId) {
+        return "TUITION-" + tuitionId;
     }
 
-    private Mono<GenericResponse<Object>> createTuitionUpdateMono(Long customerId, PaymentConfirmationRequest request, boolean isPaid) {
-        Map<String, Object> tuitionUpdateRequest = Map.of(
-            "tuitionId", request.getTuitionId(),
-            "isPaid", isPaid
-        );
-        
-        return webClient.post()
-            .uri(TUITION_SERVICE_BASE_URL + "/status")
-            .header(HttpHeaders.CONTENT_TYPE, "application/json")
-            .header("X-Customer-Id", String.valueOf(customerId))
-            .bodyValue(tuitionUpdateRequest)
-            .retrieve()
-            .onStatus(HttpStatusCode::isError, clientResponse -> 
-                clientResponse.bodyToMono(new ParameterizedTypeReference<GenericResponse<Object>>() {})
-                    .flatMap(response -> Mono.error(new RuntimeException("Tuition Update Failed: " + response.getMessage())))
-            )
-            .bodyToMono(new ParameterizedTypeReference<GenericResponse<Object>>() {});
+    // Refunds are keyed per saga, so the request path and the recovery worker can both send one
+    // and the customer is credited once.
+    private Mono<GenericResponse<Integer>> createCreditMono(PaymentSaga saga) {
+        return customerClient.credit(saga.getCustomerId(), new BalanceChangeRequest(saga.getAmount(), "Compensation Credit for failed Tuition ID: " + saga.getTuitionId(), refundReference(saga)));
     }
-    
-    private RuntimeException mapToPaymentFailure(String step, Exception e) {
-        String rootMessage = e.getMessage();
-        if (rootMessage != null && rootMessage.contains(step + ": ")) {
-            return new IllegalArgumentException(rootMessage.substring(rootMessage.indexOf(": ") + 2), e);
-        }
-        return new RuntimeException("Payment processing failed due to internal error during [" + step + "]: " + e.getMessage(), e);
+
+    private Mono<GenericResponse<TuitionDetails>> createTuitionUpdateMono(Long customerId, Long tuitionId, boolean isPaid) {
+        return tuitionClient.updateStatus(customerId, new TuitionStatusRequest(tuitionId, isPaid))
+            .doOnSuccess(response -> {
+                if (isPaid) {
+                    tuitionAmountCache.invalidate(tuitionId);
+                }
+            });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,180 @@
+package com.example.payment_processor_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Cross-instance single-flight. Requests are first coalesced in-process; the local leader then
+// competes for a Redis lease. The holder runs the work, stores the outcome under a result key and
+// announces it on a pub/sub channel; callers waiting on other instances are woken by that message
+// (or find the stored result) and replay it with the leader's exception type, so a 400 or 409 stays
+// a 400 or 409 for every caller. Followers wait at most one lease.
+@Component
+@ConditionalOnProperty(name = "payment.single-flight.mode", havingValue = "redis")
+public class RedisSingleFlight implements SingleFlight {
+
+    private static final String KEY_PREFIX = "payment:singleflight:";
+    private static final String RESULT_SUFFIX = ":result";
+    private static final String OUTCOME_OK = "OK";
+    private static final String OUTCOME_REJECTED = "REJECTED|";
+    private static final String OUTCOME_CONFLICT = "CONFLICT|";
+    private static final String OUTCOME_FAILED = "FAILED|";
+
+    // Takes the lease and clears the previous flight's result in one step, so a follower can never
+    // read an outcome that does not belong to the flight it joined.
+    private static final DefaultRedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('set', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then " +
+        "redis.call('del', KEYS[2]) return 1 end return 0",
+        Long.class);
+
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+        Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final LocalSingleFlight localSingleFlight;
+    private final Counter coalescedCounter;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    // Followers on this instance, by result key; completed by the leader's pub/sub message.
+    private final ConcurrentMap<String, Set<CompletableFuture<String>>> waiters = new ConcurrentHashMap<>();
+
+    @Value("${payment.single-flight.lease-ms:30000}")
+    private long leaseMs;
+
+    @Value("${payment.single-flight.result-ttl-ms:10000}")
+    private long resultTtlMs;
+
+    public RedisSingleFlight(StringRedisTemplate redisTemplate, RedisConnectionFactory connectionFactory, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.localSingleFlight = new LocalSingleFlight(meterRegistry);
+        this.coalescedCounter = Counter.builder("payment.singleflight.coalesced")
+            .description("Requests that joined an identical in-flight request instead of running it again")
+            .tag("scope", "redis")
+            .register(meterRegistry);
+        this.listenerContainer = new RedisMessageListenerContainer();
+        this.listenerContainer.setConnectionFactory(connectionFactory);
+        this.listenerContainer.addMessageListener((message, pattern) -> complete(
+                new String(message.getChannel(), StandardCharsets.UTF_8),
+                new String(message.getBody(), StandardCharsets.UTF_8)),
+            new PatternTopic(KEY_PREFIX + "*" + RESULT_SUFFIX));
+    }
+
+    @PostConstruct
+    public void start() {
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws Exception {
+        listenerContainer.destroy();
+    }
+
+    @Override
+    public void execute(String key, Runnable work) {
+        localSingleFlight.execute(key, () -> executeAcrossInstances(key, work));
+    }
+
+    private void executeAcrossInstances(String key, Runnable work) {
+        String leaseKey = KEY_PREFIX + key + ":lease";
+        String resultKey = KEY_PREFIX + key + RESULT_SUFFIX;
+        String token = UUID.randomUUID().toString();
+
+        Long leader = redisTemplate.execute(ACQUIRE_SCRIPT, List.of(leaseKey, resultKey), token, String.valueOf(leaseMs));
+        if (!Long.valueOf(1L).equals(leader)) {
+            coalescedCounter.increment();
+            replay(awaitOutcome(resultKey));
+            return;
+        }
+
+        try {
+            work.run();
+            publish(resultKey, OUTCOME_OK);
+        } catch (IllegalArgumentException e) {
+            publish(resultKey, OUTCOME_REJECTED + e.getMessage());
+            throw e;
+        } catch (PaymentConflictException e) {
+            publish(resultKey, OUTCOME_CONFLICT + e.getMessage());
+            throw e;
+        } catch (RuntimeException e) {
+            publish(resultKey, OUTCOME_FAILED + e.getMessage());
+            throw e;
+        } finally {
+            redisTemplate.execute(RELEASE_SCRIPT, List.of(leaseKey), token);
+        }
+    }
+
+    // The result key serves followers that subscribe after the announcement; the channel (named
+    // after the result key) wakes the ones already waiting.
+    private void publish(String resultKey, String outcome) {
+        redisTemplate.opsForValue().set(resultKey, outcome, Duration.ofMillis(resultTtlMs));
+        redisTemplate.convertAndSend(resultKey, outcome);
+    }
+
+    // Registers before reading the result key, so an announcement between the two is not missed.
+    private String awaitOutcome(String resultKey) {
+        CompletableFuture<String> outcome = new CompletableFuture<>();
+        waiters.computeIfAbsent(resultKey, k -> new CopyOnWriteArraySet<>()).add(outcome);
+        try {
+            String stored = redisTemplate.opsForValue().get(resultKey);
+            if (stored != null) {
+                return stored;
+            }
+            return outcome.get(leaseMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new RuntimeException("An identical request is still being processed. Please retry shortly.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for an identical in-flight request.", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed while waiting for an identical in-flight request.", e.getCause());
+        } finally {
+            waiters.computeIfPresent(resultKey, (k, futures) -> {
+                futures.remove(outcome);
+                return futures.isEmpty() ? null : futures;
+            });
+        }
+    }
+
+    private void complete(String resultKey, String outcome) {
+        Set<CompletableFuture<String>> futures = waiters.get(resultKey);
+        if (futures != null) {
+            futures.forEach(future -> future.complete(outcome));
+        }
+    }
+
+    private void replay(String outcome) {
+        if (outcome.startsWith(OUTCOME_REJECTED)) {
+            throw new IllegalArgumentException(outcome.substring(OUTCOME_REJECTED.length()));
+        }
+        if (outcome.startsWith(OUTCOME_CONFLICT)) {
+            throw new PaymentConflictException(outcome.substring(OUTCOME_CONFLICT.length()), null);
+        }
+        if (outcome.startsWith(OUTCOME_FAILED)) {
+            throw new RuntimeException(outcome.substring(OUTCOME_FAILED.length()));
+        }
+    }
+}
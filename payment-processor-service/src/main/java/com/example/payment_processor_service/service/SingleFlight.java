@@ -0,0 +1,8 @@
+package com.example.payment_processor_service.service;
+
+// Collapses concurrent executions of the same key into one: the first caller runs the work and
+// every caller that arrives while it is in flight gets the same outcome instead of running it again.
+public interface SingleFlight {
+
+    void execute(String key, Runnable work);
+}
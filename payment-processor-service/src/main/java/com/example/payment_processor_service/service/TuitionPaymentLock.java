@@ -0,0 +1,148 @@
+package com.example.payment_processor_service.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+// Lease-based lock per tuitionId in Redis, so concurrent confirms for the same tuition are usually
+// turned away before any of them debits the customer. Each acquisition stores a random owner token
+// as the lock value, so only the current holder can extend or release it. This is not fencing:
+// nothing downstream checks the token, and a holder paused past its lease can still debit. A single
+// payment per tuition is guaranteed by the unique tuition_id on payment_transactions, with the
+// loser refunded. Only the lock key exists in Redis, and it carries the lease TTL.
+@Component
+public class TuitionPaymentLock {
+
+    private static final String LOCK_KEY_PREFIX = "payment:lock:tuition:";
+
+    private static final RedisScript<Long> EXTEND_SCRIPT = RedisScript.of(
+        "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+        Long.class);
+
+    private static final RedisScript<Long> RELEASE_SCRIPT = RedisScript.of(
+        "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+        Long.class);
+
+    @Autowired
+    private ReactiveStringRedisTemplate redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${payment.tuition-lock.lease-ms:30000}")
+    private long leaseMs;
+
+    @Value("${payment.tuition-lock.wait-ms:2000}")
+    private long waitMs;
+
+    @Value("${payment.tuition-lock.retry-interval-ms:50}")
+    private long retryIntervalMs;
+
+    public record Lease(Map<Long, String> ownerTokens, long acquiredAtNanos) {}
+
+    private static class LockBusyException extends RuntimeException {
+        LockBusyException() {
+            super(null, null, false, false);
+        }
+    }
+
+    // Locks are taken in ascending tuitionId order so overlapping batches cannot deadlock, and
+    // are always released when the work terminates, whatever the outcome.
+    public <T> Mono<T> withLock(Collection<Long> tuitionIds, Function<Lease, Mono<T>> work) {
+        List<Long> orderedIds = tuitionIds.stream().distinct().sorted().toList();
+        return Mono.usingWhen(
+            acquire(orderedIds),
+            work,
+            this::release,
+            (lease, error) -> release(lease),
+            this::release);
+    }
+
+    // Re-checks ownership right before the debit and pushes the lease out again. This narrows the
+    // window for an expired lease but cannot close it (check-then-act).
+    public Mono<Void> verify(Lease lease) {
+        return Flux.fromIterable(lease.ownerTokens().entrySet())
+            .concatMap(entry -> redisTemplate.execute(EXTEND_SCRIPT, List.of(LOCK_KEY_PREFIX + entry.getKey()),
+                    List.of(entry.getValue(), String.valueOf(leaseMs)))
+                .next()
+                .flatMap(extended -> extended == 1L
+                    ? Mono.<Void>empty()
+                    : Mono.<Void>error(new PaymentConflictException("Payment lock for Tuition ID " + entry.getKey() + " expired before the debit. Please retry.", null))))
+            .then();
+    }
+
+    private Mono<Lease> acquire(List<Long> tuitionIds) {
+        return Mono.defer(() -> {
+            long startedAt = System.nanoTime();
+            Map<Long, String> ownerTokens = new LinkedHashMap<>();
+
+            return Flux.fromIterable(tuitionIds)
+                .concatMap(tuitionId -> acquireOne(tuitionId).doOnNext(token -> ownerTokens.put(tuitionId, token)))
+                .then(Mono.fromCallable(() -> new Lease(Map.copyOf(ownerTokens), System.nanoTime())))
+                .timeout(Duration.ofMillis(waitMs))
+                .doOnSuccess(lease -> recordWait(startedAt, "acquired"))
+                .onErrorResume(e -> {
+                    recordWait(startedAt, e instanceof TimeoutException ? "timeout" : "error");
+                    Mono<Void> rollback = release(new Lease(Map.copyOf(ownerTokens), startedAt));
+                    if (e instanceof TimeoutException) {
+                        return rollback.then(Mono.error(new PaymentConflictException(
+                            "Another payment for Tuition ID(s) " + tuitionIds + " is already in progress. Please retry shortly.", e)));
+                    }
+                    return rollback.then(Mono.error(e));
+                });
+        });
+    }
+
+    private Mono<String> acquireOne(Long tuitionId) {
+        String token = UUID.randomUUID().toString();
+        return redisTemplate.opsForValue().setIfAbsent(LOCK_KEY_PREFIX + tuitionId, token, Duration.ofMillis(leaseMs))
+            .flatMap(acquired -> acquired ? Mono.just(token) : Mono.<String>error(new LockBusyException()))
+            .retryWhen(Retry.fixedDelay(Long.MAX_VALUE, Duration.ofMillis(retryIntervalMs))
+                .filter(LockBusyException.class::isInstance));
+    }
+
+    private Mono<Void> release(Lease lease) {
+        return Flux.fromIterable(lease.ownerTokens().entrySet())
+            .concatMap(entry -> redisTemplate.execute(RELEASE_SCRIPT, List.of(LOCK_KEY_PREFIX + entry.getKey()),
+                List.of(entry.getValue())))
+            .then()
+            .doOnSuccess(released -> {
+                if (!lease.ownerTokens().isEmpty()) {
+                    Timer.builder("payment.tuition_lock.hold")
+                        .description("Time a tuition payment lock was held")
+                        .register(meterRegistry)
+                        .record(System.nanoTime() - lease.acquiredAtNanos(), TimeUnit.NANOSECONDS);
+                }
+            })
+            .onErrorResume(e -> {
+                // The lease expires on its own; a failed release only delays the next payer.
+                System.err.println("WARNING: Failed to release payment lock for Tuition ID(s) " + lease.ownerTokens().keySet() + ": " + e.getMessage());
+                return Mono.empty();
+            });
+    }
+
+    private void recordWait(long startedAt, String outcome) {
+        Timer.builder("payment.tuition_lock.wait")
+            .description("Time spent waiting for a tuition payment lock")
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+    }
+}
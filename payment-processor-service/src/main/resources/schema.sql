@@ -0,0 +1,63 @@
+-- Payment tables survive restarts: in-doubt sagas, queued mails and idempotency keys are exactly
+-- what a restarted instance has to pick up again.
+CREATE TABLE IF NOT EXISTS payment_transactions (
+    payment_id BIGSERIAL PRIMARY KEY,
+    customer_id BIGINT NOT NULL,
+    tuition_id BIGINT NOT NULL UNIQUE,
+    amount INTEGER NOT NULL,
+    payment_date TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_payment_transactions_customer_date_id ON payment_transactions (customer_id, payment_date, payment_id);
+
+CREATE TABLE IF NOT EXISTS payment_sagas (
+    saga_id BIGSERIAL PRIMARY KEY,
+    customer_id BIGINT NOT NULL,
+    tuition_id BIGINT NOT NULL,
+    amount INTEGER,
+    status VARCHAR(32) NOT NULL,
+    payment_id BIGINT,
+    attempts INTEGER NOT NULL,
+    last_error VARCHAR(1000),
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_payment_sagas_status_updated_at ON payment_sagas (status, updated_at);
+
+CREATE TABLE IF NOT EXISTS mail_outbox (
+    message_id BIGSERIAL PRIMARY KEY,
+    customer_id BIGINT NOT NULL,
+    recipient VARCHAR(255),
+    subject VARCHAR(500) NOT NULL,
+    body VARCHAR(4000) NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    attempts INTEGER NOT NULL,
+    last_error VARCHAR(1000),
+    created_at TIMESTAMP(6) NOT NULL,
+    next_attempt_at TIMESTAMP(6) NOT NULL,
+    sent_at TIMESTAMP(6)
+);
+
+CREATE INDEX IF NOT EXISTS idx_mail_outbox_status_next_attempt_at ON mail_outbox (status, next_attempt_at);
+
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    record_id BIGSERIAL PRIMARY KEY,
+    customer_id BIGINT NOT NULL,
+    idempotency_key VARCHAR(128) NOT NULL,
+    request_path VARCHAR(255) NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    response_status INTEGER,
+    response_body VARCHAR(8000),
+    created_at TIMESTAMP(6) NOT NULL,
+    expires_at TIMESTAMP(6) NOT NULL,
+    CONSTRAINT uk_idempotency_keys_customer_key UNIQUE (customer_id, idempotency_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_expires_at ON idempotency_keys (expires_at);
+
+ALTER TABLE payment_sagas ADD COLUMN IF NOT EXISTS charge_reference VARCHAR(128);
+
+ALTER TABLE idempotency_keys ADD COLUMN IF NOT EXISTS request_hash VARCHAR(64);
+
+ALTER TABLE payment_sagas DROP COLUMN IF EXISTS fencing_token;
@@ -0,0 +1,204 @@
+package com.example.payment_processor_service.config;
+
+import com.example.payment_processor_service.model.IdempotencyRecord;
+import com.example.payment_processor_service.model.IdempotencyStatus;
+import com.example.payment_processor_service.service.IdempotencyService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotencyFilterTest {
+
+	private static final String BODY = "{\"tuitionId\":9,\"otpCode\":\"123456\"}";
+
+	private IdempotencyService idempotencyService;
+	private IdempotencyFilter filter;
+	private IdempotencyRecord record;
+
+	@BeforeEach
+	void setUp() {
+		idempotencyService = mock(IdempotencyService.class);
+		filter = new IdempotencyFilter();
+		ReflectionTestUtils.setField(filter, "idempotencyService", idempotencyService);
+		ReflectionTestUtils.setField(filter, "objectMapper", new ObjectMapper());
+
+		record = new IdempotencyRecord();
+		record.setRecordId(5L);
+		record.setIdempotencyKey("key-1");
+		record.setRequestPath("/confirm");
+		record.setRequestHash(sha256(BODY));
+	}
+
+	@Test
+	void successfulResponseIsStoredAndTheControllerStillReadsTheBody() throws Exception {
+		ownsKey();
+		AtomicReference<String> bodySeen = new AtomicReference<>();
+
+		MockHttpServletResponse response = filter(confirmRequest(), (request, servletResponse) -> {
+			bodySeen.set(StreamUtils.copyToString(request.getInputStream(), StandardCharsets.UTF_8));
+			servletResponse.getWriter().write("{\"success\":true}");
+		});
+
+		assertThat(bodySeen.get()).isEqualTo(BODY);
+		assertThat(response.getContentAsString()).isEqualTo("{\"success\":true}");
+		verify(idempotencyService).complete(record, 200, "{\"success\":true}");
+	}
+
+	@Test
+	void rejectedInputReleasesTheKeySoACorrectedRetryRuns() throws Exception {
+		ownsKey();
+
+		filter(confirmRequest(), (request, servletResponse) -> {
+			((HttpServletResponse) servletResponse).setStatus(400);
+			servletResponse.getWriter().write("{\"success\":false,\"message\":\"Invalid OTP.\"}");
+		});
+
+		verify(idempotencyService).release(record);
+		verify(idempotencyService, never()).complete(any(), anyInt(), anyString());
+	}
+
+	@Test
+	void conflictsAndServerErrorsReleaseTheKey() throws Exception {
+		for (int status : List.of(409, 429, 500, 503)) {
+			ownsKey();
+			filter(confirmRequest(), (request, servletResponse) -> ((HttpServletResponse) servletResponse).setStatus(status));
+		}
+
+		verify(idempotencyService, times(4)).release(record);
+		verify(idempotencyService, never()).complete(any(), anyInt(), anyString());
+	}
+
+	@Test
+	void completedKeyIsReplayedWithoutRunningTheRequest() throws Exception {
+		record.setStatus(IdempotencyStatus.COMPLETED);
+		record.setResponseStatus(200);
+		record.setResponseBody("{\"success\":true}");
+		existingKey();
+		List<String> calls = new ArrayList<>();
+
+		MockHttpServletResponse response = filter(confirmRequest(), (request, servletResponse) -> calls.add("controller"));
+
+		assertThat(calls).isEmpty();
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+		assertThat(response.getContentAsString()).isEqualTo("{\"success\":true}");
+	}
+
+	@Test
+	void keyReusedWithADifferentBodyIsRejected() throws Exception {
+		record.setStatus(IdempotencyStatus.COMPLETED);
+		record.setRequestHash(sha256("{\"tuitionId\":10}"));
+		existingKey();
+
+		MockHttpServletResponse response = filter(confirmRequest(), (request, servletResponse) -> {});
+
+		assertThat(response.getStatus()).isEqualTo(422);
+	}
+
+	@Test
+	void keyStillInProgressAnswersConflict() throws Exception {
+		record.setStatus(IdempotencyStatus.IN_PROGRESS);
+		existingKey();
+
+		MockHttpServletResponse response = filter(confirmRequest(), (request, servletResponse) -> {});
+
+		assertThat(response.getStatus()).isEqualTo(409);
+	}
+
+	@Test
+	void bufferedBodySupportsReadListeners() throws Exception {
+		ownsKey();
+		List<String> events = new ArrayList<>();
+
+		filter(confirmRequest(), (request, servletResponse) -> {
+			ServletInputStream input = request.getInputStream();
+			input.setReadListener(new ReadListener() {
+				@Override
+				public void onDataAvailable() {
+					events.add("data:" + new String(readAll(input), StandardCharsets.UTF_8));
+				}
+
+				@Override
+				public void onAllDataRead() {
+					events.add("done");
+				}
+
+				@Override
+				public void onError(Throwable t) {
+					events.add("error");
+				}
+			});
+		});
+
+		assertThat(events).containsExactly("data:" + BODY, "done");
+	}
+
+	private void ownsKey() {
+		when(idempotencyService.reserve(eq(1L), eq("key-1"), eq("/confirm"), eq(sha256(BODY))))
+			.thenReturn(new IdempotencyService.Reservation(record, true));
+	}
+
+	private void existingKey() {
+		when(idempotencyService.reserve(eq(1L), eq("key-1"), eq("/confirm"), anyString()))
+			.thenReturn(new IdempotencyService.Reservation(record, false));
+	}
+
+	private static MockHttpServletRequest confirmRequest() {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/confirm");
+		request.setServletPath("/confirm");
+		request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, "key-1");
+		request.addHeader(GatewayAuthFilter.CUSTOMER_ID_HEADER, "1");
+		request.setContentType("application/json");
+		request.setContent(BODY.getBytes(StandardCharsets.UTF_8));
+		return request;
+	}
+
+	private MockHttpServletResponse filter(MockHttpServletRequest request, FilterChain chain) throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, chain);
+		return response;
+	}
+
+	private static byte[] readAll(ServletInputStream input) {
+		try {
+			return input.readAllBytes();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String sha256(String body) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body.getBytes(StandardCharsets.UTF_8)));
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
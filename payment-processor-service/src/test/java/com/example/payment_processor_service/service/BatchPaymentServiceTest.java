@@ -0,0 +1,195 @@
+package com.example.payment_processor_service.service;
+
+import com.example.payment_processor_service.client.BalanceChangeRequest;
+import com.example.payment_processor_service.client.CustomerClient;
+import com.example.payment_processor_service.client.OtpClient;
+import com.example.payment_processor_service.client.OtpRequest;
+import com.example.payment_processor_service.client.TuitionBatchStatusRequest;
+import com.example.payment_processor_service.client.TuitionClient;
+import com.example.payment_processor_service.dto.BatchPaymentConfirmationRequest;
+import com.example.payment_processor_service.dto.BatchPaymentInitiateRequest;
+import com.example.payment_processor_service.dto.GenericResponse;
+import com.example.payment_processor_service.model.PaymentSaga;
+import com.example.payment_processor_service.model.PaymentTransaction;
+import com.example.payment_processor_service.model.SagaStatus;
+import com.example.payment_processor_service.repository.PaymentTransactionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+// Batch confirm with reservations off: one OTP check and one debit for the whole batch, while the
+// sagas are still refunded one by one.
+class BatchPaymentServiceTest {
+
+	private static final Long CUSTOMER_ID = 7L;
+	private static final String OTP_CODE = "123456";
+
+	private CustomerClient customerClient;
+	private TuitionClient tuitionClient;
+	private OtpClient otpClient;
+	private PaymentSagaLog paymentSagaLog;
+	private PaymentTransactionRepository paymentTransactionRepository;
+	private Cache<Long, Integer> tuitionAmountCache;
+	private List<PaymentSaga> sagas;
+	private BatchPaymentService batchPaymentService;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		customerClient = mock(CustomerClient.class);
+		tuitionClient = mock(TuitionClient.class);
+		otpClient = mock(OtpClient.class);
+		paymentSagaLog = mock(PaymentSagaLog.class);
+		paymentTransactionRepository = mock(PaymentTransactionRepository.class);
+		tuitionAmountCache = Caffeine.newBuilder().build();
+		tuitionAmountCache.put(9L, 500);
+		tuitionAmountCache.put(10L, 700);
+
+		FundReservationService fundReservationService = new FundReservationService();
+		ReflectionTestUtils.setField(fundReservationService, "customerClient", customerClient);
+		ReflectionTestUtils.setField(fundReservationService, "reservationsEnabled", false);
+
+		TuitionPaymentLock.Lease lease = new TuitionPaymentLock.Lease(Map.of(), 0L);
+		TuitionPaymentLock tuitionPaymentLock = mock(TuitionPaymentLock.class);
+		when(tuitionPaymentLock.withLock(any(), any())).thenAnswer(invocation ->
+			invocation.<Function<TuitionPaymentLock.Lease, Mono<?>>>getArgument(1).apply(lease));
+		when(tuitionPaymentLock.verify(lease)).thenReturn(Mono.empty());
+
+		PaymentService paymentService = new PaymentService();
+		ReflectionTestUtils.setField(paymentService, "customerClient", customerClient);
+		ReflectionTestUtils.setField(paymentService, "paymentSagaLog", paymentSagaLog);
+		ReflectionTestUtils.setField(paymentService, "paymentDbScheduler", Schedulers.immediate());
+		ReflectionTestUtils.setField(paymentService, "fundReservationService", fundReservationService);
+		ReflectionTestUtils.setField(paymentService, "tuitionAmountCache", tuitionAmountCache);
+
+		batchPaymentService = new BatchPaymentService();
+		ReflectionTestUtils.setField(batchPaymentService, "paymentService", paymentService);
+		ReflectionTestUtils.setField(batchPaymentService, "paymentTransactionRepository", paymentTransactionRepository);
+		ReflectionTestUtils.setField(batchPaymentService, "tuitionClient", tuitionClient);
+		ReflectionTestUtils.setField(batchPaymentService, "otpClient", otpClient);
+		ReflectionTestUtils.setField(batchPaymentService, "paymentDbScheduler", Schedulers.immediate());
+		ReflectionTestUtils.setField(batchPaymentService, "paymentSagaLog", paymentSagaLog);
+		ReflectionTestUtils.setField(batchPaymentService, "tuitionPaymentLock", tuitionPaymentLock);
+		ReflectionTestUtils.setField(batchPaymentService, "fundReservationService", fundReservationService);
+		ReflectionTestUtils.setField(batchPaymentService, "tuitionAmountCache", tuitionAmountCache);
+		ReflectionTestUtils.setField(batchPaymentService, "maxBatchSize", 2);
+
+		sagas = List.of(saga(41L, 9L), saga(42L, 10L));
+		when(paymentTransactionRepository.findByTuitionIdIn(List.of(9L, 10L))).thenReturn(List.of());
+		when(paymentSagaLog.startAll(CUSTOMER_ID, List.of(9L, 10L))).thenReturn(sagas);
+		doAnswer(invocation -> {
+			List<PaymentSaga> requested = invocation.getArgument(0);
+			requested.forEach(saga -> {
+				saga.setChargeReference(invocation.getArgument(1));
+				saga.setStatus(SagaStatus.DEBIT_REQUESTED);
+			});
+			return null;
+		}).when(paymentSagaLog).requestDebitAll(anyList(), any());
+		when(otpClient.validate(eq(CUSTOMER_ID), any())).thenReturn(Mono.just(GenericResponse.success("ok")));
+	}
+
+	@Test
+	void batchIsChargedOnceAndEveryTuitionRecorded() {
+		when(customerClient.debit(eq(CUSTOMER_ID), any())).thenReturn(Mono.just(GenericResponse.success("ok", 3800)));
+		when(tuitionClient.updateStatuses(eq(CUSTOMER_ID), any())).thenReturn(Mono.just(GenericResponse.success("ok")));
+		when(paymentSagaLog.recordBatch(eq(sagas), anyList())).thenAnswer(invocation -> invocation.getArgument(1));
+
+		List<PaymentTransaction> transactions = batchPaymentService.confirmBatchPayment(CUSTOMER_ID, confirmation(10L, 9L));
+
+		assertThat(transactions).extracting(PaymentTransaction::getTuitionId, PaymentTransaction::getAmount)
+			.containsExactly(tuple(9L, 500), tuple(10L, 700));
+		verify(otpClient).validate(CUSTOMER_ID, OtpRequest.forReference("BATCH-9-10").withOtpCode(OTP_CODE));
+		verify(customerClient).debit(CUSTOMER_ID, new BalanceChangeRequest(1200, "Tuition Payment for IDs [9, 10]", "PAYMENT-BATCH-41"));
+		verify(tuitionClient).updateStatuses(CUSTOMER_ID, new TuitionBatchStatusRequest(List.of(9L, 10L), true));
+		assertThat(tuitionAmountCache.getIfPresent(9L)).isNull();
+
+		InOrder order = inOrder(paymentSagaLog);
+		order.verify(paymentSagaLog).advanceAll(sagas, SagaStatus.OTP_VALIDATED);
+		order.verify(paymentSagaLog).requestDebitAll(sagas, "PAYMENT-BATCH-41");
+		order.verify(paymentSagaLog).advanceAll(sagas, SagaStatus.DEBITED);
+		order.verify(paymentSagaLog).advanceAll(sagas, SagaStatus.TUITION_UPDATED);
+		order.verify(paymentSagaLog).recordBatch(eq(sagas), anyList());
+	}
+
+	@Test
+	void failedTuitionUpdateRefundsEverySagaUnderItsOwnReference() {
+		when(customerClient.debit(eq(CUSTOMER_ID), any())).thenReturn(Mono.just(GenericResponse.success("ok", 3800)));
+		when(tuitionClient.updateStatuses(eq(CUSTOMER_ID), any())).thenReturn(Mono.error(new DownstreamServerException("tuition-service unavailable")));
+		when(customerClient.credit(eq(CUSTOMER_ID), any())).thenReturn(Mono.just(GenericResponse.success("ok", 5000)));
+
+		assertThatThrownBy(() -> batchPaymentService.confirmBatchPayment(CUSTOMER_ID, confirmation(9L, 10L)))
+			.hasMessageContaining("[Tuition Update Failed]");
+
+		ArgumentCaptor<BalanceChangeRequest> refunds = ArgumentCaptor.forClass(BalanceChangeRequest.class);
+		verify(customerClient, times(2)).credit(eq(CUSTOMER_ID), refunds.capture());
+		assertThat(refunds.getAllValues()).extracting(BalanceChangeRequest::reference, BalanceChangeRequest::amount)
+			.containsExactly(
+				tuple("PAYMENT-SAGA-REFUND-41", 500),
+				tuple("PAYMENT-SAGA-REFUND-42", 700));
+		verify(paymentSagaLog).advanceAll(eq(sagas), eq(SagaStatus.COMPENSATION_PENDING), any());
+		verify(paymentSagaLog, never()).recordBatch(any(), any());
+	}
+
+	@Test
+	void rejectedDebitClosesTheSagasWithoutTouchingTuitions() {
+		when(customerClient.debit(eq(CUSTOMER_ID), any()))
+			.thenReturn(Mono.error(new DownstreamRejectedException(400, "Customer Debit Failed: Insufficient balance.")));
+
+		assertThatThrownBy(() -> batchPaymentService.confirmBatchPayment(CUSTOMER_ID, confirmation(9L, 10L)))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("Insufficient balance.");
+
+		verify(paymentSagaLog).advanceAll(eq(sagas), eq(SagaStatus.FAILED), any());
+		verifyNoInteractions(tuitionClient);
+	}
+
+	@Test
+	void oversizedOrRepeatedBatchIsRejectedBeforeAnyLookup() {
+		assertThatThrownBy(() -> batchPaymentService.initiateBatchPayment(CUSTOMER_ID, new BatchPaymentInitiateRequest(List.of(1L, 2L, 3L))))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageContaining("at most 2 tuitions");
+		assertThatThrownBy(() -> batchPaymentService.initiateBatchPayment(CUSTOMER_ID, new BatchPaymentInitiateRequest(List.of(1L, 1L))))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageContaining("must not contain duplicates");
+
+		verifyNoInteractions(paymentTransactionRepository, otpClient);
+	}
+
+	private static BatchPaymentConfirmationRequest confirmation(Long... tuitionIds) {
+		return new BatchPaymentConfirmationRequest(List.of(tuitionIds), OTP_CODE);
+	}
+
+	private static PaymentSaga saga(Long sagaId, Long tuitionId) {
+		PaymentSaga saga = new PaymentSaga();
+		saga.setSagaId(sagaId);
+		saga.setCustomerId(CUSTOMER_ID);
+		saga.setTuitionId(tuitionId);
+		saga.setStatus(SagaStatus.STARTED);
+		return saga;
+	}
+}
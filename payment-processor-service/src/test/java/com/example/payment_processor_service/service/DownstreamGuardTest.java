@@ -0,0 +1,160 @@
+package com.example.payment_processor_service.service;
+
+import com.example.payment_processor_service.client.CustomerClient;
+import com.example.payment_processor_service.config.DownstreamFailurePredicate;
+import com.example.payment_processor_service.dto.GenericResponse;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Fault injection for the customer breaker and bulkhead: CustomerClient runs unchanged, its
+// requests are redirected to a MockWebServer that answers with the failures under test.
+class DownstreamGuardTest {
+
+	private static final Duration TIMEOUT = Duration.ofSeconds(5);
+	private static final String BALANCE_BODY = "{\"success\":true,\"message\":\"ok\",\"data\":100}";
+
+	private MockWebServer server;
+	private CircuitBreakerRegistry circuitBreakerRegistry;
+	private CustomerClient customerClient;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		server = new MockWebServer();
+		server.start();
+
+		circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+			.slidingWindowSize(4)
+			.minimumNumberOfCalls(4)
+			.failureRateThreshold(50)
+			.waitDurationInOpenState(Duration.ofMinutes(1))
+			.recordException(new DownstreamFailurePredicate())
+			.build());
+		BulkheadRegistry bulkheadRegistry = BulkheadRegistry.of(BulkheadConfig.custom()
+			.maxConcurrentCalls(1)
+			.maxWaitDuration(Duration.ZERO)
+			.build());
+
+		DownstreamGuard downstreamGuard = new DownstreamGuard();
+		ReflectionTestUtils.setField(downstreamGuard, "circuitBreakerRegistry", circuitBreakerRegistry);
+		ReflectionTestUtils.setField(downstreamGuard, "bulkheadRegistry", bulkheadRegistry);
+
+		WebClient webClient = WebClient.builder()
+			.filter((request, next) -> next.exchange(ClientRequest.from(request).url(redirect(request.url())).build()))
+			.build();
+		customerClient = new CustomerClient();
+		ReflectionTestUtils.setField(customerClient, "customerWebClient", webClient);
+		ReflectionTestUtils.setField(customerClient, "customerWriteWebClient", webClient);
+		ReflectionTestUtils.setField(customerClient, "downstreamGuard", downstreamGuard);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		server.shutdown();
+	}
+
+	@Test
+	void serverErrorsOpenTheBreakerAndLaterCallsFailFast() {
+		for (int i = 0; i < 4; i++) {
+			server.enqueue(jsonResponse(503, "{\"success\":false,\"message\":\"unavailable\"}"));
+			assertThatThrownBy(() -> customerClient.getBalance(1L).block(TIMEOUT))
+				.isInstanceOf(DownstreamServerException.class);
+		}
+
+		assertThat(customerBreaker().getState()).isEqualTo(CircuitBreaker.State.OPEN);
+		assertThatThrownBy(() -> customerClient.getBalance(1L).block(TIMEOUT))
+			.hasMessageContaining("circuit open")
+			.hasCauseInstanceOf(CallNotPermittedException.class);
+		assertThat(server.getRequestCount()).isEqualTo(4);
+	}
+
+	@Test
+	void clientErrorsDoNotOpenTheBreaker() {
+		for (int i = 0; i < 6; i++) {
+			server.enqueue(jsonResponse(400, "{\"success\":false,\"message\":\"rejected\"}"));
+			assertThatThrownBy(() -> customerClient.getBalance(1L).block(TIMEOUT))
+				.isInstanceOf(DownstreamRejectedException.class);
+		}
+
+		assertThat(customerBreaker().getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+		assertThat(server.getRequestCount()).isEqualTo(6);
+	}
+
+	@Test
+	void fullBulkheadRejectsWithoutCallingTheDownstream() throws Exception {
+		server.enqueue(jsonResponse(200, BALANCE_BODY).setBodyDelay(1, TimeUnit.SECONDS));
+
+		CompletableFuture<GenericResponse<Integer>> slowCall = customerClient.getBalance(1L).toFuture();
+		assertThat(server.takeRequest(5, TimeUnit.SECONDS)).isNotNull();
+
+		assertThatThrownBy(() -> customerClient.getBalance(2L).block(TIMEOUT))
+			.hasMessageContaining("concurrency limit")
+			.hasCauseInstanceOf(BulkheadFullException.class);
+
+		assertThat(slowCall.get(5, TimeUnit.SECONDS).getData()).isEqualTo(100);
+		assertThat(server.getRequestCount()).isEqualTo(1);
+	}
+
+	@Test
+	void bulkheadRejectionsCountAgainstTheBreaker() throws Exception {
+		server.enqueue(jsonResponse(200, BALANCE_BODY).setBodyDelay(1, TimeUnit.SECONDS));
+		CompletableFuture<GenericResponse<Integer>> slowCall = customerClient.getBalance(1L).toFuture();
+		assertThat(server.takeRequest(5, TimeUnit.SECONDS)).isNotNull();
+
+		for (int i = 0; i < 4; i++) {
+			assertThatThrownBy(() -> customerClient.getBalance(2L).block(TIMEOUT))
+				.hasCauseInstanceOf(BulkheadFullException.class);
+		}
+
+		assertThat(customerBreaker().getState()).isEqualTo(CircuitBreaker.State.OPEN);
+		slowCall.get(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	void contactErrorsAreMappedLikeEveryOtherCall() {
+		server.enqueue(jsonResponse(404, "{\"success\":false,\"message\":\"Customer not found.\"}"));
+		assertThatThrownBy(() -> customerClient.getContact(1L).block(TIMEOUT))
+			.isInstanceOf(DownstreamRejectedException.class)
+			.hasMessageContaining("Customer not found.");
+
+		server.enqueue(jsonResponse(500, "{\"success\":false,\"message\":\"boom\"}"));
+		assertThatThrownBy(() -> customerClient.getContact(1L).block(TIMEOUT))
+			.isInstanceOf(DownstreamServerException.class);
+	}
+
+	private CircuitBreaker customerBreaker() {
+		return circuitBreakerRegistry.circuitBreaker("customer");
+	}
+
+	private URI redirect(URI original) {
+		return server.url(original.getRawPath()).uri();
+	}
+
+	private static MockResponse jsonResponse(int status, String body) {
+		return new MockResponse()
+			.setResponseCode(status)
+			.setHeader("Content-Type", "application/json")
+			.setBody(body);
+	}
+}
@@ -0,0 +1,115 @@
+package com.example.payment_processor_service.service;
+
+import com.example.payment_processor_service.client.BalanceChangeRequest;
+import com.example.payment_processor_service.client.CustomerClient;
+import com.example.payment_processor_service.client.FundHold;
+import com.example.payment_processor_service.client.ReservationRequest;
+import com.example.payment_processor_service.dto.GenericResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FundReservationServiceTest {
+
+	private static final Duration TIMEOUT = Duration.ofSeconds(5);
+	private static final Long CUSTOMER_ID = 7L;
+
+	@Mock
+	private CustomerClient customerClient;
+
+	@InjectMocks
+	private FundReservationService fundReservationService;
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(fundReservationService, "reservationsEnabled", true);
+		ReflectionTestUtils.setField(fundReservationService, "reservationTtlSeconds", 600L);
+	}
+
+	@Test
+	void holdIsPlacedForTheConfiguredTtl() {
+		when(customerClient.holdFunds(eq(CUSTOMER_ID), any())).thenReturn(Mono.just(GenericResponse.success("ok")));
+
+		fundReservationService.hold(CUSTOMER_ID, "TUITION-9", 500);
+
+		verify(customerClient).holdFunds(CUSTOMER_ID, new ReservationRequest("TUITION-9", 500, 600L, null));
+	}
+
+	@Test
+	void rejectedHoldIsReportedAsABadRequest() {
+		when(customerClient.holdFunds(eq(CUSTOMER_ID), any()))
+			.thenReturn(Mono.error(new DownstreamRejectedException(400, "Fund Hold Failed: Insufficient balance.")));
+
+		assertThatThrownBy(() -> fundReservationService.hold(CUSTOMER_ID, "TUITION-9", 500))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("Insufficient balance.");
+	}
+
+	@Test
+	void failedCallReleasesTheHoldAndRethrows() {
+		when(customerClient.releaseFunds(eq(CUSTOMER_ID), any())).thenReturn(Mono.just(GenericResponse.<FundHold>success("ok")));
+		RuntimeException otpFailure = new RuntimeException("otp-service unavailable");
+
+		assertThatThrownBy(() -> fundReservationService.releaseIfFails(CUSTOMER_ID, "TUITION-9", () -> {
+			throw otpFailure;
+		})).isSameAs(otpFailure);
+		verify(customerClient).releaseFunds(CUSTOMER_ID, new ReservationRequest("TUITION-9", null, null, null));
+	}
+
+	@Test
+	void capturedHoldNeedsNoDebit() {
+		when(customerClient.captureFunds(eq(CUSTOMER_ID), any())).thenReturn(Mono.just(GenericResponse.<FundHold>success("ok")));
+
+		fundReservationService.captureOrDebit(CUSTOMER_ID, "TUITION-9", "PAYMENT-SAGA-42", "Tuition Payment for ID 9", 500).block(TIMEOUT);
+
+		verify(customerClient).captureFunds(CUSTOMER_ID, new ReservationRequest("TUITION-9", 500, null, "PAYMENT-SAGA-42"));
+		verify(customerClient, never()).debit(any(), any());
+	}
+
+	@Test
+	void missingHoldFallsBackToADebitUnderTheSameChargeReference() {
+		when(customerClient.captureFunds(eq(CUSTOMER_ID), any())).thenReturn(Mono.empty());
+		when(customerClient.debit(eq(CUSTOMER_ID), any())).thenReturn(Mono.just(GenericResponse.success("ok", 500)));
+
+		fundReservationService.captureOrDebit(CUSTOMER_ID, "TUITION-9", "PAYMENT-SAGA-42", "Tuition Payment for ID 9", 500).block(TIMEOUT);
+
+		verify(customerClient).debit(CUSTOMER_ID, new BalanceChangeRequest(500, "Tuition Payment for ID 9", "PAYMENT-SAGA-42"));
+	}
+
+	@Test
+	void disabledReservationsHoldNothingAndDebitDirectly() {
+		ReflectionTestUtils.setField(fundReservationService, "reservationsEnabled", false);
+		when(customerClient.debit(eq(CUSTOMER_ID), any())).thenReturn(Mono.just(GenericResponse.success("ok", 500)));
+
+		fundReservationService.hold(CUSTOMER_ID, "TUITION-9", 500);
+		fundReservationService.captureOrDebit(CUSTOMER_ID, "TUITION-9", "PAYMENT-SAGA-42", "Tuition Payment for ID 9", 500).block(TIMEOUT);
+
+		assertThat(fundReservationService.isEnabled()).isFalse();
+		verify(customerClient, never()).holdFunds(any(), any());
+		verify(customerClient, never()).captureFunds(any(), any());
+		verify(customerClient).debit(CUSTOMER_ID, new BalanceChangeRequest(500, "Tuition Payment for ID 9", "PAYMENT-SAGA-42"));
+	}
+
+	@Test
+	void successfulCallKeepsTheHold() {
+		assertThat(fundReservationService.releaseIfFails(CUSTOMER_ID, "TUITION-9", () -> "123456")).isEqualTo("123456");
+		verifyNoInteractions(customerClient);
+	}
+}
@@ -0,0 +1,122 @@
+package com.example.payment_processor_service.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HedgedReadsTest {
+
+	private static final Duration TIMEOUT = Duration.ofSeconds(5);
+	private static final Duration SLOW_FIRST_ATTEMPT = Duration.ofMillis(150);
+
+	private SimpleMeterRegistry meterRegistry;
+	private HedgedReads hedgedReads;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		hedgedReads = new HedgedReads();
+		ReflectionTestUtils.setField(hedgedReads, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(hedgedReads, "enabled", true);
+		ReflectionTestUtils.setField(hedgedReads, "initialDelayMs", 20L);
+		ReflectionTestUtils.setField(hedgedReads, "minDelayMs", 10L);
+		ReflectionTestUtils.setField(hedgedReads, "maxDelayMs", 1000L);
+		ReflectionTestUtils.setField(hedgedReads, "minSamples", 1000L);
+		ReflectionTestUtils.setField(hedgedReads, "budgetPercent", 10L);
+		ReflectionTestUtils.setField(hedgedReads, "budgetMaxTokens", 20L);
+	}
+
+	@Test
+	void hedgesAreSkippedUntilTheBudgetIsEarned() {
+		for (int i = 0; i < 9; i++) {
+			assertThat(slowFirstAttempt("tuition").block(TIMEOUT)).isEqualTo("first");
+		}
+		assertThat(count("payment.hedge.skipped", "tuition")).isEqualTo(9);
+		assertThat(count("payment.hedge.fired", "tuition")).isZero();
+
+		// Ten requests at 10% earn exactly one hedge.
+		assertThat(slowFirstAttempt("tuition").block(TIMEOUT)).isEqualTo("hedge");
+		assertThat(count("payment.hedge.fired", "tuition")).isEqualTo(1);
+		assertThat(count("payment.hedge.won", "tuition")).isEqualTo(1);
+		assertThat(count("payment.hedge.requests", "tuition")).isEqualTo(10);
+	}
+
+	@Test
+	void eachCallSpendsOnlyItsOwnBudget() {
+		for (int i = 0; i < 9; i++) {
+			slowFirstAttempt("tuition").block(TIMEOUT);
+		}
+
+		assertThat(slowFirstAttempt("customer-balance").block(TIMEOUT)).isEqualTo("first");
+		assertThat(count("payment.hedge.skipped", "customer-balance")).isEqualTo(1);
+
+		assertThat(slowFirstAttempt("tuition").block(TIMEOUT)).isEqualTo("hedge");
+	}
+
+	@Test
+	void latencyIsTimedFromTheFirstAttempt() {
+		ReflectionTestUtils.setField(hedgedReads, "initialDelayMs", 50L);
+		ReflectionTestUtils.setField(hedgedReads, "budgetPercent", 100L);
+
+		assertThat(slowFirstAttempt("tuition").block(TIMEOUT)).isEqualTo("hedge");
+
+		// The hedge itself answers at once; the caller still waited for the hedge delay.
+		assertThat(meterRegistry.get("payment.hedge.latency").tag("call", "tuition").timer().totalTime(TimeUnit.MILLISECONDS))
+			.isGreaterThanOrEqualTo(50);
+	}
+
+	@Test
+	void answerBeforeTheHedgeDelaySpendsNothing() throws Exception {
+		ReflectionTestUtils.setField(hedgedReads, "budgetPercent", 100L);
+		AtomicInteger attempts = new AtomicInteger();
+
+		assertThat(hedgedReads.hedge("tuition", () -> {
+			attempts.incrementAndGet();
+			return Mono.just("first");
+		}).block(TIMEOUT)).isEqualTo("first");
+		// Let the hedge timer's deadline pass; it must neither fire nor take a token.
+		Thread.sleep(100);
+
+		assertThat(attempts).hasValue(1);
+		assertThat(count("payment.hedge.fired", "tuition")).isZero();
+		assertThat(count("payment.hedge.skipped", "tuition")).isZero();
+
+		// No more deposits: the next hedge can only use the token the first call earned.
+		ReflectionTestUtils.setField(hedgedReads, "budgetPercent", 0L);
+		assertThat(slowFirstAttempt("tuition").block(TIMEOUT)).isEqualTo("hedge");
+	}
+
+	@Test
+	void disabledHedgingCallsOnce() {
+		ReflectionTestUtils.setField(hedgedReads, "enabled", false);
+		ReflectionTestUtils.setField(hedgedReads, "budgetPercent", 100L);
+		AtomicInteger attempts = new AtomicInteger();
+
+		hedgedReads.hedge("tuition", () -> {
+			attempts.incrementAndGet();
+			return Mono.delay(SLOW_FIRST_ATTEMPT).thenReturn("first");
+		}).block(TIMEOUT);
+
+		assertThat(attempts).hasValue(1);
+	}
+
+	// The first attempt answers after the hedge delay; any hedge answers immediately.
+	private Mono<String> slowFirstAttempt(String call) {
+		AtomicInteger attempts = new AtomicInteger();
+		return hedgedReads.hedge(call, () -> attempts.incrementAndGet() == 1
+			? Mono.delay(SLOW_FIRST_ATTEMPT).thenReturn("first")
+			: Mono.just("hedge"));
+	}
+
+	private double count(String name, String call) {
+		return meterRegistry.get(name).tag("call", call).counter().count();
+	}
+}
@@ -0,0 +1,138 @@
+package com.example.payment_processor_service.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocalSingleFlightTest {
+
+	private static final int JOINERS = 4;
+
+	private SimpleMeterRegistry meterRegistry;
+	private LocalSingleFlight singleFlight;
+	private ExecutorService executor;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		singleFlight = new LocalSingleFlight(meterRegistry);
+		executor = Executors.newFixedThreadPool(JOINERS + 1);
+	}
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void concurrentCallersRunTheWorkOnce() throws Exception {
+		AtomicInteger runs = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+
+		List<Future<?>> callers = startCallers("confirm:1", () -> {
+			runs.incrementAndGet();
+			await(release);
+		});
+		awaitCoalesced(JOINERS);
+		release.countDown();
+
+		for (Future<?> caller : callers) {
+			caller.get(5, TimeUnit.SECONDS);
+		}
+		assertThat(runs).hasValue(1);
+		assertThat(coalesced()).isEqualTo(JOINERS);
+	}
+
+	@Test
+	void joinersGetTheSameFailure() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		IllegalArgumentException failure = new IllegalArgumentException("OTP does not match.");
+
+		List<Future<?>> callers = startCallers("confirm:1", () -> {
+			await(release);
+			throw failure;
+		});
+		awaitCoalesced(JOINERS);
+		release.countDown();
+
+		for (Future<?> caller : callers) {
+			assertThatThrownBy(() -> caller.get(5, TimeUnit.SECONDS))
+				.isInstanceOf(ExecutionException.class)
+				.hasCause(failure);
+		}
+	}
+
+	@Test
+	void keyIsReusableOnceTheFlightHasLanded() {
+		AtomicInteger runs = new AtomicInteger();
+
+		singleFlight.execute("confirm:1", runs::incrementAndGet);
+		assertThatThrownBy(() -> singleFlight.execute("confirm:1", () -> {
+			throw new IllegalStateException("boom");
+		})).isInstanceOf(IllegalStateException.class);
+		singleFlight.execute("confirm:1", runs::incrementAndGet);
+
+		assertThat(runs).hasValue(2);
+		assertThat(coalesced()).isZero();
+	}
+
+	@Test
+	void differentKeysDoNotCoalesce() {
+		AtomicInteger runs = new AtomicInteger();
+
+		singleFlight.execute("confirm:1", () -> singleFlight.execute("confirm:2", runs::incrementAndGet));
+
+		assertThat(runs).hasValue(1);
+		assertThat(coalesced()).isZero();
+	}
+
+	// Starts the leader first, then the joiners once the leader's flight is registered.
+	private List<Future<?>> startCallers(String key, Runnable work) throws InterruptedException {
+		CountDownLatch leaderStarted = new CountDownLatch(1);
+		List<Future<?>> callers = new ArrayList<>();
+		callers.add(executor.submit(() -> singleFlight.execute(key, () -> {
+			leaderStarted.countDown();
+			work.run();
+		})));
+		assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+		for (int i = 0; i < JOINERS; i++) {
+			callers.add(executor.submit(() -> singleFlight.execute(key, work)));
+		}
+		return callers;
+	}
+
+	private void awaitCoalesced(int expected) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (coalesced() < expected && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(coalesced()).isEqualTo(expected);
+	}
+
+	private double coalesced() {
+		return meterRegistry.get("payment.singleflight.coalesced").counter().count();
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package com.example.payment_processor_service.service;
+
+import com.example.payment_processor_service.client.BalanceChangeRequest;
+import com.example.payment_processor_service.client.CustomerClient;
+import com.example.payment_processor_service.client.OtpClient;
+import com.example.payment_processor_service.client.OtpRequest;
+import com.example.payment_processor_service.client.TuitionClient;
+import com.example.payment_processor_service.client.TuitionStatusRequest;
+import com.example.payment_processor_service.dto.GenericResponse;
+import com.example.payment_processor_service.dto.PaymentConfirmationRequest;
+import com.example.payment_processor_service.model.PaymentSaga;
+import com.example.payment_processor_service.model.PaymentTransaction;
+import com.example.payment_processor_service.model.SagaStatus;
+import com.example.payment_processor_service.repository.PaymentTransactionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+// Reactive confirm with reservations off, every database step on an immediate scheduler so the
+// saga log can be checked step by step.
+class PaymentConfirmTest {
+
+	private static final Duration TIMEOUT = Duration.ofSeconds(5);
+	private static final Long CUSTOMER_ID = 7L;
+	private static final Long TUITION_ID = 9L;
+
+	private CustomerClient customerClient;
+	private TuitionClient tuitionClient;
+	private OtpClient otpClient;
+	private PaymentSagaLog paymentSagaLog;
+	private PaymentTransactionRepository paymentTransactionRepository;
+	private Cache<Long, Integer> tuitionAmountCache;
+	private PaymentSaga saga;
+	private PaymentService paymentService;
+
+	@BeforeEach
+	void setUp() {
+		customerClient = mock(CustomerClient.class);
+		tuitionClient = mock(TuitionClient.class);
+		otpClient = mock(OtpClient.class);
+		paymentSagaLog = mock(PaymentSagaLog.class);
+		paymentTransactionRepository = mock(PaymentTransactionRepository.class);
+		tuitionAmountCache = Caffeine.newBuilder().build();
+		tuitionAmountCache.put(TUITION_ID, 500);
+
+		FundReservationService fundReservationService = new FundReservationService();
+		ReflectionTestUtils.setField(fundReservationService, "customerClient", customerClient);
+		ReflectionTestUtils.setField(fundReservationService, "reservationsEnabled", false);
+
+		TuitionPaymentLock.Lease lease = new TuitionPaymentLock.Lease(Map.of(), 0L);
+		TuitionPaymentLock tuitionPaymentLock = mock(TuitionPaymentLock.class);
+		when(tuitionPaymentLock.withLock(any(), any())).thenAnswer(invocation ->
+			invocation.<Function<TuitionPaymentLock.Lease, Mono<?>>>getArgument(1).apply(lease));
+		when(tuitionPaymentLock.verify(lease)).thenReturn(Mono.empty());
+
+		paymentService = new PaymentService();
+		ReflectionTestUtils.setField(paymentService, "customerClient", customerClient);
+		ReflectionTestUtils.setField(paymentService, "tuitionClient", tuitionClient);
+		ReflectionTestUtils.setField(paymentService, "otpClient", otpClient);
+		ReflectionTestUtils.setField(paymentService, "paymentSagaLog", paymentSagaLog);
+		ReflectionTestUtils.setField(paymentService, "paymentTransactionRepository", paymentTransactionRepository);
+		ReflectionTestUtils.setField(paymentService, "paymentDbScheduler", Schedulers.immediate());
+		ReflectionTestUtils.setField(paymentService, "tuitionPaymentLock", tuitionPaymentLock);
+		ReflectionTestUtils.setField(paymentService, "fundReservationService", fundReservationService);
+		ReflectionTestUtils.setField(paymentService, "tuitionAmountCache", tuitionAmountCache);
+
+		saga = new PaymentSaga();
+		saga.setSagaId(42L);
+		saga.setCustomerId(CUSTOMER_ID);
+		saga.setTuitionId(TUITION_ID);
+		saga.setStatus(SagaStatus.STARTED);
+
+		when(paymentTransactionRepository.findByTuitionId(TUITION_ID)).thenReturn(Optional.empty());
+		when(paymentSagaLog.start(CUSTOMER_ID, TUITION_ID)).thenReturn(saga);
+		when(paymentSagaLog.advance(eq(saga), any())).thenReturn(saga);
+		when(paymentSagaLog.requestDebit(eq(saga), any(), any())).thenAnswer(invocation -> {
+			saga.setAmount(invocation.getArgument(1));
+			saga.setChargeReference(invocation.getArgument(2));
+			saga.setStatus(SagaStatus.DEBIT_REQUESTED);
+			return saga;
+		});
+		when(paymentSagaLog.record(eq(saga), any())).thenAnswer(invocation -> invocation.getArgument(1));
+		when(otpClient.validate(eq(CUSTOMER_ID), any())).thenReturn(Mono.just(GenericResponse.success("ok")));
+	}
+
+	@Test
+	void sagaStepsAreLoggedInOrderAroundEachRemoteCall() {
+		when(customerClient.debit(eq(CUSTOMER_ID), any())).thenReturn(Mono.just(GenericResponse.success("ok", 4500)));
+		when(tuitionClient.updateStatus(eq(CUSTOMER_ID), any())).thenReturn(Mono.just(GenericResponse.success("ok")));
+
+		PaymentTransaction transaction = paymentService.confirmPaymentReactive(CUSTOMER_ID, confirmation()).block(TIMEOUT);
+
+		assertThat(transaction.getTuitionId()).isEqualTo(TUITION_ID);
+		assertThat(transaction.getAmount()).isEqualTo(500);
+		assertThat(tuitionAmountCache.getIfPresent(TUITION_ID)).isNull();
+
+		InOrder order = inOrder(paymentSagaLog, otpClient, customerClient, tuitionClient);
+		order.verify(paymentSagaLog).start(CUSTOMER_ID, TUITION_ID);
+		order.verify(otpClient).validate(CUSTOMER_ID, OtpRequest.forTuition(TUITION_ID).withOtpCode("123456"));
+		order.verify(paymentSagaLog).advance(saga, SagaStatus.OTP_VALIDATED);
+		order.verify(paymentSagaLog).requestDebit(saga, 500, "PAYMENT-SAGA-42");
+		order.verify(customerClient).debit(CUSTOMER_ID, new BalanceChangeRequest(500, "Tuition Payment for ID 9", "PAYMENT-SAGA-42"));
+		order.verify(paymentSagaLog).advance(saga, SagaStatus.DEBITED);
+		order.verify(tuitionClient).updateStatus(CUSTOMER_ID, new TuitionStatusRequest(TUITION_ID, true));
+		order.verify(paymentSagaLog).advance(saga, SagaStatus.TUITION_UPDATED);
+		order.verify(paymentSagaLog).record(eq(saga), any());
+	}
+
+	@Test
+	void failedTuitionUpdateIsCompensatedUnderTheRefundReference() {
+		when(customerClient.debit(eq(CUSTOMER_ID), any())).thenReturn(Mono.just(GenericResponse.success("ok", 4500)));
+		when(tuitionClient.updateStatus(eq(CUSTOMER_ID), any())).thenReturn(Mono.error(new DownstreamServerException("tuition-service unavailable")));
+		when(customerClient.credit(eq(CUSTOMER_ID), any())).thenReturn(Mono.just(GenericResponse.success("ok", 5000)));
+
+		assertThatThrownBy(() -> paymentService.confirmPaymentReactive(CUSTOMER_ID, confirmation()).block(TIMEOUT))
+			.hasMessageContaining("[Tuition Update Failed]");
+
+		InOrder order = inOrder(paymentSagaLog, customerClient);
+		order.verify(paymentSagaLog).advance(eq(saga), eq(SagaStatus.COMPENSATION_PENDING), any());
+		order.verify(customerClient).credit(CUSTOMER_ID, new BalanceChangeRequest(500, "Compensation Credit for failed Tuition ID: 9", "PAYMENT-SAGA-REFUND-42"));
+		order.verify(paymentSagaLog).advance(saga, SagaStatus.COMPENSATED);
+		verify(paymentSagaLog, never()).record(any(), any());
+	}
+
+	// No transaction spans the remote calls, so the unique tuition_id is what stops a second payment.
+	@Test
+	void losingTheRecordRaceRefundsTheDebit() {
+		when(customerClient.debit(eq(CUSTOMER_ID), any())).thenReturn(Mono.just(GenericResponse.success("ok", 4500)));
+		when(tuitionClient.updateStatus(eq(CUSTOMER_ID), any())).thenReturn(Mono.just(GenericResponse.success("ok")));
+		when(customerClient.credit(eq(CUSTOMER_ID), any())).thenReturn(Mono.just(GenericResponse.success("ok", 5000)));
+		when(paymentSagaLog.record(eq(saga), any())).thenThrow(new DataIntegrityViolationException("uk_payment_transactions_tuition_id"));
+
+		assertThatThrownBy(() -> paymentService.confirmPaymentReactive(CUSTOMER_ID, confirmation()).block(TIMEOUT))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("Tuition ID 9 has already been paid.");
+
+		verify(customerClient).credit(CUSTOMER_ID, new BalanceChangeRequest(500, "Compensation Credit for failed Tuition ID: 9", "PAYMENT-SAGA-REFUND-42"));
+		verify(paymentSagaLog).advance(saga, SagaStatus.COMPENSATED);
+	}
+
+	@Test
+	void wrongOtpFailsTheSagaBeforeAnyDebit() {
+		when(otpClient.validate(eq(CUSTOMER_ID), any()))
+			.thenReturn(Mono.error(new DownstreamRejectedException(400, "OTP Validation Failed: Invalid OTP.")));
+
+		assertThatThrownBy(() -> paymentService.confirmPaymentReactive(CUSTOMER_ID, confirmation()).block(TIMEOUT))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("Invalid OTP.");
+
+		verify(paymentSagaLog).advanceAll(eq(List.of(saga)), eq(SagaStatus.FAILED), any());
+		verify(customerClient, never()).debit(any(), any());
+		verifyNoInteractions(tuitionClient);
+	}
+
+	@Test
+	void paidTuitionIsRejectedBeforeASagaIsStarted() {
+		when(paymentTransactionRepository.findByTuitionId(TUITION_ID)).thenReturn(Optional.of(new PaymentTransaction()));
+
+		assertThatThrownBy(() -> paymentService.confirmPaymentReactive(CUSTOMER_ID, confirmation()).block(TIMEOUT))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("Tuition ID 9 has already been paid.");
+
+		verify(paymentSagaLog, never()).start(any(), any());
+		verifyNoInteractions(otpClient, customerClient);
+	}
+
+	private static PaymentConfirmationRequest confirmation() {
+		return new PaymentConfirmationRequest(TUITION_ID, "123456");
+	}
+}
@@ -0,0 +1,87 @@
+package com.example.payment_processor_service.service;
+
+import com.example.payment_processor_service.dto.PaymentHistoryPage;
+import com.example.payment_processor_service.model.PaymentTransaction;
+import com.example.payment_processor_service.repository.PaymentTransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+// Keyset pagination of GET /history: the cursor handed out with one page must resume the next
+// page right after that page's last row, and anything else must be rejected as a bad request.
+class PaymentHistoryCursorTest {
+
+	private static final Long CUSTOMER_ID = 7L;
+	private static final LocalDateTime LAST_DATE = LocalDateTime.of(2025, 3, 14, 9, 26, 53, 589_000_000);
+
+	private PaymentTransactionRepository paymentTransactionRepository;
+	private PaymentService paymentService;
+
+	@BeforeEach
+	void setUp() {
+		paymentTransactionRepository = mock(PaymentTransactionRepository.class);
+		paymentService = new PaymentService();
+		ReflectionTestUtils.setField(paymentService, "paymentTransactionRepository", paymentTransactionRepository);
+	}
+
+	@Test
+	void cursorResumesAfterTheLastRowOfThePage() {
+		when(paymentTransactionRepository.findFirstHistoryPage(CUSTOMER_ID, 3)).thenReturn(List.of(
+			transaction(30L, LAST_DATE.plusDays(1)),
+			transaction(29L, LAST_DATE),
+			transaction(28L, LAST_DATE.minusDays(1))));
+
+		PaymentHistoryPage first = paymentService.getPaymentHistoryPage(CUSTOMER_ID, null, 2);
+		assertThat(first.getItems()).extracting(PaymentTransaction::getPaymentId).containsExactly(30L, 29L);
+		assertThat(first.getNextCursor()).doesNotContain("=", "+", "/");
+
+		paymentService.getPaymentHistoryPage(CUSTOMER_ID, first.getNextCursor(), 2);
+		verify(paymentTransactionRepository).findHistoryPageAfter(CUSTOMER_ID, LAST_DATE, 29L, 3);
+	}
+
+	@Test
+	void lastPageHasNoCursor() {
+		when(paymentTransactionRepository.findFirstHistoryPage(CUSTOMER_ID, 3)).thenReturn(List.of(
+			transaction(30L, LAST_DATE)));
+
+		assertThat(paymentService.getPaymentHistoryPage(CUSTOMER_ID, "", 2).getNextCursor()).isNull();
+	}
+
+	@Test
+	void malformedCursorsAreRejected() {
+		for (String cursor : List.of(
+				"not base64!",
+				encode("2025-03-14T09:26:53"),
+				encode("yesterday|29"),
+				encode("2025-03-14T09:26:53|twenty-nine"),
+				encode("2025-03-14T09:26:53|29|1"))) {
+			assertThatThrownBy(() -> paymentService.getPaymentHistoryPage(CUSTOMER_ID, cursor, 2))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Invalid history cursor.");
+		}
+		verifyNoInteractions(paymentTransactionRepository);
+	}
+
+	private static PaymentTransaction transaction(Long paymentId, LocalDateTime paymentDate) {
+		PaymentTransaction transaction = new PaymentTransaction();
+		transaction.setPaymentId(paymentId);
+		transaction.setPaymentDate(paymentDate);
+		return transaction;
+	}
+
+	private static String encode(String position) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,123 @@
+package com.example.payment_processor_service.service;
+
+import com.example.payment_processor_service.client.CustomerClient;
+import com.example.payment_processor_service.client.OtpClient;
+import com.example.payment_processor_service.client.OtpCode;
+import com.example.payment_processor_service.client.TuitionClient;
+import com.example.payment_processor_service.client.TuitionDetails;
+import com.example.payment_processor_service.dto.CustomerContact;
+import com.example.payment_processor_service.dto.GenericResponse;
+import com.example.payment_processor_service.dto.PaymentInitiateRequest;
+import com.example.payment_processor_service.repository.PaymentTransactionRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Initiate with reservations off: tuition, balance and contact are prefetched together, and only
+// the tuition and balance lookups may fail the request.
+class PaymentInitiateTest {
+
+	private static final Long CUSTOMER_ID = 1L;
+	private static final Long TUITION_ID = 9L;
+
+	private CustomerClient customerClient;
+	private OtpClient otpClient;
+	private MailOutboxService mailOutboxService;
+	private PaymentService paymentService;
+
+	@BeforeEach
+	void setUp() {
+		customerClient = mock(CustomerClient.class);
+		otpClient = mock(OtpClient.class);
+		mailOutboxService = mock(MailOutboxService.class);
+		TuitionClient tuitionClient = mock(TuitionClient.class);
+		PaymentTransactionRepository paymentTransactionRepository = mock(PaymentTransactionRepository.class);
+
+		HedgedReads hedgedReads = new HedgedReads();
+		ReflectionTestUtils.setField(hedgedReads, "enabled", false);
+		FundReservationService fundReservationService = new FundReservationService();
+		ReflectionTestUtils.setField(fundReservationService, "reservationsEnabled", false);
+
+		paymentService = new PaymentService();
+		ReflectionTestUtils.setField(paymentService, "customerClient", customerClient);
+		ReflectionTestUtils.setField(paymentService, "tuitionClient", tuitionClient);
+		ReflectionTestUtils.setField(paymentService, "otpClient", otpClient);
+		ReflectionTestUtils.setField(paymentService, "mailOutboxService", mailOutboxService);
+		ReflectionTestUtils.setField(paymentService, "paymentTransactionRepository", paymentTransactionRepository);
+		ReflectionTestUtils.setField(paymentService, "hedgedReads", hedgedReads);
+		ReflectionTestUtils.setField(paymentService, "singleFlight", new LocalSingleFlight(new SimpleMeterRegistry()));
+		ReflectionTestUtils.setField(paymentService, "tuitionAmountCache", Caffeine.newBuilder().build());
+		ReflectionTestUtils.setField(paymentService, "customerContactCache", Caffeine.newBuilder().build());
+		ReflectionTestUtils.setField(paymentService, "fundReservationService", fundReservationService);
+
+		when(paymentTransactionRepository.findByTuitionId(TUITION_ID)).thenReturn(Optional.empty());
+		when(tuitionClient.getTuition(CUSTOMER_ID, TUITION_ID)).thenReturn(Mono.just(GenericResponse.success("ok",
+			new TuitionDetails(TUITION_ID, "S1", "Student", 500, "1", "2026", false))));
+		when(customerClient.getBalance(CUSTOMER_ID)).thenReturn(Mono.just(GenericResponse.success("ok", 1000)));
+	}
+
+	@Test
+	void prefetchedEmailIsUsedForTheOtpMail() {
+		contactAnswers(Mono.just(GenericResponse.success("ok", new CustomerContact(CUSTOMER_ID, "A", "a@example.com", null))));
+		otpAnswers("OTP generated.");
+
+		paymentService.initiatePayment(CUSTOMER_ID, new PaymentInitiateRequest(TUITION_ID));
+
+		verify(mailOutboxService).enqueueOtpMail(CUSTOMER_ID, "a@example.com", TUITION_ID, "123456", 500);
+	}
+
+	@Test
+	void failedEmailPrefetchLeavesTheRecipientToTheOutbox() {
+		contactAnswers(Mono.error(new DownstreamServerException("Customer Contact Fetch Failed: unavailable")));
+		otpAnswers("OTP generated.");
+
+		paymentService.initiatePayment(CUSTOMER_ID, new PaymentInitiateRequest(TUITION_ID));
+
+		verify(mailOutboxService).enqueueOtpMail(eq(CUSTOMER_ID), isNull(), eq(TUITION_ID), eq("123456"), eq(500));
+	}
+
+	@Test
+	void existingOtpNeedsNoEmailAtAll() {
+		contactAnswers(Mono.error(new DownstreamServerException("Customer Contact Fetch Failed: unavailable")));
+		otpAnswers("Existing OTP reused.");
+
+		paymentService.initiatePayment(CUSTOMER_ID, new PaymentInitiateRequest(TUITION_ID));
+
+		verify(mailOutboxService, never()).enqueueOtpMail(anyLong(), any(), anyLong(), anyString(), anyInt());
+	}
+
+	@Test
+	void failedBalanceLookupStillFailsInitiate() {
+		contactAnswers(Mono.just(GenericResponse.success("ok", new CustomerContact(CUSTOMER_ID, "A", "a@example.com", null))));
+		when(customerClient.getBalance(CUSTOMER_ID)).thenReturn(Mono.error(new DownstreamServerException("Balance Fetch Failed: unavailable")));
+
+		assertThatThrownBy(() -> paymentService.initiatePayment(CUSTOMER_ID, new PaymentInitiateRequest(TUITION_ID)))
+			.hasMessageContaining("Customer Balance Fetch Failed");
+		verify(otpClient, never()).generate(anyLong(), any());
+	}
+
+	private void contactAnswers(Mono<GenericResponse<CustomerContact>> response) {
+		when(customerClient.getContact(CUSTOMER_ID)).thenReturn(response);
+	}
+
+	private void otpAnswers(String statusMessage) {
+		when(otpClient.generate(eq(CUSTOMER_ID), any())).thenReturn(Mono.just(GenericResponse.success("ok", new OtpCode("123456", statusMessage))));
+	}
+}
@@ -0,0 +1,202 @@
+package com.example.payment_processor_service.service;
+
+import com.example.payment_processor_service.client.BalanceChangeRequest;
+import com.example.payment_processor_service.client.CustomerClient;
+import com.example.payment_processor_service.client.TuitionClient;
+import com.example.payment_processor_service.client.TuitionDetails;
+import com.example.payment_processor_service.client.TuitionStatusRequest;
+import com.example.payment_processor_service.dto.GenericResponse;
+import com.example.payment_processor_service.model.PaymentSaga;
+import com.example.payment_processor_service.model.PaymentTransaction;
+import com.example.payment_processor_service.model.SagaStatus;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+// Drives PaymentService.recoverSaga the way PaymentSagaRecoveryWorker does, one saga per status.
+@ExtendWith(MockitoExtension.class)
+class PaymentSagaRecoveryTest {
+
+	private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+	@Mock
+	private PaymentSagaLog paymentSagaLog;
+
+	@Mock
+	private CustomerClient customerClient;
+
+	@Mock
+	private TuitionClient tuitionClient;
+
+	@Mock
+	private Cache<Long, Integer> tuitionAmountCache;
+
+	@InjectMocks
+	private PaymentService paymentService;
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(paymentService, "paymentDbScheduler", Schedulers.immediate());
+		ReflectionTestUtils.setField(paymentService, "tuitionAmountCache", tuitionAmountCache);
+	}
+
+	@Test
+	void pendingCompensationIsRefundedUnderItsOwnReference() {
+		PaymentSaga saga = saga(SagaStatus.COMPENSATION_PENDING);
+		saga.setChargeReference("PAYMENT-SAGA-42");
+		when(paymentSagaLog.claim(saga)).thenReturn(true);
+		when(customerClient.credit(eq(7L), any())).thenReturn(Mono.just(GenericResponse.success("ok", 1500)));
+
+		paymentService.recoverSaga(saga).block(TIMEOUT);
+
+		ArgumentCaptor<BalanceChangeRequest> credit = ArgumentCaptor.forClass(BalanceChangeRequest.class);
+		verify(customerClient).credit(eq(7L), credit.capture());
+		assertThat(credit.getValue().amount()).isEqualTo(1500);
+		assertThat(credit.getValue().reference())
+			.isEqualTo("PAYMENT-SAGA-REFUND-42")
+			.isNotEqualTo(saga.getChargeReference());
+		verify(paymentSagaLog).advance(saga, SagaStatus.COMPENSATED);
+	}
+
+	@Test
+	void sagaClaimedByAnotherWorkerIsLeftAlone() {
+		PaymentSaga saga = saga(SagaStatus.DEBITED);
+		when(paymentSagaLog.claim(saga)).thenReturn(false);
+
+		paymentService.recoverSaga(saga).block(TIMEOUT);
+
+		verifyNoInteractions(customerClient, tuitionClient);
+		verify(paymentSagaLog, never()).advance(any(), any());
+	}
+
+	@Test
+	void sagaAbandonedBeforeTheDebitIsClosedAsFailed() {
+		PaymentSaga saga = saga(SagaStatus.OTP_VALIDATED);
+		when(paymentSagaLog.claim(saga)).thenReturn(true);
+
+		paymentService.recoverSaga(saga).block(TIMEOUT);
+
+		verify(paymentSagaLog).advance(eq(saga), eq(SagaStatus.FAILED), any(IllegalStateException.class));
+		verifyNoInteractions(customerClient, tuitionClient);
+	}
+
+	@Test
+	void requestedDebitThatWasAppliedIsDrivenToRecorded() {
+		PaymentSaga saga = saga(SagaStatus.DEBIT_REQUESTED);
+		saga.setChargeReference("PAYMENT-SAGA-42");
+		when(paymentSagaLog.claim(saga)).thenReturn(true);
+		when(customerClient.findCharge(7L, "PAYMENT-SAGA-42")).thenReturn(Mono.just(GenericResponse.success("ok", 1500)));
+		tuitionUpdateAnswers(Mono.just(GenericResponse.success("ok", paidTuition())));
+
+		paymentService.recoverSaga(saga).block(TIMEOUT);
+
+		InOrder order = inOrder(paymentSagaLog, tuitionClient);
+		order.verify(paymentSagaLog).advance(saga, SagaStatus.DEBITED);
+		order.verify(tuitionClient).updateStatus(7L, new TuitionStatusRequest(9L, true));
+		order.verify(paymentSagaLog).advance(saga, SagaStatus.TUITION_UPDATED);
+		order.verify(paymentSagaLog).record(eq(saga), any(PaymentTransaction.class));
+		verify(tuitionAmountCache).invalidate(9L);
+	}
+
+	@Test
+	void requestedDebitThatNeverAppliedIsClosedWithoutARefund() {
+		PaymentSaga saga = saga(SagaStatus.DEBIT_REQUESTED);
+		saga.setChargeReference("PAYMENT-SAGA-42");
+		when(paymentSagaLog.claim(saga)).thenReturn(true);
+		when(customerClient.findCharge(7L, "PAYMENT-SAGA-42")).thenReturn(Mono.empty());
+
+		paymentService.recoverSaga(saga).block(TIMEOUT);
+
+		verify(paymentSagaLog).advance(eq(saga), eq(SagaStatus.FAILED), any(IllegalStateException.class));
+		verify(customerClient, never()).credit(anyLong(), any());
+		verifyNoInteractions(tuitionClient);
+	}
+
+	@Test
+	void debitedSagaWhoseTuitionUpdateFailsIsRefunded() {
+		PaymentSaga saga = saga(SagaStatus.DEBITED);
+		when(paymentSagaLog.claim(saga)).thenReturn(true);
+		tuitionUpdateAnswers(Mono.error(new DownstreamServerException("tuition-service unavailable")));
+		when(customerClient.credit(eq(7L), any())).thenReturn(Mono.just(GenericResponse.success("ok", 1500)));
+
+		assertThatThrownBy(() -> paymentService.recoverSaga(saga).block(TIMEOUT))
+			.hasMessageContaining("Tuition Update Failed");
+
+		InOrder order = inOrder(paymentSagaLog, customerClient);
+		order.verify(paymentSagaLog).advance(eq(saga), eq(SagaStatus.COMPENSATION_PENDING), any());
+		order.verify(customerClient).credit(eq(7L), any());
+		order.verify(paymentSagaLog).advance(saga, SagaStatus.COMPENSATED);
+		verify(paymentSagaLog, never()).record(any(), any());
+	}
+
+	@Test
+	void tuitionPaidByAnotherSagaMeansThisOneIsRefunded() {
+		PaymentSaga saga = saga(SagaStatus.TUITION_UPDATED);
+		when(paymentSagaLog.claim(saga)).thenReturn(true);
+		when(paymentSagaLog.record(eq(saga), any())).thenThrow(new DataIntegrityViolationException("uq_payment_tuition"));
+		when(customerClient.credit(eq(7L), any())).thenReturn(Mono.just(GenericResponse.success("ok", 1500)));
+
+		assertThatThrownBy(() -> paymentService.recoverSaga(saga).block(TIMEOUT))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageContaining("already been paid");
+
+		verify(paymentSagaLog).advance(saga, SagaStatus.COMPENSATED);
+	}
+
+	@Test
+	void failedRefundLeavesTheSagaPendingAndRecordsTheError() {
+		PaymentSaga saga = saga(SagaStatus.COMPENSATION_PENDING);
+		when(paymentSagaLog.claim(saga)).thenReturn(true);
+		when(customerClient.credit(eq(7L), any())).thenReturn(Mono.error(new DownstreamServerException("Credit Failed: unavailable")));
+
+		assertThatThrownBy(() -> paymentService.recoverSaga(saga).block(TIMEOUT))
+			.hasMessageContaining("Credit Failed");
+
+		verify(paymentSagaLog, never()).advance(saga, SagaStatus.COMPENSATED);
+		verify(paymentSagaLog).recordError(eq(saga), any(DownstreamServerException.class));
+	}
+
+	private void tuitionUpdateAnswers(Mono<GenericResponse<TuitionDetails>> response) {
+		when(tuitionClient.updateStatus(eq(7L), any())).thenReturn(response);
+	}
+
+	private static TuitionDetails paidTuition() {
+		return new TuitionDetails(9L, "S1", "Student", 1500, "1", "2026", true);
+	}
+
+	private static PaymentSaga saga(SagaStatus status) {
+		PaymentSaga saga = new PaymentSaga();
+		saga.setSagaId(42L);
+		saga.setCustomerId(7L);
+		saga.setTuitionId(9L);
+		saga.setAmount(1500);
+		saga.setStatus(status);
+		saga.setAttempts(0);
+		saga.setUpdatedAt(LocalDateTime.of(2026, 1, 1, 8, 0));
+		return saga;
+	}
+}
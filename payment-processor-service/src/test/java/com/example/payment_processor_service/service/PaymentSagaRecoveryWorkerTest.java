@@ -0,0 +1,116 @@
+package com.example.payment_processor_service.service;
+
+import com.example.payment_processor_service.model.PaymentSaga;
+import com.example.payment_processor_service.model.SagaStatus;
+import com.example.payment_processor_service.repository.PaymentSagaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaymentSagaRecoveryWorkerTest {
+
+	private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 1, 8, 0);
+
+	private PaymentSagaRepository paymentSagaRepository;
+	private PaymentService paymentService;
+	private PaymentSagaRecoveryWorker worker;
+
+	@BeforeEach
+	void setUp() {
+		paymentSagaRepository = mock(PaymentSagaRepository.class);
+		paymentService = mock(PaymentService.class);
+		PaymentSagaLog paymentSagaLog = mock(PaymentSagaLog.class);
+		when(paymentSagaLog.now()).thenReturn(NOW);
+		when(paymentService.recoverSaga(any())).thenReturn(Mono.empty());
+
+		worker = new PaymentSagaRecoveryWorker();
+		ReflectionTestUtils.setField(worker, "paymentSagaRepository", paymentSagaRepository);
+		ReflectionTestUtils.setField(worker, "paymentSagaLog", paymentSagaLog);
+		ReflectionTestUtils.setField(worker, "paymentService", paymentService);
+		ReflectionTestUtils.setField(worker, "batchSize", 2);
+		ReflectionTestUtils.setField(worker, "concurrency", 2);
+		ReflectionTestUtils.setField(worker, "maxBatchesPerRun", 20);
+		ReflectionTestUtils.setField(worker, "staleAfterSeconds", 120L);
+	}
+
+	@Test
+	void onlySagasIdleLongerThanTheStaleWindowAndNotFinishedAreFetched() {
+		batches(List.of());
+
+		worker.recoverStuckSagas();
+
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<Collection<SagaStatus>> statuses = ArgumentCaptor.forClass(Collection.class);
+		ArgumentCaptor<LocalDateTime> staleBefore = ArgumentCaptor.forClass(LocalDateTime.class);
+		ArgumentCaptor<Pageable> page = ArgumentCaptor.forClass(Pageable.class);
+		verify(paymentSagaRepository).findByStatusInAndUpdatedAtBefore(statuses.capture(), staleBefore.capture(), page.capture());
+
+		assertThat(statuses.getValue())
+			.contains(SagaStatus.DEBIT_REQUESTED, SagaStatus.COMPENSATION_PENDING)
+			.doesNotContain(SagaStatus.RECORDED, SagaStatus.COMPENSATED, SagaStatus.FAILED);
+		assertThat(staleBefore.getValue()).isEqualTo(NOW.minusSeconds(120));
+		assertThat(page.getValue().getPageSize()).isEqualTo(2);
+	}
+
+	@Test
+	void fullBatchesAreFollowedUntilAShortOne() {
+		batches(sagas(1, 2), sagas(3, 4), sagas(5));
+
+		worker.recoverStuckSagas();
+
+		verify(paymentSagaRepository, times(3)).findByStatusInAndUpdatedAtBefore(anyCollection(), any(), any());
+		verify(paymentService, times(5)).recoverSaga(any());
+	}
+
+	@Test
+	void oneFailingSagaDoesNotStopTheRest() {
+		List<PaymentSaga> batch = sagas(1, 2);
+		batches(batch, List.of());
+		when(paymentService.recoverSaga(batch.get(0))).thenReturn(Mono.error(new RuntimeException("customer-management unavailable")));
+
+		worker.recoverStuckSagas();
+
+		verify(paymentService).recoverSaga(batch.get(1));
+		verify(paymentSagaRepository, times(2)).findByStatusInAndUpdatedAtBefore(anyCollection(), any(), any());
+	}
+
+	@Test
+	void aRunStopsAfterTheBatchLimit() {
+		ReflectionTestUtils.setField(worker, "maxBatchesPerRun", 2);
+		when(paymentSagaRepository.findByStatusInAndUpdatedAtBefore(anyCollection(), any(), any())).thenReturn(sagas(1, 2));
+
+		worker.recoverStuckSagas();
+
+		verify(paymentSagaRepository, times(2)).findByStatusInAndUpdatedAtBefore(anyCollection(), any(), any());
+	}
+
+	@SafeVarargs
+	private void batches(List<PaymentSaga> first, List<PaymentSaga>... rest) {
+		when(paymentSagaRepository.findByStatusInAndUpdatedAtBefore(anyCollection(), any(), any())).thenReturn(first, rest);
+	}
+
+	private static List<PaymentSaga> sagas(long... ids) {
+		return LongStream.of(ids).mapToObj(id -> {
+			PaymentSaga saga = new PaymentSaga();
+			saga.setSagaId(id);
+			saga.setStatus(SagaStatus.DEBITED);
+			return saga;
+		}).toList();
+	}
+}
@@ -0,0 +1,125 @@
+package com.example.payment_processor_service.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// The pub/sub container is never started here; the leader's announcement is delivered by calling
+// the listener's callback directly.
+class RedisSingleFlightTest {
+
+	private static final String KEY = "confirm:1:9";
+	private static final String LEASE_KEY = "payment:singleflight:" + KEY + ":lease";
+	private static final String RESULT_KEY = "payment:singleflight:" + KEY + ":result";
+
+	private StringRedisTemplate redisTemplate;
+	private ValueOperations<String, String> valueOperations;
+	private RedisSingleFlight singleFlight;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		redisTemplate = mock(StringRedisTemplate.class);
+		valueOperations = mock(ValueOperations.class);
+		when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+
+		singleFlight = new RedisSingleFlight(redisTemplate, mock(RedisConnectionFactory.class), new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(singleFlight, "leaseMs", 2000L);
+		ReflectionTestUtils.setField(singleFlight, "resultTtlMs", 10000L);
+	}
+
+	@Test
+	void leaderRunsTheWorkAndAnnouncesTheOutcome() {
+		leaseAcquired(true);
+		AtomicInteger runs = new AtomicInteger();
+
+		singleFlight.execute(KEY, runs::incrementAndGet);
+
+		assertThat(runs).hasValue(1);
+		verify(valueOperations).set(RESULT_KEY, "OK", Duration.ofMillis(10000));
+		verify(redisTemplate).convertAndSend(RESULT_KEY, "OK");
+		verify(redisTemplate).execute(any(RedisScript.class), eq(List.of(LEASE_KEY)), anyString());
+	}
+
+	@Test
+	void leaderPublishesAConflictAsAConflict() {
+		leaseAcquired(true);
+
+		assertThatThrownBy(() -> singleFlight.execute(KEY, () -> {
+			throw new PaymentConflictException("Another payment is in progress.", null);
+		})).isInstanceOf(PaymentConflictException.class);
+
+		verify(redisTemplate).convertAndSend(RESULT_KEY, "CONFLICT|Another payment is in progress.");
+	}
+
+	@Test
+	void followerReplaysAStoredConflictWithItsType() {
+		leaseAcquired(false);
+		when(valueOperations.get(RESULT_KEY)).thenReturn("CONFLICT|Another payment is in progress.");
+
+		assertThatThrownBy(() -> singleFlight.execute(KEY, () -> {}))
+			.isInstanceOf(PaymentConflictException.class)
+			.hasMessage("Another payment is in progress.");
+	}
+
+	@Test
+	void followerReplaysARejectionAsABadRequest() {
+		leaseAcquired(false);
+		when(valueOperations.get(RESULT_KEY)).thenReturn("REJECTED|Tuition ID 9 has already been paid.");
+
+		assertThatThrownBy(() -> singleFlight.execute(KEY, () -> {}))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("Tuition ID 9 has already been paid.");
+	}
+
+	@Test
+	void followerIsWokenByTheAnnouncement() throws Exception {
+		leaseAcquired(false);
+		AtomicInteger runs = new AtomicInteger();
+
+		CompletableFuture<Void> follower = CompletableFuture.runAsync(() -> singleFlight.execute(KEY, runs::incrementAndGet));
+		// Keep announcing until the follower has registered, as the leader's message would find it.
+		while (!follower.isDone()) {
+			ReflectionTestUtils.invokeMethod(singleFlight, "complete", RESULT_KEY, "OK");
+			Thread.sleep(10);
+		}
+
+		follower.get(1, TimeUnit.SECONDS);
+		assertThat(runs).hasValue(0);
+	}
+
+	@Test
+	void followerGivesUpAfterOneLease() {
+		ReflectionTestUtils.setField(singleFlight, "leaseMs", 100L);
+		leaseAcquired(false);
+
+		assertThatThrownBy(() -> singleFlight.execute(KEY, () -> {}))
+			.hasMessageContaining("still being processed");
+	}
+
+	private void leaseAcquired(boolean acquired) {
+		doReturn(acquired ? 1L : 0L).when(redisTemplate)
+			.execute(any(RedisScript.class), eq(List.of(LEASE_KEY, RESULT_KEY)), anyString(), anyString());
+	}
+}
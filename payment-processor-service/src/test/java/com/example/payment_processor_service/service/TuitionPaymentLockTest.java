@@ -0,0 +1,109 @@
+package com.example.payment_processor_service.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TuitionPaymentLockTest {
+
+	private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+	private ReactiveStringRedisTemplate redisTemplate;
+	private ReactiveValueOperations<String, String> valueOperations;
+	private TuitionPaymentLock lock;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		redisTemplate = mock(ReactiveStringRedisTemplate.class);
+		valueOperations = mock(ReactiveValueOperations.class);
+		when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+		doReturn(Flux.just(1L)).when(redisTemplate).execute(any(), anyList(), anyList());
+
+		lock = new TuitionPaymentLock();
+		ReflectionTestUtils.setField(lock, "redisTemplate", redisTemplate);
+		ReflectionTestUtils.setField(lock, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(lock, "leaseMs", 30000L);
+		ReflectionTestUtils.setField(lock, "waitMs", 200L);
+		ReflectionTestUtils.setField(lock, "retryIntervalMs", 10L);
+	}
+
+	@Test
+	void locksAreTakenInTuitionOrderWithTheLeaseAsTtlAndReleasedWithTheirToken() {
+		when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(Mono.just(true));
+		AtomicReference<TuitionPaymentLock.Lease> held = new AtomicReference<>();
+
+		String result = lock.withLock(List.of(9L, 3L, 9L), lease -> {
+			held.set(lease);
+			return Mono.just("paid");
+		}).block(TIMEOUT);
+
+		assertThat(result).isEqualTo("paid");
+		assertThat(held.get().ownerTokens()).containsOnlyKeys(3L, 9L);
+
+		InOrder order = inOrder(valueOperations);
+		order.verify(valueOperations).setIfAbsent(eq("payment:lock:tuition:3"), anyString(), eq(Duration.ofMillis(30000)));
+		order.verify(valueOperations).setIfAbsent(eq("payment:lock:tuition:9"), anyString(), eq(Duration.ofMillis(30000)));
+
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<List<String>> releaseArgs = ArgumentCaptor.forClass(List.class);
+		verify(redisTemplate).execute(any(), eq(List.of("payment:lock:tuition:3")), releaseArgs.capture());
+		assertThat(releaseArgs.getValue()).containsExactly(held.get().ownerTokens().get(3L));
+	}
+
+	@Test
+	void lockHeldElsewhereTurnsIntoAConflictAfterTheWait() {
+		when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(Mono.just(false));
+
+		assertThatThrownBy(() -> lock.withLock(List.of(3L), lease -> Mono.just("paid")).block(TIMEOUT))
+			.isInstanceOf(PaymentConflictException.class)
+			.hasMessageContaining("already in progress");
+		verify(redisTemplate, never()).execute(any(), anyList(), anyList());
+	}
+
+	@Test
+	void partialAcquisitionIsRolledBack() {
+		when(valueOperations.setIfAbsent(eq("payment:lock:tuition:3"), anyString(), any(Duration.class))).thenReturn(Mono.just(true));
+		when(valueOperations.setIfAbsent(eq("payment:lock:tuition:9"), anyString(), any(Duration.class))).thenReturn(Mono.just(false));
+
+		assertThatThrownBy(() -> lock.withLock(List.of(3L, 9L), lease -> Mono.just("paid")).block(TIMEOUT))
+			.isInstanceOf(PaymentConflictException.class);
+		verify(redisTemplate).execute(any(), eq(List.of("payment:lock:tuition:3")), anyList());
+	}
+
+	@Test
+	void verifyFailsOnceTheLeaseIsLost() {
+		doReturn(Flux.just(0L)).when(redisTemplate).execute(any(), anyList(), anyList());
+
+		TuitionPaymentLock.Lease lease = new TuitionPaymentLock.Lease(Map.of(3L, "token"), System.nanoTime());
+
+		assertThatThrownBy(() -> lock.verify(lease).block(TIMEOUT))
+			.isInstanceOf(PaymentConflictException.class)
+			.hasMessageContaining("expired before the debit");
+	}
+}
@@ -1,6 +1,7 @@
 package com.example.tuition_service.controller;
 
 import com.example.tuition_service.dto.GenericResponse;
+import com.example.tuition_service.dto.TuitionBatchPaymentRequest;
 import com.example.tuition_service.dto.TuitionPaymentRequest;
 import com.example.tuition_service.model.StudentTuition;
 import com.example.tuition_service.service.TuitionService;
@@ -69,6 +70,35 @@ public class TuitionController {
         }
     }
 
+    @PostMapping("/status/batch")
+    public ResponseEntity<GenericResponse<List<StudentTuition>>> updateTuitionStatuses(@RequestBody TuitionBatchPaymentRequest request) {
+        if (request.getTuitionIds() == null || request.getTuitionIds().isEmpty() || request.getIsPaid() == null) {
+             return ResponseEntity.badRequest().body(GenericResponse.failure("Invalid request: tuitionIds and isPaid status are required."));
+        }
+        if (request.getTuitionIds().stream().distinct().count() != request.getTuitionIds().size()) {
+             return ResponseEntity.badRequest().body(GenericResponse.failure("Invalid request: tuitionIds must not contain duplicates."));
+        }
+
+        try {
+            Optional<List<StudentTuition>> updatedTuitionsOpt = tuitionService.updateTuitionStatuses(
+                request.getTuitionIds(),
+                request.getIsPaid()
+            );
+
+            if (updatedTuitionsOpt.isPresent()) {
+                return ResponseEntity.ok(GenericResponse.success(
+                    "Tuition payment statuses updated successfully.",
+                    updatedTuitionsOpt.get()
+                ));
+            } else {
+                return ResponseEntity.status(404).body(GenericResponse.failure("One or more tuition records not found in: " + request.getTuitionIds()));
+            }
+
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(GenericResponse.failure("Internal server error: " + e.getMessage()));
+        }
+    }
+
     @GetMapping("/id/{tuitionId}")
     public ResponseEntity<GenericResponse<StudentTuition>> getTuitionById(@PathVariable Long tuitionId) {
         if (tuitionId == null) {
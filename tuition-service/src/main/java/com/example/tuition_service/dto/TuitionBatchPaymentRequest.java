@@ -0,0 +1,15 @@
+package com.example.tuition_service.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TuitionBatchPaymentRequest {
+    private List<Long> tuitionIds;
+    private Boolean isPaid;
+}
@@ -38,4 +38,20 @@ public class TuitionService {
 
         return Optional.of(tuition);
     }
-}
\ No newline at end of file
+
+    // All-or-nothing: if any tuition is missing nothing is updated, so the payment side can
+    // compensate the whole batch with a single credit.
+    @Transactional
+    public Optional<List<StudentTuition>> updateTuitionStatuses(List<Long> tuitionIds, Boolean isPaid) {
+        List<StudentTuition> tuitions = studentTuitionRepository.findAllById(tuitionIds);
+
+        if (tuitions.size() != tuitionIds.size()) {
+            return Optional.empty();
+        }
+
+        tuitions.forEach(tuition -> tuition.setIsPaid(isPaid));
+        studentTuitionRepository.saveAll(tuitions);
+
+        return Optional.of(tuitions);
+    }
+}